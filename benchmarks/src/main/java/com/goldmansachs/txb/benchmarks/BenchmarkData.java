@@ -0,0 +1,166 @@
+package com.goldmansachs.txb.benchmarks;
+
+import com.goldmansachs.txb.domain.config.RuleConfiguration;
+import com.goldmansachs.txb.domain.config.RuleConfigurationStore;
+import com.goldmansachs.txb.domain.model.CountryCode;
+import com.goldmansachs.txb.domain.model.CurrencyCode;
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.RiskRule;
+import com.goldmansachs.txb.engine.RiskScoringEngine;
+import com.goldmansachs.txb.engine.RuleExecutionMode;
+import com.goldmansachs.txb.engine.rules.HighRiskCountryRule;
+import com.goldmansachs.txb.engine.rules.HighValueTransactionRule;
+import com.goldmansachs.txb.engine.rules.NewBeneficiaryRule;
+import com.goldmansachs.txb.engine.rules.UnusualTimeOfDayRule;
+import com.goldmansachs.txb.infrastructure.fx.FxRateStore;
+import com.goldmansachs.txb.infrastructure.fx.FxRateTable;
+import com.goldmansachs.txb.infrastructure.repository.KnownPairFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Shared fixtures: the rule set, an in-memory history and reproducible transaction mixes.
+ * Everything is generated from a fixed seed so runs are comparable across releases.
+ */
+public final class BenchmarkData {
+    
+    public static final String HIGH_RISK_COUNTRIES =
+        "AF,BY,CF,CD,CU,ER,GW,HT,IR,IQ,KP,LB,LY,ML,MM,NI,RU,SO,SS,SD,SY,VE,YE,ZW";
+    public static final int CLIENTS = 1_000;
+    public static final int BENEFICIARIES_PER_CLIENT = 10;
+    public static final BigDecimal AVG_AMOUNT = new BigDecimal("10000.00");
+    
+    private static final short USD = CurrencyCode.parse("USD");
+    private static final short US = CountryCode.parse("US");
+    private static final short IR = CountryCode.parse("IR");
+    private static final short KP = CountryCode.parse("KP");
+    
+    /** 14:30 ET on a weekday */
+    public static final OffsetDateTime BUSINESS_HOURS = OffsetDateTime.of(2024, 1, 15, 19, 30, 0, 0, ZoneOffset.UTC);
+    /** 03:00 ET on a weekday */
+    public static final OffsetDateTime OFF_HOURS = OffsetDateTime.of(2024, 1, 15, 8, 0, 0, 0, ZoneOffset.UTC);
+    
+    private static final long SEED = 42L;
+    
+    private BenchmarkData() {
+    }
+    
+    /**
+     * Transaction populations the engine is measured against.
+     */
+    public enum Mix {
+        /** Known beneficiary, usual amount, low-risk country, business hours: no rule triggers */
+        CLEAN,
+        /** Production-like blend: mostly clean, with a tail of new beneficiaries, spikes, risky countries and night payments */
+        REALISTIC,
+        /** New beneficiary in a high-risk country at night: every rule except HIGH_VALUE (which needs history) triggers */
+        HIGH_RISK
+    }
+    
+    public static InMemoryTransactionHistory history() {
+        InMemoryTransactionHistory history = new InMemoryTransactionHistory();
+        Instant lastSeen = Instant.parse("2024-01-01T00:00:00Z");
+        for (int c = 0; c < CLIENTS; c++) {
+            for (int b = 0; b < BENEFICIARIES_PER_CLIENT; b++) {
+                history.put(clientId(c), beneficiaryId(c, b), AVG_AMOUNT, lastSeen);
+            }
+        }
+        return history;
+    }
+    
+    /**
+     * The default rule configuration with the production high-risk country list.
+     */
+    public static RuleConfiguration configuration() {
+        Properties properties = new Properties();
+        properties.setProperty("txb.risk.rules.version", "benchmark");
+        properties.setProperty("txb.risk.high-risk-countries", HIGH_RISK_COUNTRIES);
+        return RuleConfiguration.fromProperties(properties, RuleConfiguration.defaults());
+    }
+    
+    /**
+     * USD-based rates for a handful of major currencies.
+     */
+    public static FxRateStore fxRates() {
+        return new FxRateStore(FxRateTable.of("benchmark", USD, Map.of(
+            CurrencyCode.parse("EUR"), new BigDecimal("1.0845"),
+            CurrencyCode.parse("GBP"), new BigDecimal("1.2710"),
+            CurrencyCode.parse("JPY"), new BigDecimal("0.0067"),
+            CurrencyCode.parse("CHF"), new BigDecimal("1.1230"))));
+    }
+    
+    public static List<RiskRule> rules() {
+        return List.of(
+            new HighRiskCountryRule(),
+            new HighValueTransactionRule(fxRates()),
+            new NewBeneficiaryRule(KnownPairFilter.NONE),
+            new UnusualTimeOfDayRule()
+        );
+    }
+    
+    public static RiskScoringEngine engine(InMemoryTransactionHistory history, RuleExecutionMode mode) {
+        return new RiskScoringEngine(rules(), new RuleConfigurationStore(configuration()), history, new SimpleMeterRegistry(),
+            mode, Duration.ofMillis(50));
+    }
+    
+    /**
+     * Generates {@code count} transactions of the given mix. Callers cycle through the
+     * array so the JIT sees realistic branch profiles rather than a single constant input.
+     */
+    public static Transaction[] transactions(Mix mix, int count) {
+        Random random = new Random(SEED);
+        Transaction[] transactions = new Transaction[count];
+        for (int i = 0; i < count; i++) {
+            transactions[i] = switch (mix) {
+                case CLEAN -> clean(i, random);
+                case REALISTIC -> realistic(i, random);
+                case HIGH_RISK -> highRisk(i, random);
+            };
+        }
+        return transactions;
+    }
+    
+    private static Transaction clean(int i, Random random) {
+        int client = random.nextInt(CLIENTS);
+        return new Transaction("TXN-" + i, clientId(client), beneficiaryId(client, random.nextInt(BENEFICIARIES_PER_CLIENT)),
+            new BigDecimal("9500.00"), USD, BUSINESS_HOURS, US);
+    }
+    
+    private static Transaction realistic(int i, Random random) {
+        int client = random.nextInt(CLIENTS);
+        // ~10% of payments go to a beneficiary the client has never paid
+        String beneficiary = random.nextInt(100) < 10
+            ? "BENEFICIARY-NEW-" + i
+            : beneficiaryId(client, random.nextInt(BENEFICIARIES_PER_CLIENT));
+        // ~3% are well above the pair's average
+        BigDecimal amount = random.nextInt(100) < 3 ? new BigDecimal("45000.00") : new BigDecimal("9500.00");
+        // ~15% are made outside business hours
+        OffsetDateTime time = random.nextInt(100) < 15 ? OFF_HOURS : BUSINESS_HOURS;
+        // ~2% go to a high-risk country
+        short country = random.nextInt(100) < 2 ? IR : US;
+        return new Transaction("TXN-" + i, clientId(client), beneficiary, amount, USD, time, country);
+    }
+    
+    private static Transaction highRisk(int i, Random random) {
+        int client = random.nextInt(CLIENTS);
+        return new Transaction("TXN-" + i, clientId(client), "BENEFICIARY-NEW-" + i,
+            new BigDecimal("45000.00"), USD, OFF_HOURS, KP);
+    }
+    
+    private static String clientId(int client) {
+        return "CLIENT-" + client;
+    }
+    
+    private static String beneficiaryId(int client, int beneficiary) {
+        return "BENEFICIARY-" + client + "-" + beneficiary;
+    }
+}
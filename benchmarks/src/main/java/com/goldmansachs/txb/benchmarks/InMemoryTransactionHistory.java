@@ -0,0 +1,36 @@
+package com.goldmansachs.txb.benchmarks;
+
+import com.goldmansachs.txb.infrastructure.repository.HistoryKey;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryEntity;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryLookup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory stand-in for the history repository, so history-backed rules are measured
+ * without database or cache effects. Lookups return pre-built Optionals to keep the
+ * stand-in's own allocation out of the results.
+ */
+public class InMemoryTransactionHistory implements TransactionHistoryLookup {
+    
+    private final Map<HistoryKey, Optional<TransactionHistoryEntity>> histories = new HashMap<>();
+    
+    public void put(String clientId, String beneficiaryId, BigDecimal avgAmount, Instant lastSeen) {
+        TransactionHistoryEntity entity = TransactionHistoryEntity.builder()
+            .clientId(clientId)
+            .beneficiaryId(beneficiaryId)
+            .avgAmount(avgAmount)
+            .lastSeen(lastSeen)
+            .build();
+        histories.put(new HistoryKey(clientId, beneficiaryId), Optional.of(entity));
+    }
+    
+    @Override
+    public Optional<TransactionHistoryEntity> findHistory(String clientId, String beneficiaryId) {
+        return histories.getOrDefault(new HistoryKey(clientId, beneficiaryId), Optional.empty());
+    }
+}
@@ -0,0 +1,73 @@
+package com.goldmansachs.txb.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.goldmansachs.txb.api.dto.RiskScoreRequest;
+import com.goldmansachs.txb.api.dto.RiskScoreResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON mapping cost of the API DTOs, configured like Spring Boot's default ObjectMapper
+ * (JavaTimeModule, ISO-8601 dates). Readers and writers are pre-resolved, as in Spring MVC.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JsonMappingBenchmark {
+    
+    private static final byte[] REQUEST_JSON = """
+        {
+          "transactionId": "TXN-DEMO-001",
+          "clientId": "CLIENT-001",
+          "beneficiaryId": "BENEFICIARY-001",
+          "amount": 10000.00,
+          "currency": "USD",
+          "transactionTime": "2024-01-15T14:30:00Z",
+          "country": "US"
+        }
+        """.getBytes(StandardCharsets.UTF_8);
+    
+    private ObjectReader requestReader;
+    private ObjectWriter responseWriter;
+    private RiskScoreResponse response;
+    
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        requestReader = objectMapper.readerFor(RiskScoreRequest.class);
+        responseWriter = objectMapper.writerFor(RiskScoreResponse.class);
+        response = new RiskScoreResponse("TXN-DEMO-001", 400, "HIGH", List.of("NEW_BENEFICIARY", "HIGH_RISK_COUNTRY"));
+    }
+    
+    @Benchmark
+    public RiskScoreRequest readRequest() throws IOException {
+        return requestReader.readValue(REQUEST_JSON);
+    }
+    
+    @Benchmark
+    public byte[] writeResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,50 @@
+package com.goldmansachs.txb.benchmarks;
+
+import com.goldmansachs.txb.domain.model.RiskScore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Threshold mapping from numeric score to risk level, over scores spread across all
+ * four levels so the branches are not trivially predictable.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RiskLevelBenchmark {
+    
+    private static final int POPULATION = 1024;
+    
+    private int[] scores;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42L);
+        scores = new int[POPULATION];
+        for (int i = 0; i < POPULATION; i++) {
+            scores[i] = random.nextInt(800);
+        }
+    }
+    
+    @Benchmark
+    public RiskScore.RiskLevel calculateRiskLevel() {
+        int score = scores[next];
+        next = (next + 1) & (POPULATION - 1);
+        return RiskScore.calculateRiskLevel(score, 200, 400, 600);
+    }
+}
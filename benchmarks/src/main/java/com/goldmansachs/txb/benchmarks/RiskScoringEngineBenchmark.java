@@ -0,0 +1,72 @@
+package com.goldmansachs.txb.benchmarks;
+
+import com.goldmansachs.txb.domain.model.RiskScore;
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.RiskScoringEngine;
+import com.goldmansachs.txb.engine.RuleExecutionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end engine cost: context creation, all four rules against the in-memory history,
+ * aggregation and risk-level mapping. Audit, HTTP and JSON are excluded.
+ * 
+ * Run with {@code -prof gc} to check the allocation rate of the sequential hot path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class RiskScoringEngineBenchmark {
+    
+    private static final int POPULATION = 1024;
+    
+    @Param({"CLEAN", "REALISTIC", "HIGH_RISK"})
+    public BenchmarkData.Mix mix;
+    
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public RuleExecutionMode executionMode;
+    
+    private RiskScoringEngine engine;
+    private Transaction[] transactions;
+    private List<Transaction> batch;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        engine = BenchmarkData.engine(BenchmarkData.history(), executionMode);
+        transactions = BenchmarkData.transactions(mix, POPULATION);
+        batch = Arrays.asList(transactions);
+    }
+    
+    @Benchmark
+    public RiskScore calculateScore() {
+        Transaction transaction = transactions[next];
+        next = (next + 1) & (POPULATION - 1);
+        return engine.calculateScore(transaction);
+    }
+    
+    /**
+     * Batch path (bulk history prefetch, always sequential); reported per batch of {@value #POPULATION}.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<RiskScore> calculateScores() {
+        return engine.calculateScores(batch);
+    }
+}
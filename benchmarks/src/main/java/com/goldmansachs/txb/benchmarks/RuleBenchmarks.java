@@ -0,0 +1,95 @@
+package com.goldmansachs.txb.benchmarks;
+
+import com.goldmansachs.txb.domain.config.RuleConfiguration;
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.EvaluationContext;
+import com.goldmansachs.txb.engine.RiskSignal;
+import com.goldmansachs.txb.engine.rules.HighRiskCountryRule;
+import com.goldmansachs.txb.engine.rules.HighValueTransactionRule;
+import com.goldmansachs.txb.engine.rules.NewBeneficiaryRule;
+import com.goldmansachs.txb.engine.rules.UnusualTimeOfDayRule;
+import com.goldmansachs.txb.infrastructure.repository.KnownPairFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each rule in isolation. The rules are constructed directly rather than through
+ * Spring, so the history-backed rules run without the circuit breaker proxy and against
+ * {@link InMemoryTransactionHistory}. A fresh {@link EvaluationContext} is built per call,
+ * as the engine does, so the history rules include one (in-memory) lookup each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class RuleBenchmarks {
+    
+    private static final int POPULATION = 1024;
+    
+    @Param({"CLEAN", "REALISTIC", "HIGH_RISK"})
+    public BenchmarkData.Mix mix;
+    
+    private RuleConfiguration configuration;
+    private InMemoryTransactionHistory history;
+    private Transaction[] transactions;
+    private int next;
+    
+    private HighRiskCountryRule highRiskCountryRule;
+    private HighValueTransactionRule highValueTransactionRule;
+    private NewBeneficiaryRule newBeneficiaryRule;
+    private UnusualTimeOfDayRule unusualTimeOfDayRule;
+    
+    @Setup
+    public void setUp() {
+        configuration = BenchmarkData.configuration();
+        history = BenchmarkData.history();
+        transactions = BenchmarkData.transactions(mix, POPULATION);
+        highRiskCountryRule = new HighRiskCountryRule();
+        highValueTransactionRule = new HighValueTransactionRule(BenchmarkData.fxRates());
+        newBeneficiaryRule = new NewBeneficiaryRule(KnownPairFilter.NONE);
+        unusualTimeOfDayRule = new UnusualTimeOfDayRule();
+    }
+    
+    private Transaction nextTransaction() {
+        Transaction transaction = transactions[next];
+        next = (next + 1) & (POPULATION - 1);
+        return transaction;
+    }
+    
+    @Benchmark
+    public RiskSignal highRiskCountry() {
+        Transaction transaction = nextTransaction();
+        return highRiskCountryRule.evaluate(transaction, new EvaluationContext(transaction, configuration, history));
+    }
+    
+    @Benchmark
+    public RiskSignal highValueTransaction() {
+        Transaction transaction = nextTransaction();
+        return highValueTransactionRule.evaluate(transaction, new EvaluationContext(transaction, configuration, history));
+    }
+    
+    @Benchmark
+    public RiskSignal newBeneficiary() {
+        Transaction transaction = nextTransaction();
+        return newBeneficiaryRule.evaluate(transaction, new EvaluationContext(transaction, configuration, history));
+    }
+    
+    @Benchmark
+    public RiskSignal unusualTimeOfDay() {
+        Transaction transaction = nextTransaction();
+        return unusualTimeOfDayRule.evaluate(transaction, new EvaluationContext(transaction, configuration, history));
+    }
+}
@@ -0,0 +1,85 @@
+package com.goldmansachs.txb.benchmarks;
+
+import com.goldmansachs.txb.domain.model.CountryCode;
+import com.goldmansachs.txb.domain.model.CurrencyCode;
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.infrastructure.velocity.VelocityWindow;
+import com.goldmansachs.txb.infrastructure.velocity.VelocityWindowStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Velocity store updates and window queries from many threads at once. With few keys
+ * every thread contends on the same counters; with many, contention is spread out and
+ * the cost is dominated by the map lookup and cache misses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@Threads(8)
+public class VelocityWindowBenchmarks {
+    
+    private static final int POPULATION = 1024;
+    
+    @Param({"16", "100000"})
+    public int keys;
+    
+    private VelocityWindowStore store;
+    private Transaction[] transactions;
+    
+    @Setup
+    public void setUp() {
+        store = new VelocityWindowStore(BenchmarkData.fxRates(), new SimpleMeterRegistry(), 1_000_000,
+            Duration.ofMinutes(1), System::currentTimeMillis);
+        Random random = new Random(42L);
+        transactions = new Transaction[POPULATION];
+        for (int i = 0; i < POPULATION; i++) {
+            int key = random.nextInt(keys);
+            transactions[i] = new Transaction("TXN-" + i, "CLIENT-" + key, "BENEFICIARY-" + key,
+                new BigDecimal("9500.00"), CurrencyCode.parse("USD"), BenchmarkData.BUSINESS_HOURS,
+                CountryCode.parse("US"));
+        }
+        for (Transaction transaction : transactions) {
+            store.record(transaction);
+        }
+    }
+    
+    private Transaction nextTransaction() {
+        return transactions[ThreadLocalRandom.current().nextInt(POPULATION)];
+    }
+    
+    @Benchmark
+    public void record() {
+        store.record(nextTransaction());
+    }
+    
+    @Benchmark
+    public long countOneHour() {
+        return store.count(VelocityWindowStore.Scope.CLIENT, nextTransaction().clientId(), VelocityWindow.ONE_HOUR);
+    }
+    
+    @Benchmark
+    public long amountOneDay() {
+        return store.amount(VelocityWindowStore.Scope.CLIENT, nextTransaction().clientId(), VelocityWindow.ONE_DAY);
+    }
+}
@@ -1,16 +1,41 @@
 -- Enable pgcrypto extension for gen_random_uuid()
 CREATE EXTENSION IF NOT EXISTS pgcrypto;
 
--- Create transaction_risk_scores table
+-- Create transaction_risk_scores table, partitioned by day on created_at.
+-- Partitions are named transaction_risk_scores_pYYYYMMDD (UTC days); the service creates
+-- upcoming days ahead of time and drops days past txb.risk.audit.partitions.retention.
+-- There is no global unique index on transaction_id (PostgreSQL requires unique indexes
+-- on a partitioned table to include the partition key); the audit writer deduplicates
+-- within txb.risk.audit.dedupe-window instead.
 CREATE TABLE IF NOT EXISTS transaction_risk_scores (
-    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
-    transaction_id VARCHAR(255) NOT NULL UNIQUE,
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    transaction_id VARCHAR(255) NOT NULL,
     risk_score INTEGER NOT NULL,
     risk_level VARCHAR(20) NOT NULL,
     reason_codes TEXT[],
     created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
-    created_by VARCHAR(255) NOT NULL DEFAULT 'SYSTEM'
-);
+    created_by VARCHAR(255) NOT NULL DEFAULT 'SYSTEM',
+    -- Rule configuration version the decision was scored with
+    config_version VARCHAR(64),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Catches rows outside every daily partition (e.g. spilled records replayed after their day was dropped)
+CREATE TABLE IF NOT EXISTS transaction_risk_scores_default PARTITION OF transaction_risk_scores DEFAULT;
+
+-- Today and the next week, so the first audit writes never land in the default partition
+DO $$
+DECLARE
+    day DATE;
+BEGIN
+    FOR i IN 0..7 LOOP
+        day := (NOW() AT TIME ZONE 'UTC')::DATE + i;
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF transaction_risk_scores FOR VALUES FROM (%L) TO (%L)',
+            'transaction_risk_scores_p' || to_char(day, 'YYYYMMDD'),
+            day::TEXT || ' 00:00:00+00', (day + 1)::TEXT || ' 00:00:00+00');
+    END LOOP;
+END $$;
 
 -- Create transaction_history table
 CREATE TABLE IF NOT EXISTS transaction_history (
@@ -18,15 +43,42 @@ CREATE TABLE IF NOT EXISTS transaction_history (
     client_id VARCHAR(255) NOT NULL,
     beneficiary_id VARCHAR(255) NOT NULL,
     avg_amount DECIMAL(18, 2),
-    last_seen TIMESTAMPTZ
+    -- Exponentially weighted running statistics maintained by the scoring service
+    amount_variance DOUBLE PRECISION,
+    transaction_count BIGINT NOT NULL DEFAULT 0,
+    last_seen TIMESTAMPTZ,
+    -- When the pair was first written; the known-pair filter syncs new pairs by it
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+-- FX rates into the base currency (txb.risk.fx.base-currency), reloaded by the service every txb.risk.fx.refresh-interval
+CREATE TABLE IF NOT EXISTS fx_rates (
+    currency CHAR(3) PRIMARY KEY,
+    -- Units of the base currency per unit of this currency
+    rate_to_base NUMERIC(24, 9) NOT NULL CHECK (rate_to_base > 0),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
 );
 
 -- Create indexes for performance
-CREATE INDEX idx_transaction_risk_scores_transaction_id ON transaction_risk_scores(transaction_id);
-CREATE INDEX idx_transaction_history_client_beneficiary ON transaction_history(client_id, beneficiary_id);
+-- Per-partition (local) index: idempotency lookups are bounded by created_at, so only the partitions in range are probed
+CREATE INDEX idx_transaction_risk_scores_transaction_id ON transaction_risk_scores(transaction_id, created_at);
+-- Unique so profile updates can upsert on the pair
+CREATE UNIQUE INDEX idx_transaction_history_client_beneficiary ON transaction_history(client_id, beneficiary_id);
+CREATE INDEX idx_transaction_history_created_at ON transaction_history(created_at);
+
+-- Seed fx_rates with indicative USD rates
+INSERT INTO fx_rates (currency, rate_to_base) VALUES
+('EUR', 1.0845),
+('GBP', 1.2710),
+('CHF', 1.1230),
+('JPY', 0.0067),
+('CAD', 0.7350),
+('AUD', 0.6580),
+('HKD', 0.1280),
+('SGD', 0.7420);
 
 -- Seed transaction_history with baseline data
-INSERT INTO transaction_history (client_id, beneficiary_id, avg_amount, last_seen) VALUES
-('CLIENT-001', 'BENEFICIARY-001', 10000.00, NOW() - INTERVAL '30 days'),
-('CLIENT-001', 'BENEFICIARY-002', 5000.00, NOW() - INTERVAL '60 days'),
-('CLIENT-002', 'BENEFICIARY-003', 50000.00, NOW() - INTERVAL '10 days');
+INSERT INTO transaction_history (client_id, beneficiary_id, avg_amount, transaction_count, last_seen) VALUES
+('CLIENT-001', 'BENEFICIARY-001', 10000.00, 12, NOW() - INTERVAL '30 days'),
+('CLIENT-001', 'BENEFICIARY-002', 5000.00, 4, NOW() - INTERVAL '60 days'),
+('CLIENT-002', 'BENEFICIARY-003', 50000.00, 20, NOW() - INTERVAL '10 days');
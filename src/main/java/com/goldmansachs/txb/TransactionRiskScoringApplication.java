@@ -1,11 +1,19 @@
 package com.goldmansachs.txb;
 
+import com.goldmansachs.txb.backtest.BacktestCommand;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Arrays;
+
 @SpringBootApplication
 public class TransactionRiskScoringApplication {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // Offline backtest mode runs without the Spring context (no web server, no database)
+        if (args.length > 0 && args[0].equals("backtest")) {
+            BacktestCommand.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         SpringApplication.run(TransactionRiskScoringApplication.class, args);
     }
 }
@@ -0,0 +1,394 @@
+package com.goldmansachs.txb.api.admission;
+
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.RiskRule;
+import com.goldmansachs.txb.infrastructure.fx.FxRateStore;
+import com.goldmansachs.txb.infrastructure.fx.FxRateTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive concurrency limit in front of single-transaction scoring, with load shedding
+ * by payment value and a degraded scoring mode.
+ *
+ * The limit on scores in flight is found from latency rather than configured. Every
+ * {@value #WINDOW_MILLIS}ms the average latency of the window is compared with the
+ * baseline, the latency without queueing. While latency stays within
+ * {@code latency-tolerance} times the baseline, the limit grows by about its square root
+ * per window. Once queueing inflates latency beyond that, the limit shrinks in proportion,
+ * by at most half per window. A request over the limit is rejected at once instead of
+ * queueing for a Tomcat thread or a Hikari connection. The requests that are admitted keep
+ * their latency, so throughput holds at capacity instead of collapsing.
+ *
+ * The baseline is measured by a probe at startup and every {@code probe-interval}. While
+ * it runs, low-value payments are only admitted below {@code min-limit} scores in flight,
+ * so concurrency drains, and the baseline is the average latency of {@value #PROBE_SAMPLES}
+ * scores admitted at no more than {@code min-limit} in flight. High-value payments are
+ * admitted under the current limit throughout, starting from {@code initial-limit}. If the
+ * probe finds too few such scores within a second, the previous baseline stays; on the
+ * first probe there is none, and the average latency at the initial limit is taken
+ * instead. Between probes a faster window only lowers the baseline. Latency measured
+ * under load cannot raise it, so queueing is never mistaken for the normal latency.
+ *
+ * Payments fall in two priority classes by their amount in the base currency. High-value
+ * payments may use the whole limit, low-value ones only {@code low-priority-share} of it,
+ * so low-value traffic is shed first. A payment in a currency without an FX rate counts as
+ * high value.
+ *
+ * Low-value payments are admitted in degraded mode while latency is inflated or low-value
+ * payments are being shed, and for {@code degraded-hold} after. Degraded scoring skips the
+ * {@link RiskRule#ioBound() I/O-bound} rules and serves the idempotency check and the
+ * profile update from memory only, taking load off the database before the
+ * transactionHistory circuit breaker opens. High-value payments are always scored in full.
+ * Only full scores feed the latency measurement, and the limit does not grow while
+ * degraded, so it keeps reflecting the capacity of full scoring.
+ *
+ * A streamed micro-batch takes one slot like a single score, but is not measured: its
+ * latency grows with its size, not with queueing.
+ *
+ * Meters:
+ * - risk.admission.limit: the current concurrency limit
+ * - risk.admission.in_flight: scores in flight
+ * - risk.admission.rejected{priority}: requests shed
+ * - risk.admission.degraded: payments admitted in degraded mode
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+    
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    
+    private static final long WINDOW_MILLIS = 100;
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS);
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final int PROBE_SAMPLES = 20;
+    /** A probe that has not collected its samples by then keeps the previous baseline. */
+    private static final long PROBE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /** Weight of each new estimate in the limit, damping oscillation. */
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    
+    /**
+     * Payment priority classes, by amount in the base currency.
+     */
+    public enum Priority {
+        HIGH, LOW
+    }
+    
+    private final boolean enabled;
+    private final FxRateStore fxRates;
+    private final long highValueMinorUnits;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double lowPriorityShare;
+    private final double latencyTolerance;
+    private final long degradedHoldNanos;
+    private final long probeIntervalNanos;
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    private volatile long degradedUntilNanos;
+    /** Whether the limit is held at min-limit to measure the baseline. */
+    private volatile boolean probing;
+    
+    /** Guards the window, the probe and the estimates below. */
+    private final ReentrantLock windowLock = new ReentrantLock();
+    private double estimatedLimit;
+    private double baselineNanos;
+    private long probeStartNanos;
+    private long probeSumNanos;
+    private int probeSamples;
+    private long probeLoadedSumNanos;
+    private int probeLoadedSamples;
+    private long windowStartNanos;
+    private long windowSumNanos;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    
+    private final Counter[] rejectedCounters;
+    private final Counter degradedCounter;
+    
+    public AdaptiveConcurrencyLimiter(
+            FxRateStore fxRates,
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.admission.enabled:true}") boolean enabled,
+            @Value("${txb.risk.admission.initial-limit:20}") int initialLimit,
+            @Value("${txb.risk.admission.min-limit:4}") int minLimit,
+            @Value("${txb.risk.admission.max-limit:200}") int maxLimit,
+            @Value("${txb.risk.admission.high-value-amount:100000}") BigDecimal highValueAmount,
+            @Value("${txb.risk.admission.low-priority-share:0.75}") double lowPriorityShare,
+            @Value("${txb.risk.admission.latency-tolerance:1.5}") double latencyTolerance,
+            @Value("${txb.risk.admission.degraded-hold:5s}") Duration degradedHold,
+            @Value("${txb.risk.admission.probe-interval:60s}") Duration probeInterval) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("txb.risk.admission limits must satisfy 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        if (!(lowPriorityShare > 0 && lowPriorityShare <= 1)) {
+            throw new IllegalArgumentException("txb.risk.admission.low-priority-share must be in (0, 1], was " + lowPriorityShare);
+        }
+        if (!(latencyTolerance >= 1)) {
+            throw new IllegalArgumentException("txb.risk.admission.latency-tolerance must be at least 1, was " + latencyTolerance);
+        }
+        this.enabled = enabled;
+        this.fxRates = fxRates;
+        this.highValueMinorUnits = FxRateTable.toMinorUnits(highValueAmount);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.lowPriorityShare = lowPriorityShare;
+        this.latencyTolerance = latencyTolerance;
+        this.degradedHoldNanos = degradedHold.toNanos();
+        this.probeIntervalNanos = probeInterval.toNanos();
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+        long now = System.nanoTime();
+        this.degradedUntilNanos = now;
+        this.probing = true;
+        this.probeStartNanos = now;
+        this.windowStartNanos = now;
+        
+        Gauge.builder("risk.admission.limit", this, limiter -> limiter.limit)
+            .description("Current adaptive limit on scores in flight")
+            .register(meterRegistry);
+        Gauge.builder("risk.admission.in_flight", inFlight, AtomicInteger::get)
+            .description("Scores in flight under the adaptive limit")
+            .register(meterRegistry);
+        Priority[] priorities = Priority.values();
+        this.rejectedCounters = new Counter[priorities.length];
+        for (Priority priority : priorities) {
+            rejectedCounters[priority.ordinal()] = Counter.builder("risk.admission.rejected")
+                .description("Requests shed by the adaptive concurrency limit")
+                .tag("priority", priority.name())
+                .register(meterRegistry);
+        }
+        this.degradedCounter = Counter.builder("risk.admission.degraded")
+            .description("Payments admitted in degraded mode, without the I/O-bound rules")
+            .register(meterRegistry);
+        log.info("Initialized AdaptiveConcurrencyLimiter (enabled={}, initialLimit={}, minLimit={}, maxLimit={}, highValueAmount={})",
+                 enabled, initialLimit, minLimit, maxLimit, highValueAmount);
+    }
+    
+    /**
+     * @return HIGH if the payment is worth at least {@code high-value-amount} in the base
+     *         currency, or its currency has no FX rate; LOW otherwise
+     */
+    public Priority classify(Transaction transaction) {
+        long amount = fxRates.toBaseMinorUnits(transaction);
+        return amount == FxRateTable.NO_RATE || amount >= highValueMinorUnits ? Priority.HIGH : Priority.LOW;
+    }
+    
+    /**
+     * Admits a score if its priority class is under the limit. Never blocks.
+     * The returned permit must be released when the score completes.
+     *
+     * @return The permit, or null if the request is shed
+     */
+    public Permit tryAcquire(Priority priority) {
+        return tryAcquire(priority, true);
+    }
+    
+    /**
+     * Like {@link #tryAcquire(Priority)}, for work whose latency does not reflect queueing
+     * (e.g. a micro-batch) when {@code measured} is false: it counts towards the limit but
+     * never towards the latency windows or the probe.
+     *
+     * @return The permit, or null if the request is shed
+     */
+    public Permit tryAcquire(Priority priority, boolean measured) {
+        if (!enabled) {
+            return Permit.UNLIMITED;
+        }
+        boolean probing = this.probing;
+        int current = limit;
+        int allowed = current;
+        if (priority == Priority.LOW) {
+            allowed = Math.max(1, (int) (current * lowPriorityShare));
+            if (probing) {
+                allowed = Math.min(allowed, minLimit);
+            }
+        }
+        int admitted;
+        do {
+            admitted = inFlight.get();
+            if (admitted >= allowed) {
+                rejectedCounters[priority.ordinal()].increment();
+                // Shedding for the probe says nothing about load
+                if (priority == Priority.LOW && !probing) {
+                    enterDegraded(System.nanoTime());
+                }
+                return null;
+            }
+        } while (!inFlight.compareAndSet(admitted, admitted + 1));
+        
+        long now = System.nanoTime();
+        // Only scores admitted at low concurrency measure the baseline; they run in full
+        boolean probe = measured && probing && admitted < minLimit;
+        boolean degraded = priority == Priority.LOW && !probe && now - degradedUntilNanos < 0;
+        if (degraded) {
+            degradedCounter.increment();
+        }
+        return new Permit(this, now, admitted + 1, probe, degraded, measured);
+    }
+    
+    /**
+     * @return The current limit on scores in flight
+     */
+    public int limit() {
+        return limit;
+    }
+    
+    private void release(Permit permit) {
+        inFlight.decrementAndGet();
+        if (permit.degraded || !permit.measured) {
+            return;
+        }
+        long now = System.nanoTime();
+        windowLock.lock();
+        try {
+            if (probing) {
+                sampleProbe(permit, now);
+                return;
+            }
+            if (now - probeStartNanos - probeIntervalNanos >= 0) {
+                probing = true;
+                probeStartNanos = now;
+                return;
+            }
+            if (permit.probe) {
+                // Measured the probe that has just ended; its latency was counted there
+                return;
+            }
+            windowSumNanos += now - permit.startNanos;
+            windowSamples++;
+            windowMaxInFlight = Math.max(windowMaxInFlight, permit.inFlight);
+            if (now - windowStartNanos < WINDOW_NANOS || windowSamples < MIN_WINDOW_SAMPLES) {
+                return;
+            }
+            updateLimit((double) windowSumNanos / windowSamples, windowMaxInFlight, now);
+            windowStartNanos = now;
+            windowSumNanos = 0;
+            windowSamples = 0;
+            windowMaxInFlight = 0;
+        } finally {
+            windowLock.unlock();
+        }
+    }
+    
+    /**
+     * Counts a score towards the probe and ends the probe once it has enough samples or
+     * has timed out. Scores admitted above {@code min-limit} in flight may have queued, so
+     * they only count for the first probe, and only if it found nothing better. Called
+     * under the window lock.
+     */
+    private void sampleProbe(Permit permit, long now) {
+        if (permit.probe) {
+            probeSumNanos += now - permit.startNanos;
+            probeSamples++;
+        } else {
+            probeLoadedSumNanos += now - permit.startNanos;
+            probeLoadedSamples++;
+        }
+        boolean timedOut = now - probeStartNanos > PROBE_TIMEOUT_NANOS;
+        if (probeSamples < PROBE_SAMPLES
+                && !(timedOut && (probeSamples > 0 || baselineNanos > 0 || probeLoadedSamples > 0))) {
+            return;
+        }
+        if (probeSamples > 0) {
+            double probed = (double) probeSumNanos / probeSamples;
+            baselineNanos = baselineNanos == 0 || !timedOut ? probed : Math.min(baselineNanos, probed);
+        } else if (baselineNanos == 0) {
+            baselineNanos = (double) probeLoadedSumNanos / probeLoadedSamples;
+        }
+        probeSumNanos = 0;
+        probeSamples = 0;
+        probeLoadedSumNanos = 0;
+        probeLoadedSamples = 0;
+        probeStartNanos = now;
+        windowStartNanos = now;
+        windowSumNanos = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        probing = false;
+        log.debug("Concurrency limit probe measured a baseline latency of {}us (limit={})",
+                  (long) (baselineNanos / 1000), limit);
+    }
+    
+    /**
+     * Applies one window's latency to the limit. Called under the window lock.
+     */
+    private void updateLimit(double latencyNanos, int maxInFlight, long now) {
+        baselineNanos = Math.min(baselineNanos, latencyNanos);
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, latencyTolerance * baselineNanos / latencyNanos));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        if (maxInFlight < estimatedLimit / 2 || now - degradedUntilNanos < 0) {
+            // A limit that was not used, or used by degraded scores, says nothing about capacity: do not grow it
+            target = Math.min(target, estimatedLimit);
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+            estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimatedLimit;
+        
+        if (gradient < 1.0) {
+            enterDegraded(now);
+        }
+    }
+    
+    private void enterDegraded(long now) {
+        long until = now + degradedHoldNanos;
+        long previous = degradedUntilNanos;
+        if (until - previous > 0) {
+            degradedUntilNanos = until;
+            if (now - previous >= 0) {
+                log.warn("Scoring is at capacity (limit={}, inFlight={}); low-value payments are scored without I/O-bound rules",
+                         limit, inFlight.get());
+            }
+        }
+    }
+    
+    /**
+     * An admitted score. {@link #degraded()} tells whether to skip the I/O-bound rules.
+     */
+    public static final class Permit {
+        
+        private static final Permit UNLIMITED = new Permit(null, 0, 0, false, false, false);
+        
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final long startNanos;
+        private final int inFlight;
+        private final boolean probe;
+        private final boolean degraded;
+        private final boolean measured;
+        
+        private Permit(AdaptiveConcurrencyLimiter limiter, long startNanos, int inFlight, boolean probe,
+                       boolean degraded, boolean measured) {
+            this.limiter = limiter;
+            this.startNanos = startNanos;
+            this.inFlight = inFlight;
+            this.probe = probe;
+            this.degraded = degraded;
+            this.measured = measured;
+        }
+        
+        public boolean degraded() {
+            return degraded;
+        }
+        
+        /**
+         * Ends the score, recording its latency. Call exactly once.
+         */
+        public void release() {
+            if (limiter != null) {
+                limiter.release(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.goldmansachs.txb.api.binary;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Registers the binary wire protocol with Spring MVC.
+ * The converter is added after the defaults, so JSON stays the choice for clients that
+ * accept anything and binary is only used when asked for by media type.
+ */
+@Configuration
+public class BinaryProtocolConfig implements WebMvcConfigurer {
+    
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new BinaryRiskScoreMessageConverter());
+    }
+}
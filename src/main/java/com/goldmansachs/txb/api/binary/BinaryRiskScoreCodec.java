@@ -0,0 +1,269 @@
+package com.goldmansachs.txb.api.binary;
+
+import com.goldmansachs.txb.api.dto.BatchItemResult;
+import com.goldmansachs.txb.api.dto.BatchRiskScoreResponse;
+import com.goldmansachs.txb.api.dto.RiskScoreRequest;
+import com.goldmansachs.txb.api.dto.RiskScoreResponse;
+import com.goldmansachs.txb.domain.model.RiskScore;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of the scoring API ({@value #MEDIA_TYPE_VALUE}, version 1), for
+ * high-volume clients. Fields are written in a fixed order with no names, amounts as an
+ * unscaled long and a scale, and times as epoch seconds, nanos and offset, so decoding
+ * parses no text. All integers are big-endian.
+ *
+ * <pre>
+ * string    short byte count (-1 for null), then UTF-8 bytes
+ * request   string transactionId, string clientId, string beneficiaryId,
+ *           byte presence (bit 0 amount, bit 1 transactionTime),
+ *           [byte scale, long unscaled amount], string currency,
+ *           [long epoch second, int nano, int offset seconds], string country
+ * requests  int count, count x request
+ * response  string transactionId, int riskScore, byte riskLevel (ordinal of LOW, MEDIUM,
+ *           HIGH, CRITICAL), byte count, count x string reasonCode
+ * item      int index, byte status (0 scored, 1 rejected), then
+ *           scored: response; rejected: string transactionId, short count, count x string error
+ * batch     int total, int scored, int rejected, int count, count x item
+ * </pre>
+ * A single score answers with a response, or with a rejected item and status 400 if the
+ * request is invalid. A batch answers with a batch.
+ */
+public final class BinaryRiskScoreCodec {
+    
+    public static final String MEDIA_TYPE_VALUE = "application/x-txb-risk";
+    
+    private static final int AMOUNT_PRESENT = 1;
+    private static final int TIME_PRESENT = 1 << 1;
+    private static final byte SCORED = 0;
+    private static final byte REJECTED = 1;
+    /** Five null strings and the presence byte. */
+    private static final int MIN_REQUEST_BYTES = 5 * Short.BYTES + 1;
+    private static final RiskScore.RiskLevel[] LEVELS = RiskScore.RiskLevel.values();
+    
+    private BinaryRiskScoreCodec() {
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the input is truncated or malformed
+     */
+    public static RiskScoreRequest readRequest(ByteBuffer in) {
+        try {
+            return request(in);
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Malformed binary request: body is truncated", ex);
+        } catch (DateTimeException ex) {
+            throw new IllegalArgumentException("Malformed binary request: " + ex.getMessage(), ex);
+        }
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the input is truncated or malformed
+     */
+    public static List<RiskScoreRequest> readRequests(ByteBuffer in) {
+        try {
+            int count = in.getInt();
+            // Bounds the allocation by what the body can actually hold
+            if (count < 0 || count > in.remaining() / MIN_REQUEST_BYTES) {
+                throw new IllegalArgumentException("Malformed binary request: count " + count
+                    + " does not fit in " + in.remaining() + " bytes");
+            }
+            List<RiskScoreRequest> requests = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                requests.add(request(in));
+            }
+            return requests;
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Malformed binary request: body is truncated", ex);
+        } catch (DateTimeException ex) {
+            throw new IllegalArgumentException("Malformed binary request: " + ex.getMessage(), ex);
+        }
+    }
+    
+    private static RiskScoreRequest request(ByteBuffer in) {
+        String transactionId = readString(in);
+        String clientId = readString(in);
+        String beneficiaryId = readString(in);
+        int presence = in.get();
+        BigDecimal amount = null;
+        if ((presence & AMOUNT_PRESENT) != 0) {
+            int scale = in.get();
+            amount = BigDecimal.valueOf(in.getLong(), scale);
+        }
+        String currency = readString(in);
+        OffsetDateTime transactionTime = null;
+        if ((presence & TIME_PRESENT) != 0) {
+            long epochSecond = in.getLong();
+            int nano = in.getInt();
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds(in.getInt());
+            transactionTime = OffsetDateTime.of(LocalDateTime.ofEpochSecond(epochSecond, nano, offset), offset);
+        }
+        String country = readString(in);
+        return new RiskScoreRequest(transactionId, clientId, beneficiaryId, amount, currency, transactionTime, country);
+    }
+    
+    /**
+     * Encodes a request, for clients.
+     *
+     * @throws IllegalArgumentException if the amount has more than 127 decimal places or
+     *         an unscaled value beyond the long range
+     */
+    public static void writeRequest(DataOutputStream out, RiskScoreRequest request) throws IOException {
+        writeString(out, request.transactionId());
+        writeString(out, request.clientId());
+        writeString(out, request.beneficiaryId());
+        out.writeByte((request.amount() != null ? AMOUNT_PRESENT : 0) | (request.transactionTime() != null ? TIME_PRESENT : 0));
+        if (request.amount() != null) {
+            BigDecimal amount = request.amount();
+            if (amount.scale() < Byte.MIN_VALUE || amount.scale() > Byte.MAX_VALUE || amount.unscaledValue().bitLength() > 63) {
+                throw new IllegalArgumentException("Amount " + amount + " cannot be encoded");
+            }
+            out.writeByte(amount.scale());
+            out.writeLong(amount.unscaledValue().longValue());
+        }
+        writeString(out, request.currency());
+        if (request.transactionTime() != null) {
+            OffsetDateTime time = request.transactionTime();
+            out.writeLong(time.toEpochSecond());
+            out.writeInt(time.getNano());
+            out.writeInt(time.getOffset().getTotalSeconds());
+        }
+        writeString(out, request.country());
+    }
+    
+    /**
+     * Encodes a batch of requests, for clients.
+     */
+    public static void writeRequests(DataOutputStream out, List<RiskScoreRequest> requests) throws IOException {
+        out.writeInt(requests.size());
+        for (RiskScoreRequest request : requests) {
+            writeRequest(out, request);
+        }
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the response carries a decision trace, which is JSON only
+     */
+    public static void writeResponse(DataOutputStream out, RiskScoreResponse response) throws IOException {
+        if (response.trace() != null) {
+            throw new IllegalArgumentException("Decision traces are only available as JSON");
+        }
+        writeString(out, response.transactionId());
+        out.writeInt(response.riskScore());
+        out.writeByte(RiskScore.RiskLevel.valueOf(response.riskLevel()).ordinal());
+        out.writeByte(response.reasonCodes().size());
+        for (String reasonCode : response.reasonCodes()) {
+            writeString(out, reasonCode);
+        }
+    }
+    
+    public static void writeItem(DataOutputStream out, BatchItemResult item) throws IOException {
+        out.writeInt(item.index());
+        if (item.result() != null) {
+            out.writeByte(SCORED);
+            writeResponse(out, item.result());
+        } else {
+            out.writeByte(REJECTED);
+            writeString(out, item.transactionId());
+            out.writeShort(item.errors().size());
+            for (String error : item.errors()) {
+                writeString(out, error);
+            }
+        }
+    }
+    
+    public static void writeBatch(DataOutputStream out, BatchRiskScoreResponse batch) throws IOException {
+        out.writeInt(batch.total());
+        out.writeInt(batch.scored());
+        out.writeInt(batch.rejected());
+        out.writeInt(batch.results().size());
+        for (BatchItemResult item : batch.results()) {
+            writeItem(out, item);
+        }
+    }
+    
+    /**
+     * Decodes a response, for clients.
+     */
+    public static RiskScoreResponse readResponse(ByteBuffer in) {
+        String transactionId = readString(in);
+        int riskScore = in.getInt();
+        String riskLevel = LEVELS[in.get()].name();
+        int count = in.get() & 0xFF;
+        List<String> reasonCodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            reasonCodes.add(readString(in));
+        }
+        return new RiskScoreResponse(transactionId, riskScore, riskLevel, reasonCodes);
+    }
+    
+    /**
+     * Decodes an item result, for clients.
+     */
+    public static BatchItemResult readItem(ByteBuffer in) {
+        int index = in.getInt();
+        if (in.get() == SCORED) {
+            return BatchItemResult.scored(index, readResponse(in));
+        }
+        String transactionId = readString(in);
+        int count = in.getShort() & 0xFFFF;
+        List<String> errors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            errors.add(readString(in));
+        }
+        return BatchItemResult.rejected(index, transactionId, errors);
+    }
+    
+    /**
+     * Decodes a batch response, for clients.
+     */
+    public static BatchRiskScoreResponse readBatch(ByteBuffer in) {
+        int total = in.getInt();
+        int scored = in.getInt();
+        int rejected = in.getInt();
+        int count = in.getInt();
+        List<BatchItemResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(readItem(in));
+        }
+        return new BatchRiskScoreResponse(total, scored, rejected, results);
+    }
+    
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes is too long to encode");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
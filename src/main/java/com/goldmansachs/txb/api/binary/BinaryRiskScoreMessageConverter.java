@@ -0,0 +1,98 @@
+package com.goldmansachs.txb.api.binary;
+
+import com.goldmansachs.txb.api.dto.BatchItemResult;
+import com.goldmansachs.txb.api.dto.BatchRiskScoreResponse;
+import com.goldmansachs.txb.api.dto.RiskScoreRequest;
+import com.goldmansachs.txb.api.dto.RiskScoreResponse;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Reads and writes the scoring DTOs in the {@link BinaryRiskScoreCodec} encoding.
+ * Reads a {@link RiskScoreRequest} or a {@code List<RiskScoreRequest>}; writes a
+ * {@link RiskScoreResponse}, {@link BatchItemResult} or {@link BatchRiskScoreResponse}.
+ */
+public class BinaryRiskScoreMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(BinaryRiskScoreCodec.MEDIA_TYPE_VALUE);
+    
+    public BinaryRiskScoreMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+    
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == RiskScoreRequest.class
+            || clazz == RiskScoreResponse.class
+            || clazz == BatchItemResult.class
+            || clazz == BatchRiskScoreResponse.class;
+    }
+    
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (type == RiskScoreRequest.class || isRequestList(type)) && canRead(mediaType);
+    }
+    
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (clazz == RiskScoreResponse.class || clazz == BatchItemResult.class || clazz == BatchRiskScoreResponse.class)
+            && canWrite(mediaType);
+    }
+    
+    private static boolean isRequestList(Type type) {
+        return type instanceof ParameterizedType parameterized
+            && parameterized.getRawType() == List.class
+            && parameterized.getActualTypeArguments()[0] == RiskScoreRequest.class;
+    }
+    
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        ByteBuffer body = ByteBuffer.wrap(StreamUtils.copyToByteArray(inputMessage.getBody()));
+        try {
+            Object value = type == RiskScoreRequest.class
+                ? BinaryRiskScoreCodec.readRequest(body)
+                : BinaryRiskScoreCodec.readRequests(body);
+            if (body.hasRemaining()) {
+                throw new IllegalArgumentException("Malformed binary request: " + body.remaining() + " trailing bytes");
+            }
+            return value;
+        } catch (IllegalArgumentException ex) {
+            throw new HttpMessageNotReadableException(ex.getMessage(), ex, inputMessage);
+        }
+    }
+    
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+    
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputMessage.getBody()));
+        try {
+            if (value instanceof RiskScoreResponse response) {
+                BinaryRiskScoreCodec.writeResponse(out, response);
+            } else if (value instanceof BatchItemResult item) {
+                BinaryRiskScoreCodec.writeItem(out, item);
+            } else {
+                BinaryRiskScoreCodec.writeBatch(out, (BatchRiskScoreResponse) value);
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new HttpMessageNotWritableException(ex.getMessage(), ex);
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,112 @@
+package com.goldmansachs.txb.api.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads newline-delimited UTF-8 lines from a request body and tells whether the next
+ * line is already buffered, i.e. whether {@link #readLine()} can return without reading
+ * from the stream.
+ *
+ * {@link java.io.BufferedReader#ready()} cannot answer that: it asks the servlet stream
+ * whether bytes are available, which says nothing about whether they complete a line, and
+ * with chunked transfer encoding may report none while a chunk is in flight. Here every
+ * read from the stream happens in {@link #readLine()} and only when no complete line is
+ * buffered, so a caller that checks {@link #lineBuffered()} first knows exactly when it is
+ * about to block.
+ *
+ * Lines are split on '\n' (a trailing '\r' is dropped) before decoding, which is safe for
+ * UTF-8 as the byte never occurs inside a multi-byte sequence. Not thread-safe.
+ */
+final class NdjsonLineReader {
+    
+    private final InputStream input;
+    private byte[] buffer;
+    /** Start of the first unread line. */
+    private int start;
+    /** End of the buffered bytes. */
+    private int end;
+    /** Bytes from {@code start} up to here are known to hold no newline. */
+    private int scanned;
+    private boolean eof;
+    
+    NdjsonLineReader(InputStream input, int bufferSize) {
+        this.input = input;
+        this.buffer = new byte[bufferSize];
+    }
+    
+    /**
+     * @return true if {@link #readLine()} will return without reading from the stream
+     */
+    boolean lineBuffered() {
+        return eof || indexOfNewline() >= 0;
+    }
+    
+    /**
+     * Returns the next line, blocking for more input only if no complete line is buffered.
+     *
+     * @return The line without its terminator, or null at the end of the stream
+     */
+    String readLine() throws IOException {
+        while (true) {
+            int newline = indexOfNewline();
+            if (newline >= 0) {
+                String line = decode(start, newline);
+                start = newline + 1;
+                scanned = start;
+                return line;
+            }
+            if (eof) {
+                if (start == end) {
+                    return null;
+                }
+                String line = decode(start, end);
+                start = end;
+                scanned = end;
+                return line;
+            }
+            fill();
+        }
+    }
+    
+    private int indexOfNewline() {
+        for (int i = scanned; i < end; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        scanned = end;
+        return -1;
+    }
+    
+    /**
+     * Reads whatever the stream has next, after moving the partial line to the front of
+     * the buffer (or growing it, if the partial line fills it).
+     */
+    private void fill() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            scanned -= start;
+            start = 0;
+        }
+        if (end == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = input.read(buffer, end, buffer.length - end);
+        if (read < 0) {
+            eof = true;
+        } else {
+            end += read;
+        }
+    }
+    
+    private String decode(int from, int to) {
+        if (to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+    }
+}
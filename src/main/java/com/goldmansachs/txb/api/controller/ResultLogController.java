@@ -0,0 +1,91 @@
+package com.goldmansachs.txb.api.controller;
+
+import com.goldmansachs.txb.api.dto.ResultLogResponse;
+import com.goldmansachs.txb.infrastructure.resultlog.ResultLog;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+
+/**
+ * Tailing reader API over the local {@link ResultLog}, for downstream consumers that
+ * want every scoring decision without polling the database.
+ *
+ * A consumer keeps its own offset: it reads from it, processes the records and continues
+ * from the returned next offset. With {@code waitMs}, a read at the end of the log holds
+ * until a record arrives or the wait expires (long polling), so an idle consumer does not
+ * spin. Each read returns at most {@value #MAX_LIMIT} records and waits at most
+ * {@value #MAX_WAIT_MS}ms.
+ *
+ * - {@code GET /v1/results} returns decoded records as JSON
+ * - {@code GET /v1/results/frames} returns the records' binary frames as stored, written
+ *   straight from the mapped segment, with the next offset in the
+ *   {@value #NEXT_OFFSET_HEADER} header
+ */
+@RestController
+@RequestMapping("/v1/results")
+public class ResultLogController {
+    
+    static final String NEXT_OFFSET_HEADER = "X-Next-Offset";
+    static final String START_OFFSET_HEADER = "X-Start-Offset";
+    private static final int MAX_LIMIT = 1000;
+    private static final long MAX_WAIT_MS = 30_000;
+    
+    private final ResultLog resultLog;
+    
+    public ResultLogController(ResultLog resultLog) {
+        this.resultLog = resultLog;
+    }
+    
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResultLogResponse> read(@RequestParam(defaultValue = "0") long offset,
+                                                  @RequestParam(defaultValue = "100") int limit,
+                                                  @RequestParam(defaultValue = "0") long waitMs)
+            throws InterruptedException {
+        awaitRecords(offset, limit, waitMs);
+        ResultLog.Batch batch = resultLog.read(offset, limit);
+        return ResponseEntity.ok(new ResultLogResponse(resultLog.startOffset(), batch.nextOffset(), batch.entries()));
+    }
+    
+    @GetMapping(value = "/frames", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void readFrames(@RequestParam(defaultValue = "0") long offset,
+                           @RequestParam(defaultValue = "100") int limit,
+                           @RequestParam(defaultValue = "0") long waitMs,
+                           HttpServletResponse response) throws IOException, InterruptedException {
+        awaitRecords(offset, limit, waitMs);
+        ResultLog.Frames frames = resultLog.readFrames(offset, limit);
+        ByteBuffer bytes = frames.bytes();
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(START_OFFSET_HEADER, Long.toString(resultLog.startOffset()));
+        response.setHeader(NEXT_OFFSET_HEADER, Long.toString(frames.nextOffset()));
+        response.setContentLength(bytes.remaining());
+        WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+    
+    private void awaitRecords(long offset, int limit, long waitMs) throws InterruptedException {
+        if (!resultLog.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The result log is disabled");
+        }
+        if (offset < 0 || limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "offset must be >= 0 and limit between 1 and " + MAX_LIMIT);
+        }
+        if (waitMs < 0 || waitMs > MAX_WAIT_MS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "waitMs must be between 0 and " + MAX_WAIT_MS);
+        }
+        if (waitMs > 0) {
+            resultLog.awaitAppend(offset, Duration.ofMillis(waitMs));
+        }
+    }
+}
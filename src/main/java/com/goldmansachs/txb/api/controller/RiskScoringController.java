@@ -1,25 +1,64 @@
 package com.goldmansachs.txb.api.controller;
 
+import com.goldmansachs.txb.api.admission.AdaptiveConcurrencyLimiter;
+import com.goldmansachs.txb.api.binary.BinaryRiskScoreCodec;
+import com.goldmansachs.txb.api.dto.BatchItemResult;
+import com.goldmansachs.txb.api.dto.BatchRiskScoreResponse;
+import com.goldmansachs.txb.api.dto.DecisionTraceResponse;
 import com.goldmansachs.txb.api.dto.RiskScoreRequest;
 import com.goldmansachs.txb.api.dto.RiskScoreResponse;
 import com.goldmansachs.txb.domain.RiskScoringService;
+import com.goldmansachs.txb.domain.model.CountryCode;
+import com.goldmansachs.txb.domain.model.CurrencyCode;
 import com.goldmansachs.txb.domain.model.RiskScore;
 import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.DecisionTrace;
+import com.goldmansachs.txb.engine.ExplainedScore;
+import com.goldmansachs.txb.engine.RuleTrace;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
 
 /**
  * REST API controller for risk scoring operations.
- * Exposes the /v1/scores/calculate endpoint for synchronous risk assessment.
+ * Exposes the /v1/scores/calculate endpoint for synchronous risk assessment
+ * and /v1/scores/batch and /v1/scores/stream for bulk scoring of payment files and feeds.
  * 
  * This controller includes:
  * - Request validation via Jakarta Bean Validation
+ * - Load shedding on /v1/scores/calculate through the {@link AdaptiveConcurrencyLimiter}:
+ *   a request over the limit gets 503 with Retry-After, and low-value payments may be
+ *   scored in degraded mode near capacity
+ * - A compact binary encoding ({@value BinaryRiskScoreCodec#MEDIA_TYPE_VALUE}) of
+ *   /v1/scores/calculate and /v1/scores/batch, chosen by the request Content-Type
+ * - Opt-in decision traces on /v1/scores/calculate ({@code ?explain=true} or {@code X-Explain: true})
  * - DTO to domain model mapping
  * - Prometheus metrics for observability
  * - Structured logging for audit and debugging
@@ -29,63 +68,263 @@ import org.springframework.web.bind.annotation.*;
 public class RiskScoringController {
     
     private static final Logger log = LoggerFactory.getLogger(RiskScoringController.class);
+    /** Bytes read from a stream request body at a time. */
+    private static final int STREAM_READ_BUFFER_SIZE = 64 * 1024;
+    /** Error on each line of a streamed micro-batch shed by the concurrency limit. */
+    private static final String SHED_ERROR = "overloaded: Scoring is at capacity; resend the transaction";
     
     private final RiskScoringService riskScoringService;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final Validator validator;
+    private final int maxBatchSize;
+    private final int streamMicroBatchSize;
+    private final ObjectReader requestReader;
+    private final ObjectWriter resultWriter;
     private final Timer scoreCalculationTimer;
     private final Counter scoreCalculationCounter;
+    private final Timer batchCalculationTimer;
     
-    public RiskScoringController(RiskScoringService riskScoringService, MeterRegistry meterRegistry) {
+    public RiskScoringController(RiskScoringService riskScoringService,
+                                 AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                 Validator validator,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${txb.risk.batch.max-size:10000}") int maxBatchSize,
+                                 @Value("${txb.risk.stream.micro-batch-size:500}") int streamMicroBatchSize) {
         this.riskScoringService = riskScoringService;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.validator = validator;
+        this.maxBatchSize = maxBatchSize;
+        this.streamMicroBatchSize = streamMicroBatchSize;
+        // Writing line by line must not close the response stream after each value
+        this.requestReader = objectMapper.readerFor(RiskScoreRequest.class);
+        this.resultWriter = objectMapper.writerFor(BatchItemResult.class)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
         this.scoreCalculationTimer = Timer.builder("risk.score.calculation.time")
             .description("Time taken to calculate risk score")
             .register(meterRegistry);
         this.scoreCalculationCounter = Counter.builder("risk.score.calculation.total")
             .description("Total number of risk score calculations")
             .register(meterRegistry);
+        this.batchCalculationTimer = Timer.builder("risk.score.batch.time")
+            .description("Time taken to score a batch of transactions")
+            .register(meterRegistry);
     }
     
     /**
      * Calculates a risk score for a transaction.
      * 
+     * In explain mode the response also carries the decision trace: every rule's signal,
+     * triggered or not, the inputs it compared, whether it fell back, and its timing.
+     * Explained scores are admitted and degraded like any other; rules skipped in degraded
+     * mode are marked in the trace.
+     * 
      * @param request The risk score request containing transaction details
+     * @param explainParam {@code ?explain=true} requests the decision trace
+     * @param explainHeader {@code X-Explain: true} requests the decision trace
      * @return The calculated risk score with reason codes
      */
     @PostMapping("/calculate")
-    public ResponseEntity<RiskScoreResponse> calculateRiskScore(@Valid @RequestBody RiskScoreRequest request) {
-        log.info("Received risk score request for transaction {}", request.transactionId());
+    public ResponseEntity<RiskScoreResponse> calculateRiskScore(
+            @Valid @RequestBody RiskScoreRequest request,
+            @RequestParam(name = "explain", defaultValue = "false") boolean explainParam,
+            @RequestHeader(name = "X-Explain", defaultValue = "false") boolean explainHeader) {
+        log.debug("Received risk score request for transaction {}", request.transactionId());
         
-        return scoreCalculationTimer.record(() -> {
-            scoreCalculationCounter.increment();
-            
-            // Map DTO to domain model
-            Transaction transaction = new Transaction(
-                request.transactionId(),
-                request.clientId(),
-                request.beneficiaryId(),
-                request.amount(),
-                request.currency(),
-                request.transactionTime(),
-                request.country()
-            );
-            
-            // Calculate risk score
-            RiskScore riskScore = riskScoringService.calculateRiskScore(transaction);
-            
-            // Map domain model to DTO
-            RiskScoreResponse response = new RiskScoreResponse(
-                riskScore.transactionId(),
-                riskScore.score(),
-                riskScore.level().name(),
-                riskScore.reasonCodes()
-            );
+        // Map DTO to domain model
+        Transaction transaction = toTransaction(request);
+        AdaptiveConcurrencyLimiter.Permit permit = admit(transaction);
+        try {
+            return scoreCalculationTimer.record(() -> {
+                scoreCalculationCounter.increment();
+                
+                // Calculate risk score and map domain model to DTO
+                RiskScore riskScore;
+                RiskScoreResponse response;
+                if (explainParam || explainHeader) {
+                    ExplainedScore explained = riskScoringService.explainRiskScore(transaction, permit.degraded());
+                    riskScore = explained.riskScore();
+                    response = toResponse(riskScore, toTraceResponse(explained.trace()));
+                } else {
+                    riskScore = riskScoringService.calculateRiskScore(transaction, permit.degraded());
+                    response = toResponse(riskScore);
+                }
+                
+                if (log.isDebugEnabled()) {
+                    log.debug("Returning risk score for transaction {}: score={}, level={}",
+                              request.transactionId(), riskScore.score(), riskScore.level());
+                }
+                
+                return ResponseEntity.ok(response);
+            });
+        } finally {
+            permit.release();
+        }
+    }
+    
+    /**
+     * Calculates risk scores for a batch of transactions.
+     * 
+     * Each item is validated individually: invalid items are reported with their
+     * validation errors and do not prevent the valid items from being scored.
+     * History for the whole batch is fetched in bulk and all audit rows are written
+     * in one JDBC batch.
+     * 
+     * @param requests The transactions to score, at most txb.risk.batch.max-size items
+     * @return Per-item results in request order
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchRiskScoreResponse> calculateRiskScores(@RequestBody List<RiskScoreRequest> requests) {
+        return scoreBatch(requests);
+    }
+    
+    /**
+     * Calculates a risk score for a transaction in the binary encoding.
+     * 
+     * Validation is the same as for JSON; an invalid request is answered with status 400
+     * and a rejected item carrying its validation errors. Decision traces are JSON only,
+     * so explain mode is rejected the same way.
+     * 
+     * @see BinaryRiskScoreCodec
+     */
+    @PostMapping(value = "/calculate", consumes = BinaryRiskScoreCodec.MEDIA_TYPE_VALUE,
+                 produces = BinaryRiskScoreCodec.MEDIA_TYPE_VALUE)
+    public ResponseEntity<Object> calculateRiskScoreBinary(
+            @RequestBody RiskScoreRequest request,
+            @RequestParam(name = "explain", defaultValue = "false") boolean explainParam,
+            @RequestHeader(name = "X-Explain", defaultValue = "false") boolean explainHeader) {
+        List<String> errors = explainParam || explainHeader
+            ? List.of("explain: Decision traces are only available as JSON")
+            : validate(request);
+        if (!errors.isEmpty()) {
+            return ResponseEntity.badRequest().body(BatchItemResult.rejected(0, request.transactionId(), errors));
+        }
+        log.debug("Received binary risk score request for transaction {}", request.transactionId());
+        
+        Transaction transaction = toTransaction(request);
+        AdaptiveConcurrencyLimiter.Permit permit = admit(transaction);
+        try {
+            return scoreCalculationTimer.record(() -> {
+                scoreCalculationCounter.increment();
+                RiskScore riskScore = riskScoringService.calculateRiskScore(transaction, permit.degraded());
+                return ResponseEntity.ok(toResponse(riskScore));
+            });
+        } finally {
+            permit.release();
+        }
+    }
+    
+    /**
+     * Calculates risk scores for a batch of transactions in the binary encoding, with the
+     * same per-item validation and limits as the JSON batch.
+     * 
+     * @see BinaryRiskScoreCodec
+     */
+    @PostMapping(value = "/batch", consumes = BinaryRiskScoreCodec.MEDIA_TYPE_VALUE,
+                 produces = BinaryRiskScoreCodec.MEDIA_TYPE_VALUE)
+    public ResponseEntity<BatchRiskScoreResponse> calculateRiskScoresBinary(@RequestBody List<RiskScoreRequest> requests) {
+        return scoreBatch(requests);
+    }
+    
+    private ResponseEntity<BatchRiskScoreResponse> scoreBatch(List<RiskScoreRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Batch size " + requests.size() + " exceeds maximum of " + maxBatchSize);
+        }
+        log.info("Received batch risk score request with {} transactions", requests.size());
+        
+        return batchCalculationTimer.record(() -> {
+            List<BatchItemResult> results = scoreItems(requests, 0, false);
+            int scored = (int) results.stream().filter(result -> result.result() != null).count();
             
-            log.info("Returning risk score for transaction {}: score={}, level={}",
-                     request.transactionId(), riskScore.score(), riskScore.level());
+            log.info("Returning batch risk scores: scored={}, rejected={}", scored, requests.size() - scored);
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(new BatchRiskScoreResponse(
+                requests.size(),
+                scored,
+                requests.size() - scored,
+                results
+            ));
         });
     }
     
+    /**
+     * Scores a newline-delimited JSON stream of transactions.
+     * 
+     * Each input line is one RiskScoreRequest; each output line is the {@link BatchItemResult}
+     * for the input line with the same index. Lines are read incrementally and scored in
+     * micro-batches of at most txb.risk.stream.micro-batch-size, using the same bulk history
+     * lookup and batched audit as /batch. A micro-batch is also scored before any read that
+     * would wait for more input, so results keep flowing when the client sends slowly and
+     * nothing already received is held back while the server waits.
+     * 
+     * Each micro-batch is admitted under the adaptive concurrency limit as one unmeasured
+     * score, at high priority if it holds any high-value payment, and is scored in degraded
+     * mode when the permit says so. A micro-batch that is shed is answered with an
+     * {@code overloaded} error on each of its valid lines; the stream carries on, and the
+     * client may resend those transactions.
+     * 
+     * Memory is bounded by one micro-batch regardless of input size. The response is written
+     * and flushed on the request thread, so when the client stops reading, the write blocks
+     * and no more input is consumed: backpressure follows the client's read rate.
+     * 
+     * Blank lines are ignored. A line that is not valid JSON is reported with a parse error
+     * and does not end the stream.
+     * 
+     * @param input The request body, one JSON object per line
+     * @param response The servlet response the results are streamed to
+     */
+    @PostMapping(value = "/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamRiskScores(InputStream input, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        
+        NdjsonLineReader reader = new NdjsonLineReader(input, STREAM_READ_BUFFER_SIZE);
+        OutputStream output = response.getOutputStream();
+        List<RiskScoreRequest> pending = new ArrayList<>(streamMicroBatchSize);
+        int nextIndex = 0;
+        int firstPendingIndex = 0;
+        
+        while (true) {
+            // Score what has arrived before waiting for more, however little it is
+            if (!pending.isEmpty() && !reader.lineBuffered()) {
+                writeLines(output, scoreItems(pending, firstPendingIndex, true));
+                pending.clear();
+                firstPendingIndex = nextIndex;
+            }
+            String line = reader.readLine();
+            if (line == null) {
+                break;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            int index = nextIndex++;
+            RiskScoreRequest request;
+            try {
+                request = requestReader.readValue(line);
+            } catch (JsonProcessingException ex) {
+                // Keep output in input order: emit what is pending before the error line
+                writeLines(output, scoreItems(pending, firstPendingIndex, true));
+                pending.clear();
+                firstPendingIndex = nextIndex;
+                writeLines(output, List.of(BatchItemResult.rejected(index, null,
+                    List.of("request: Malformed JSON: " + ex.getOriginalMessage()))));
+                continue;
+            }
+            
+            pending.add(request);
+            if (pending.size() >= streamMicroBatchSize) {
+                writeLines(output, scoreItems(pending, firstPendingIndex, true));
+                pending.clear();
+                firstPendingIndex = nextIndex;
+            }
+        }
+        writeLines(output, scoreItems(pending, firstPendingIndex, true));
+        log.info("Completed risk score stream with {} lines", nextIndex);
+    }
+    
     /**
      * Health check endpoint
      */
@@ -93,4 +332,192 @@ public class RiskScoringController {
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("OK");
     }
+    
+    /**
+     * Validates and scores a group of requests as one batch.
+     * 
+     * @param requests The requests, in input order
+     * @param firstIndex The input index of the first request, used to number the results
+     * @param admitted Whether to admit the group under the concurrency limit first
+     * @return One result per request, in input order
+     */
+    private List<BatchItemResult> scoreItems(List<RiskScoreRequest> requests, int firstIndex, boolean admitted) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        BatchItemResult[] results = new BatchItemResult[requests.size()];
+        List<Transaction> transactions = new ArrayList<>(requests.size());
+        List<Integer> transactionPositions = new ArrayList<>(requests.size());
+        
+        for (int i = 0; i < requests.size(); i++) {
+            RiskScoreRequest request = requests.get(i);
+            List<String> errors = validate(request);
+            if (errors.isEmpty()) {
+                transactions.add(toTransaction(request));
+                transactionPositions.add(i);
+            } else {
+                results[i] = BatchItemResult.rejected(firstIndex + i,
+                    request == null ? null : request.transactionId(), errors);
+            }
+        }
+        
+        List<RiskScore> riskScores;
+        if (transactions.isEmpty()) {
+            riskScores = List.of();
+        } else if (admitted) {
+            AdaptiveConcurrencyLimiter.Permit permit = admitGroup(transactions);
+            if (permit == null) {
+                for (int i = 0; i < transactions.size(); i++) {
+                    int position = transactionPositions.get(i);
+                    results[position] = BatchItemResult.rejected(firstIndex + position,
+                        transactions.get(i).transactionId(), List.of(SHED_ERROR));
+                }
+                return List.of(results);
+            }
+            try {
+                riskScores = riskScoringService.calculateRiskScores(transactions, permit.degraded());
+            } finally {
+                permit.release();
+            }
+        } else {
+            riskScores = riskScoringService.calculateRiskScores(transactions);
+        }
+        for (int i = 0; i < riskScores.size(); i++) {
+            int position = transactionPositions.get(i);
+            results[position] = BatchItemResult.scored(firstIndex + position, toResponse(riskScores.get(i)));
+        }
+        scoreCalculationCounter.increment(riskScores.size());
+        return List.of(results);
+    }
+    
+    /**
+     * Admits a single score under the concurrency limit, by the payment's priority class.
+     * 
+     * @throws ResponseStatusException 503 with Retry-After if the request is shed
+     */
+    private AdaptiveConcurrencyLimiter.Permit admit(Transaction transaction) {
+        AdaptiveConcurrencyLimiter.Priority priority = concurrencyLimiter.classify(transaction);
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(priority);
+        if (permit == null) {
+            throw new OverloadedException(priority);
+        }
+        return permit;
+    }
+    
+    /**
+     * Admits a group of transactions scored together as one unmeasured score, at high
+     * priority if any of them is high value.
+     * 
+     * @return The permit, or null if the group is shed
+     */
+    private AdaptiveConcurrencyLimiter.Permit admitGroup(List<Transaction> transactions) {
+        AdaptiveConcurrencyLimiter.Priority priority = AdaptiveConcurrencyLimiter.Priority.LOW;
+        for (Transaction transaction : transactions) {
+            if (concurrencyLimiter.classify(transaction) == AdaptiveConcurrencyLimiter.Priority.HIGH) {
+                priority = AdaptiveConcurrencyLimiter.Priority.HIGH;
+                break;
+            }
+        }
+        return concurrencyLimiter.tryAcquire(priority, false);
+    }
+    
+    private void writeLines(OutputStream output, List<BatchItemResult> results) throws IOException {
+        if (results.isEmpty()) {
+            return;
+        }
+        for (BatchItemResult result : results) {
+            resultWriter.writeValue(output, result);
+            output.write('\n');
+        }
+        output.flush();
+    }
+    
+    private List<String> validate(RiskScoreRequest request) {
+        if (request == null) {
+            return List.of("request: Request is required");
+        }
+        Set<ConstraintViolation<RiskScoreRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return List.of();
+        }
+        return violations.stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted(Comparator.naturalOrder())
+            .toList();
+    }
+    
+    /**
+     * Parses currency and country into their dense codes once, here, so rules never
+     * touch the strings. Requests reaching this point have passed validation.
+     */
+    private static Transaction toTransaction(RiskScoreRequest request) {
+        return new Transaction(
+            request.transactionId(),
+            request.clientId(),
+            request.beneficiaryId(),
+            request.amount(),
+            CurrencyCode.parse(request.currency()),
+            request.transactionTime(),
+            CountryCode.parse(request.country())
+        );
+    }
+    
+    private static RiskScoreResponse toResponse(RiskScore riskScore) {
+        return new RiskScoreResponse(
+            riskScore.transactionId(),
+            riskScore.score(),
+            riskScore.level().name(),
+            riskScore.reasonCodes()
+        );
+    }
+    
+    private static RiskScoreResponse toResponse(RiskScore riskScore, DecisionTraceResponse trace) {
+        return new RiskScoreResponse(
+            riskScore.transactionId(),
+            riskScore.score(),
+            riskScore.level().name(),
+            riskScore.reasonCodes(),
+            trace
+        );
+    }
+    
+    private static DecisionTraceResponse toTraceResponse(DecisionTrace trace) {
+        List<DecisionTraceResponse.RuleTraceResponse> rules = new ArrayList<>(trace.rules().size());
+        for (RuleTrace rule : trace.rules()) {
+            rules.add(new DecisionTraceResponse.RuleTraceResponse(
+                rule.reasonCode(),
+                rule.enabled(),
+                rule.triggered(),
+                rule.fallback(),
+                rule.weight(),
+                rule.nanos(),
+                rule.inputs()
+            ));
+        }
+        return new DecisionTraceResponse(trace.configVersion(), trace.score(), trace.replay(), trace.nanos(), rules);
+    }
+    
+    /**
+     * 503 for a shed request, telling the client to retry after a second.
+     */
+    private static final class OverloadedException extends ResponseStatusException {
+        
+        private static final HttpHeaders HEADERS = HttpHeaders.readOnlyHttpHeaders(headers());
+        
+        OverloadedException(AdaptiveConcurrencyLimiter.Priority priority) {
+            super(HttpStatus.SERVICE_UNAVAILABLE, "Scoring is at capacity; " + priority.name().toLowerCase()
+                + "-value payments are being shed");
+        }
+        
+        private static HttpHeaders headers() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "1");
+            return headers;
+        }
+        
+        @Override
+        public HttpHeaders getHeaders() {
+            return HEADERS;
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package com.goldmansachs.txb.api.controller;
+
+import com.goldmansachs.txb.domain.config.RuleConfiguration;
+import com.goldmansachs.txb.domain.config.RuleConfigurationStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Admin API for the hot-reloadable rule configuration.
+ *
+ * - GET returns the active configuration and its version
+ * - PUT activates a new version from a properties document in the same format as
+ *   {@code txb.risk.rule-config.file}; keys not set keep their application.yml values
+ *
+ * A rejected document leaves the active configuration unchanged.
+ *
+ * The endpoint has no authentication of its own and is served on the public port, so it
+ * only exists with {@code txb.risk.rule-config.admin-endpoint.enabled=true}, for
+ * deployments that restrict /v1/admin at the network edge. Otherwise configuration is
+ * changed through {@code txb.risk.rule-config.file}.
+ */
+@RestController
+@ConditionalOnProperty(name = "txb.risk.rule-config.admin-endpoint.enabled", havingValue = "true")
+@RequestMapping("/v1/admin/rule-config")
+public class RuleConfigurationController {
+    
+    private static final Logger log = LoggerFactory.getLogger(RuleConfigurationController.class);
+    
+    private final RuleConfigurationStore configurationStore;
+    
+    public RuleConfigurationController(RuleConfigurationStore configurationStore) {
+        this.configurationStore = configurationStore;
+    }
+    
+    @GetMapping
+    public ResponseEntity<RuleConfiguration> getConfiguration() {
+        return ResponseEntity.ok(configurationStore.current());
+    }
+    
+    @PutMapping(consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<RuleConfiguration> updateConfiguration(@RequestBody String properties) {
+        try {
+            return ResponseEntity.ok(configurationStore.apply(properties, "admin endpoint"));
+        } catch (IllegalArgumentException ex) {
+            log.warn("Rejected rule configuration from admin endpoint: {}", ex.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (IllegalStateException ex) {
+            log.warn("Rejected rule configuration from admin endpoint: {}", ex.getMessage());
+            throw new ResponseStatusException(HttpStatus.CONFLICT, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.goldmansachs.txb.api.dto;
+
+import java.util.List;
+
+/**
+ * Outcome for a single item of a batch scoring request.
+ * Exactly one of {@code result} and {@code errors} is populated.
+ */
+public record BatchItemResult(
+    int index,
+    String transactionId,
+    RiskScoreResponse result,
+    List<String> errors
+) {
+    public static BatchItemResult scored(int index, RiskScoreResponse result) {
+        return new BatchItemResult(index, result.transactionId(), result, List.of());
+    }
+    
+    public static BatchItemResult rejected(int index, String transactionId, List<String> errors) {
+        return new BatchItemResult(index, transactionId, null, errors);
+    }
+}
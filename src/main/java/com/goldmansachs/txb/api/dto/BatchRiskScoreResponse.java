@@ -0,0 +1,14 @@
+package com.goldmansachs.txb.api.dto;
+
+import java.util.List;
+
+/**
+ * Response DTO for batch risk score calculation.
+ * Results are returned in request order; rejected items carry their validation errors.
+ */
+public record BatchRiskScoreResponse(
+    int total,
+    int scored,
+    int rejected,
+    List<BatchItemResult> results
+) {}
@@ -0,0 +1,29 @@
+package com.goldmansachs.txb.api.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decision trace returned in explain mode: every rule in evaluation order, with its
+ * signal, the inputs it compared and its timing in nanoseconds.
+ * {@code replay} is true when the returned score was computed by an earlier request; the
+ * trace is then rebuilt from the recorded result and lists only the rules that triggered,
+ * without weights, timings or inputs.
+ */
+public record DecisionTraceResponse(
+    String configVersion,
+    int evaluatedScore,
+    boolean replay,
+    long totalNanos,
+    List<RuleTraceResponse> rules
+) {
+    public record RuleTraceResponse(
+        String reasonCode,
+        boolean enabled,
+        boolean triggered,
+        boolean fallback,
+        int weight,
+        long nanos,
+        Map<String, Object> inputs
+    ) {}
+}
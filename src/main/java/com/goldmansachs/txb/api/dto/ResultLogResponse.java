@@ -0,0 +1,16 @@
+package com.goldmansachs.txb.api.dto;
+
+import com.goldmansachs.txb.infrastructure.resultlog.ResultLogEntry;
+
+import java.util.List;
+
+/**
+ * Response DTO for a read of the result log.
+ * {@code nextOffset} is the offset to pass on the next read; {@code startOffset} is the
+ * oldest offset still retained.
+ */
+public record ResultLogResponse(
+    long startOffset,
+    long nextOffset,
+    List<ResultLogEntry> entries
+) {}
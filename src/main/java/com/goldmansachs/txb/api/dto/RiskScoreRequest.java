@@ -25,6 +25,7 @@ public record RiskScoreRequest(
     
     @NotBlank(message = "Currency is required")
     @Size(min = 3, max = 3, message = "Currency must be a 3-letter ISO code")
+    @Pattern(regexp = "[A-Za-z]*", message = "Currency must be a 3-letter ISO code")
     String currency,
     
     @NotNull(message = "Transaction time is required")
@@ -32,5 +33,6 @@ public record RiskScoreRequest(
     
     @NotBlank(message = "Country is required")
     @Size(min = 2, max = 2, message = "Country must be a 2-letter ISO code")
+    @Pattern(regexp = "[A-Za-z]*", message = "Country must be a 2-letter ISO code")
     String country
 ) {}
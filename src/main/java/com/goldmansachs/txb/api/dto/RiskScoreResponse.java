@@ -1,14 +1,23 @@
 package com.goldmansachs.txb.api.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 /**
  * Response DTO for risk score calculation.
  * Contains the transaction ID, numeric score, risk level, and reason codes.
+ * {@code trace} is only present when explain mode was requested.
  */
 public record RiskScoreResponse(
     String transactionId,
     int riskScore,
     String riskLevel,
-    List<String> reasonCodes
-) {}
+    List<String> reasonCodes,
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    DecisionTraceResponse trace
+) {
+    public RiskScoreResponse(String transactionId, int riskScore, String riskLevel, List<String> reasonCodes) {
+        this(transactionId, riskScore, riskLevel, reasonCodes, null);
+    }
+}
@@ -0,0 +1,162 @@
+package com.goldmansachs.txb.backtest;
+
+import ch.qos.logback.classic.Level;
+import com.goldmansachs.txb.domain.model.CurrencyCode;
+import com.goldmansachs.txb.domain.model.RiskScore;
+import com.goldmansachs.txb.engine.RiskScoringEngine;
+import com.goldmansachs.txb.infrastructure.fx.FxRateStore;
+import com.goldmansachs.txb.infrastructure.fx.FxRateTable;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Offline backtest: replays a transaction file through the scoring engine under a baseline
+ * and a candidate configuration and reports how many transactions change risk level.
+ * 
+ * Runs entirely on one machine without Spring, Postgres or the REST API. The transaction
+ * file is memory-mapped and scored in parallel chunks on a fork-join pool; history comes
+ * from a local CSV snapshot. Audit, metrics export and per-rule logging are not involved.
+ * 
+ * Usage:
+ * <pre>
+ * java -jar app.jar backtest \
+ *     --transactions transactions.csv \
+ *     --history history.csv \
+ *     --baseline current.properties \
+ *     --candidate proposed.properties \
+ *     [--changes changes.csv] [--parallelism N] [--chunk-size-mb 64] \
+ *     [--fx-rates rates.properties] [--base-currency USD]
+ * </pre>
+ * 
+ * {@code --fx-rates} takes the same {@code CURRENCY=rate} file as {@code txb.risk.fx.rates-file};
+ * without it, amounts are compared in their own currency.
+ */
+public final class BacktestCommand {
+    
+    private static final String USAGE = "Usage: backtest --transactions <csv> --history <csv> "
+        + "--baseline <properties> --candidate <properties> "
+        + "[--changes <csv>] [--parallelism <threads>] [--chunk-size-mb <mb>] "
+        + "[--fx-rates <properties>] [--base-currency <code>]";
+    
+    private BacktestCommand() {
+    }
+    
+    public static void run(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        Path transactionsFile = requiredPath(options, "transactions");
+        Path historyFile = requiredPath(options, "history");
+        ScoringConfiguration baselineConfig = ScoringConfiguration.load(requiredPath(options, "baseline"));
+        ScoringConfiguration candidateConfig = ScoringConfiguration.load(requiredPath(options, "candidate"));
+        int parallelism = Integer.parseInt(options.getOrDefault("parallelism",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long chunkSize = Long.parseLong(options.getOrDefault("chunk-size-mb", "64")) * 1024 * 1024;
+        short baseCurrency = CurrencyCode.parse(options.getOrDefault("base-currency", "USD"));
+        FxRateStore fxRates = new FxRateStore(options.containsKey("fx-rates")
+            ? FxRateStore.loadFile(Path.of(options.get("fx-rates")), baseCurrency)
+            : FxRateTable.unconverted(baseCurrency));
+        
+        // Rule-level INFO logging would emit one line per triggered rule per row
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.goldmansachs.txb")).setLevel(Level.WARN);
+        
+        PrintStream out = System.out;
+        long started = System.nanoTime();
+        HistorySnapshot history = HistorySnapshot.load(historyFile);
+        out.printf("Loaded %,d history pairs from %s%n", history.size(), historyFile);
+        
+        RiskScoringEngine baseline = baselineConfig.createEngine(history, fxRates);
+        RiskScoringEngine candidate = candidateConfig.createEngine(history, fxRates);
+        
+        BacktestResult result;
+        Path changesFile = options.containsKey("changes") ? Path.of(options.get("changes")) : null;
+        try (FileChannel channel = FileChannel.open(transactionsFile, StandardOpenOption.READ);
+             Writer changeWriter = changesFile == null ? null : openChangeWriter(changesFile)) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                result = pool.invoke(new BacktestTask(channel, 0, channel.size(), chunkSize,
+                    baseline, candidate, changeWriter));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        
+        printReport(out, baselineConfig, candidateConfig, result, System.nanoTime() - started);
+        if (changesFile != null) {
+            out.printf("Level changes written to %s%n", changesFile);
+        }
+    }
+    
+    private static Writer openChangeWriter(Path file) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writer.write("transaction_id,baseline_score,baseline_level,candidate_score,candidate_level,"
+            + "baseline_reasons,candidate_reasons\n");
+        return writer;
+    }
+    
+    private static void printReport(PrintStream out, ScoringConfiguration baselineConfig,
+                                    ScoringConfiguration candidateConfig, BacktestResult result, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        out.println();
+        out.printf("Backtest: %s [%s] (baseline) vs %s [%s] (candidate)%n", baselineConfig.name(), baselineConfig.rules().version(),
+            candidateConfig.name(), candidateConfig.rules().version());
+        out.printf("Rows scored: %,d  rejected: %,d  elapsed: %.1fs  (%,.0f rows/s)%n",
+            result.rows, result.rejectedRows, seconds, result.rows / Math.max(seconds, 1e-9));
+        out.printf("Level changes: %,d (%.4f%%)  score changes: %,d%n",
+            result.levelChanges(), percent(result.levelChanges(), result.rows), result.scoreChanges);
+        out.printf("Mean score: %.2f -> %.2f%n",
+            mean(result.baselineScoreSum, result.rows), mean(result.candidateScoreSum, result.rows));
+        
+        RiskScore.RiskLevel[] levels = RiskScore.RiskLevel.values();
+        out.println();
+        out.printf("%-20s", "baseline \\ candidate");
+        for (RiskScore.RiskLevel level : levels) {
+            out.printf("%15s", level);
+        }
+        out.println();
+        for (RiskScore.RiskLevel from : levels) {
+            out.printf("%-20s", from);
+            for (RiskScore.RiskLevel to : levels) {
+                out.printf("%,15d", result.transitions[from.ordinal()][to.ordinal()]);
+            }
+            out.println();
+        }
+    }
+    
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+    
+    private static double mean(long sum, long count) {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Unexpected argument '" + args[i] + "'. " + USAGE);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+    
+    private static Path requiredPath(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing --" + name + ". " + USAGE);
+        }
+        return Path.of(value);
+    }
+}
@@ -0,0 +1,56 @@
+package com.goldmansachs.txb.backtest;
+
+import com.goldmansachs.txb.domain.model.RiskScore;
+
+/**
+ * Mutable accumulator for one chunk of a backtest, merged up the fork-join tree.
+ * Kept to primitive counters so merging and per-row updates do not allocate.
+ */
+final class BacktestResult {
+    
+    private static final int LEVELS = RiskScore.RiskLevel.values().length;
+    
+    /** transitions[baseline][candidate] = number of rows */
+    final long[][] transitions = new long[LEVELS][LEVELS];
+    long rows;
+    long rejectedRows;
+    long scoreChanges;
+    long baselineScoreSum;
+    long candidateScoreSum;
+    
+    void record(RiskScore baseline, RiskScore candidate) {
+        rows++;
+        transitions[baseline.level().ordinal()][candidate.level().ordinal()]++;
+        baselineScoreSum += baseline.score();
+        candidateScoreSum += candidate.score();
+        if (baseline.score() != candidate.score()) {
+            scoreChanges++;
+        }
+    }
+    
+    BacktestResult merge(BacktestResult other) {
+        for (int from = 0; from < LEVELS; from++) {
+            for (int to = 0; to < LEVELS; to++) {
+                transitions[from][to] += other.transitions[from][to];
+            }
+        }
+        rows += other.rows;
+        rejectedRows += other.rejectedRows;
+        scoreChanges += other.scoreChanges;
+        baselineScoreSum += other.baselineScoreSum;
+        candidateScoreSum += other.candidateScoreSum;
+        return this;
+    }
+    
+    long levelChanges() {
+        long changes = 0;
+        for (int from = 0; from < LEVELS; from++) {
+            for (int to = 0; to < LEVELS; to++) {
+                if (from != to) {
+                    changes += transitions[from][to];
+                }
+            }
+        }
+        return changes;
+    }
+}
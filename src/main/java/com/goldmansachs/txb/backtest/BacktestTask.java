@@ -0,0 +1,124 @@
+package com.goldmansachs.txb.backtest;
+
+import com.goldmansachs.txb.domain.model.CountryCode;
+import com.goldmansachs.txb.domain.model.CurrencyCode;
+import com.goldmansachs.txb.domain.model.RiskScore;
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.RiskScoringEngine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.time.OffsetDateTime;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scores a byte range of the transaction file under both configurations.
+ * 
+ * Ranges are split in half until they are at most {@code chunkSize} bytes, then each leaf
+ * maps its range and scores the lines that start in it. Work stealing in the common
+ * fork-join pool keeps all cores busy even when some chunks are slower than others.
+ * 
+ * Expected columns (header optional):
+ * {@code transaction_id,client_id,beneficiary_id,amount,currency,transaction_time,country}.
+ * Fields must not contain commas; quoting is not supported. Rows that cannot be parsed
+ * are counted as rejected and skipped.
+ */
+final class BacktestTask extends RecursiveTask<BacktestResult> {
+    
+    private static final int FIELDS = 7;
+    
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private final long chunkSize;
+    private final RiskScoringEngine baseline;
+    private final RiskScoringEngine candidate;
+    private final Writer changeWriter;
+    
+    BacktestTask(FileChannel channel, long start, long end, long chunkSize,
+                 RiskScoringEngine baseline, RiskScoringEngine candidate, Writer changeWriter) {
+        this.channel = channel;
+        this.start = start;
+        this.end = end;
+        this.chunkSize = chunkSize;
+        this.baseline = baseline;
+        this.candidate = candidate;
+        this.changeWriter = changeWriter;
+    }
+    
+    @Override
+    protected BacktestResult compute() {
+        if (end - start > chunkSize) {
+            long middle = start + (end - start) / 2;
+            BacktestTask left = new BacktestTask(channel, start, middle, chunkSize, baseline, candidate, changeWriter);
+            BacktestTask right = new BacktestTask(channel, middle, end, chunkSize, baseline, candidate, changeWriter);
+            left.fork();
+            BacktestResult rightResult = right.compute();
+            return left.join().merge(rightResult);
+        }
+        try {
+            return scoreRange();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read range [" + start + ", " + end + ")", ex);
+        }
+    }
+    
+    private BacktestResult scoreRange() throws IOException {
+        BacktestResult result = new BacktestResult();
+        StringBuilder changes = changeWriter == null ? null : new StringBuilder();
+        MappedLineReader reader = new MappedLineReader(channel, start, end);
+        
+        String line;
+        while ((line = reader.nextLine()) != null) {
+            if (line.isBlank() || line.startsWith("transaction_id")) {
+                continue;
+            }
+            Transaction transaction = parse(line);
+            if (transaction == null) {
+                result.rejectedRows++;
+                continue;
+            }
+            RiskScore baselineScore = baseline.calculateScore(transaction);
+            RiskScore candidateScore = candidate.calculateScore(transaction);
+            result.record(baselineScore, candidateScore);
+            
+            if (changes != null && baselineScore.level() != candidateScore.level()) {
+                changes.append(transaction.transactionId()).append(',')
+                    .append(baselineScore.score()).append(',').append(baselineScore.level()).append(',')
+                    .append(candidateScore.score()).append(',').append(candidateScore.level()).append(',')
+                    .append(String.join("|", baselineScore.reasonCodes())).append(',')
+                    .append(String.join("|", candidateScore.reasonCodes())).append('\n');
+            }
+        }
+        
+        if (changes != null && !changes.isEmpty()) {
+            synchronized (changeWriter) {
+                changeWriter.append(changes);
+            }
+        }
+        return result;
+    }
+    
+    private static Transaction parse(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != FIELDS) {
+            return null;
+        }
+        try {
+            return new Transaction(
+                fields[0],
+                fields[1],
+                fields[2],
+                new BigDecimal(fields[3]),
+                CurrencyCode.parse(fields[4]),
+                OffsetDateTime.parse(fields[5]),
+                CountryCode.parse(fields[6])
+            );
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+}
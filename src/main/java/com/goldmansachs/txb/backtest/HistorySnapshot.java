@@ -0,0 +1,83 @@
+package com.goldmansachs.txb.backtest;
+
+import com.goldmansachs.txb.infrastructure.repository.HistoryKey;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryEntity;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryLookup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-only transaction history loaded from a local CSV export, so backtests never touch
+ * Postgres. The expected format is what
+ * {@code \copy transaction_history (client_id, beneficiary_id, avg_amount, last_seen) TO 'history.csv' CSV HEADER}
+ * produces.
+ */
+final class HistorySnapshot implements TransactionHistoryLookup {
+    
+    /** Accepts both ISO-8601 and the psql export format ({@code 2024-01-01 00:00:00.123+00}) */
+    private static final DateTimeFormatter LAST_SEEN_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd['T'][' ']HH:mm:ss[.SSSSSS][.SSS][XXX][X]");
+    
+    private final Map<HistoryKey, Optional<TransactionHistoryEntity>> histories;
+    
+    private HistorySnapshot(Map<HistoryKey, Optional<TransactionHistoryEntity>> histories) {
+        this.histories = histories;
+    }
+    
+    static HistorySnapshot load(Path file) throws IOException {
+        Map<HistoryKey, Optional<TransactionHistoryEntity>> histories = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedLineReader reader = new MappedLineReader(channel, 0, channel.size());
+            String line;
+            while ((line = reader.nextLine()) != null) {
+                if (line.isBlank() || line.startsWith("client_id")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length < 2) {
+                    throw new IllegalArgumentException("Malformed history line: " + line);
+                }
+                TransactionHistoryEntity entity = TransactionHistoryEntity.builder()
+                    .clientId(fields[0])
+                    .beneficiaryId(fields[1])
+                    .avgAmount(fields.length > 2 && !fields[2].isEmpty() ? new BigDecimal(fields[2]) : null)
+                    .lastSeen(fields.length > 3 ? parseLastSeen(fields[3]) : null)
+                    .build();
+                histories.put(new HistoryKey(entity.getClientId(), entity.getBeneficiaryId()), Optional.of(entity));
+            }
+        }
+        return new HistorySnapshot(histories);
+    }
+    
+    int size() {
+        return histories.size();
+    }
+    
+    @Override
+    public Optional<TransactionHistoryEntity> findHistory(String clientId, String beneficiaryId) {
+        return histories.getOrDefault(new HistoryKey(clientId, beneficiaryId), Optional.empty());
+    }
+    
+    private static Instant parseLastSeen(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value, LAST_SEEN_FORMAT).toInstant();
+        } catch (DateTimeParseException ex) {
+            // last_seen is informational for the current rules; an odd format should not abort a backtest
+            return null;
+        }
+    }
+}
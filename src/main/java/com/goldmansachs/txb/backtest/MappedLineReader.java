@@ -0,0 +1,77 @@
+package com.goldmansachs.txb.backtest;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the lines that start inside a byte range of a memory-mapped file.
+ * 
+ * A line belongs to the range it starts in, so adjacent ranges can be processed
+ * independently without coordinating on boundaries: each reader skips the partial line
+ * at its start (owned by the previous range) and reads past its end to finish its last
+ * line. Only the range itself plus {@link #MAX_LINE_LENGTH} bytes is mapped, which keeps
+ * each mapping well under the 2 GB limit of a single MappedByteBuffer.
+ */
+final class MappedLineReader {
+    
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+    
+    private final MappedByteBuffer buffer;
+    private final long bufferStart;
+    private final long end;
+    private final byte[] lineBytes = new byte[MAX_LINE_LENGTH];
+    private int position;
+    
+    /**
+     * @param channel The open file
+     * @param start First byte of the range (inclusive)
+     * @param end Last byte of the range (exclusive)
+     */
+    MappedLineReader(FileChannel channel, long start, long end) throws IOException {
+        // Map one byte before the range to tell whether a line starts exactly at `start`
+        this.bufferStart = start == 0 ? 0 : start - 1;
+        long mapEnd = Math.min(channel.size(), end + MAX_LINE_LENGTH);
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, bufferStart, mapEnd - bufferStart);
+        this.end = end;
+        if (start > 0) {
+            // Skip to the first line that starts at or after `start`
+            while (position < buffer.limit() && buffer.get(position++) != '\n') {
+                // scanning
+            }
+        }
+    }
+    
+    /**
+     * @return The next line (without line terminator), or null once the range is exhausted
+     */
+    String nextLine() {
+        if (bufferStart + position >= end || position >= buffer.limit()) {
+            return null;
+        }
+        int length = 0;
+        while (position < buffer.limit()) {
+            byte b = buffer.get(position++);
+            if (b == '\n') {
+                break;
+            }
+            if (length == MAX_LINE_LENGTH) {
+                throw new IllegalStateException("Line longer than " + MAX_LINE_LENGTH
+                    + " bytes at offset " + (bufferStart + position));
+            }
+            lineBytes[length++] = b;
+        }
+        if (length > 0 && lineBytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * @return The file offset of the next line to be read
+     */
+    long offset() {
+        return bufferStart + position;
+    }
+}
@@ -0,0 +1,71 @@
+package com.goldmansachs.txb.backtest;
+
+import com.goldmansachs.txb.domain.config.RuleConfiguration;
+import com.goldmansachs.txb.domain.config.RuleConfigurationStore;
+import com.goldmansachs.txb.engine.RiskRule;
+import com.goldmansachs.txb.engine.RiskScoringEngine;
+import com.goldmansachs.txb.engine.RuleExecutionMode;
+import com.goldmansachs.txb.engine.rules.HighRiskCountryRule;
+import com.goldmansachs.txb.engine.rules.HighValueTransactionRule;
+import com.goldmansachs.txb.engine.rules.NewBeneficiaryRule;
+import com.goldmansachs.txb.engine.rules.UnusualTimeOfDayRule;
+import com.goldmansachs.txb.infrastructure.fx.FxRateStore;
+import com.goldmansachs.txb.infrastructure.repository.KnownPairFilter;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryLookup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * One side of a backtest: the rule and threshold settings to score with.
+ * 
+ * Loaded from a properties file in the same format the running service hot-reloads
+ * (see {@link RuleConfiguration}), so a proposed change can be backtested exactly as
+ * it would be deployed:
+ * <pre>
+ * txb.risk.high-risk-countries=IR,KP,SY,CU,VE,RU
+ * txb.risk.risk-threshold-medium=200
+ * txb.risk.rules.HIGH_RISK_COUNTRY.weight=300
+ * </pre>
+ * Keys that are not set fall back to the same defaults as the running service.
+ */
+record ScoringConfiguration(
+    String name,
+    RuleConfiguration rules
+) {
+    static ScoringConfiguration load(Path file) {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read scoring configuration " + file, ex);
+        }
+        return new ScoringConfiguration(
+            file.getFileName().toString(),
+            RuleConfiguration.fromProperties(properties, RuleConfiguration.defaults())
+        );
+    }
+    
+    /**
+     * Builds a standalone engine for this configuration. Rules are constructed directly,
+     * without Spring or circuit breakers, since history is served from a local snapshot.
+     */
+    RiskScoringEngine createEngine(TransactionHistoryLookup history, FxRateStore fxRates) {
+        List<RiskRule> ruleList = List.of(
+            new HighRiskCountryRule(),
+            new HighValueTransactionRule(fxRates),
+            new NewBeneficiaryRule(KnownPairFilter.NONE),
+            new UnusualTimeOfDayRule()
+        );
+        rules.requireKnownRules(ruleList.stream().map(RiskRule::reasonCode).toList());
+        return new RiskScoringEngine(ruleList, new RuleConfigurationStore(rules), history, new SimpleMeterRegistry(),
+            RuleExecutionMode.SEQUENTIAL, Duration.ofSeconds(1));
+    }
+}
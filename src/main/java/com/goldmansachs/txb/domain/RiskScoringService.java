@@ -2,20 +2,37 @@ package com.goldmansachs.txb.domain;
 
 import com.goldmansachs.txb.domain.model.RiskScore;
 import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.DecisionTrace;
+import com.goldmansachs.txb.engine.ExplainedScore;
 import com.goldmansachs.txb.engine.RiskScoringEngine;
 import com.goldmansachs.txb.infrastructure.audit.AuditService;
+import com.goldmansachs.txb.infrastructure.cache.RiskScoreResultCache;
+import com.goldmansachs.txb.infrastructure.logging.DecisionEventLog;
+import com.goldmansachs.txb.infrastructure.profile.TransactionProfileUpdater;
+import com.goldmansachs.txb.infrastructure.resultlog.ResultLog;
+import com.goldmansachs.txb.infrastructure.velocity.VelocityWindowStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Domain service that orchestrates the risk scoring process.
  * This service coordinates between the scoring engine and the audit service.
  * 
  * Responsibilities:
- * 1. Invoke the risk scoring engine
- * 2. Persist the result to the audit trail
- * 3. Return the risk score to the caller
+ * 1. Answer repeated transaction IDs with their original result (see {@link RiskScoreResultCache})
+ * 2. Invoke the risk scoring engine
+ * 3. Persist the result to the audit trail
+ * 4. Fold the transaction into its client/beneficiary profile and velocity windows
+ * 5. Append the result to the {@link ResultLog} for downstream consumers
+ * 6. Hand a sample of decisions to the {@link DecisionEventLog}
+ * 7. Return the risk score to the caller
+ * 
+ * Per-transaction logging is at DEBUG; the audit trail, not the text log, is the record
+ * of each decision.
  * 
  * Note: Circuit breaker is applied at the rule level (not here) to allow
  * granular control over which dependencies are failing.
@@ -27,27 +44,147 @@ public class RiskScoringService {
     
     private final RiskScoringEngine engine;
     private final AuditService auditService;
+    private final TransactionProfileUpdater profileUpdater;
+    private final VelocityWindowStore velocityStore;
+    private final RiskScoreResultCache resultCache;
+    private final DecisionEventLog decisionLog;
+    private final ResultLog resultLog;
     
-    public RiskScoringService(RiskScoringEngine engine, AuditService auditService) {
+    public RiskScoringService(RiskScoringEngine engine, AuditService auditService,
+                              TransactionProfileUpdater profileUpdater, VelocityWindowStore velocityStore,
+                              RiskScoreResultCache resultCache, DecisionEventLog decisionLog,
+                              ResultLog resultLog) {
         this.engine = engine;
         this.auditService = auditService;
+        this.profileUpdater = profileUpdater;
+        this.velocityStore = velocityStore;
+        this.resultCache = resultCache;
+        this.decisionLog = decisionLog;
+        this.resultLog = resultLog;
     }
     
     /**
      * Calculates the risk score for a transaction and audits the result.
+     * A transaction ID that has already been scored gets its original result, without
+     * being scored, audited or counted again.
      * 
      * @param transaction The transaction to score
      * @return The calculated risk score
      */
     public RiskScore calculateRiskScore(Transaction transaction) {
-        log.info("Scoring transaction {}", transaction.transactionId());
-        
+        return calculateRiskScore(transaction, false);
+    }
+    
+    /**
+     * Like {@link #calculateRiskScore(Transaction)}, optionally in degraded mode, which
+     * skips the I/O-bound rules (see {@link RiskScoringEngine#calculateScore(Transaction, boolean)}).
+     * A degraded result is audited and answers later repeats of the transaction ID like any other.
+     * Degraded mode also keeps the idempotency check and the profile update off the
+     * database, serving them from memory only.
+     * 
+     * @param transaction The transaction to score
+     * @param degraded Whether to skip the I/O-bound rules
+     * @return The calculated risk score
+     */
+    public RiskScore calculateRiskScore(Transaction transaction, boolean degraded) {
+        log.debug("Scoring transaction {} (degraded={})", transaction.transactionId(), degraded);
+        return resultCache.getOrCompute(transaction, degraded, () -> scoreAndRecord(transaction, degraded));
+    }
+    
+    /**
+     * Like {@link #calculateRiskScore}, but also returns the decision trace.
+     * 
+     * If the transaction ID has already been scored, the original result is returned as
+     * usual with a trace rebuilt from it (marked as a replay); no rule is evaluated again,
+     * so explaining a known ID costs no more than repeating it.
+     * 
+     * @param transaction The transaction to score
+     * @return The risk score and its decision trace
+     */
+    public ExplainedScore explainRiskScore(Transaction transaction) {
+        return explainRiskScore(transaction, false);
+    }
+    
+    /**
+     * Like {@link #explainRiskScore(Transaction)}, optionally in degraded mode as for
+     * {@link #calculateRiskScore(Transaction, boolean)}; the skipped rules are marked in the trace.
+     * 
+     * @param transaction The transaction to score
+     * @param degraded Whether to skip the I/O-bound rules
+     * @return The risk score and its decision trace
+     */
+    public ExplainedScore explainRiskScore(Transaction transaction, boolean degraded) {
+        log.debug("Scoring transaction {} with decision trace (degraded={})", transaction.transactionId(), degraded);
+        AtomicReference<DecisionTrace> computedTrace = new AtomicReference<>();
+        RiskScore riskScore = resultCache.getOrCompute(transaction, degraded, () -> {
+            ExplainedScore explained = engine.explainScore(transaction, degraded);
+            computedTrace.set(explained.trace());
+            record(transaction, explained.riskScore(), explained.trace().nanos(), degraded);
+            return explained.riskScore();
+        });
+        DecisionTrace trace = computedTrace.get();
+        if (trace == null) {
+            trace = DecisionTrace.replayOf(riskScore);
+        }
+        return new ExplainedScore(riskScore, trace);
+    }
+    
+    private RiskScore scoreAndRecord(Transaction transaction, boolean degraded) {
         // Calculate risk score
-        RiskScore riskScore = engine.calculateScore(transaction);
-        
+        long startNanos = System.nanoTime();
+        RiskScore riskScore = engine.calculateScore(transaction, degraded);
+        record(transaction, riskScore, System.nanoTime() - startNanos, degraded);
+        return riskScore;
+    }
+    
+    private void record(Transaction transaction, RiskScore riskScore, long elapsedNanos, boolean degraded) {
         // Audit the result
         auditService.auditRiskScore(riskScore);
+        resultLog.append(riskScore);
         
-        return riskScore;
+        // Update the pair's profile only after scoring, so a transaction is never scored against itself
+        profileUpdater.record(transaction, degraded);
+        velocityStore.record(transaction);
+        decisionLog.record(riskScore, elapsedNanos);
+    }
+    
+    /**
+     * Calculates risk scores for a batch of transactions and audits all results together.
+     * Transaction IDs already scored, or repeated within the batch, are scored only once.
+     * 
+     * @param transactions The transactions to score
+     * @return The calculated risk scores, in input order
+     */
+    public List<RiskScore> calculateRiskScores(List<Transaction> transactions) {
+        return calculateRiskScores(transactions, false);
+    }
+    
+    /**
+     * Like {@link #calculateRiskScores(List)}, optionally in degraded mode as for
+     * {@link #calculateRiskScore(Transaction, boolean)}.
+     * 
+     * @param transactions The transactions to score
+     * @param degraded Whether to skip the I/O-bound rules
+     * @return The calculated risk scores, in input order
+     */
+    public List<RiskScore> calculateRiskScores(List<Transaction> transactions, boolean degraded) {
+        log.debug("Scoring batch of {} transactions (degraded={})", transactions.size(), degraded);
+        return resultCache.getOrComputeAll(transactions, degraded, batch -> scoreAndRecordAll(batch, degraded));
+    }
+    
+    private List<RiskScore> scoreAndRecordAll(List<Transaction> transactions, boolean degraded) {
+        long startNanos = System.nanoTime();
+        // Each item is counted before the next is scored, so a burst within the batch shows in its own velocity
+        List<RiskScore> riskScores = engine.calculateScores(transactions, degraded, velocityStore::record);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        auditService.auditRiskScores(riskScores);
+        resultLog.appendAll(riskScores);
+        profileUpdater.recordAll(transactions, degraded);
+        // Batch items are scored together, so each is logged with the batch's average time
+        for (RiskScore riskScore : riskScores) {
+            decisionLog.record(riskScore, elapsedNanos / riskScores.size());
+        }
+        
+        return riskScores;
     }
 }
@@ -0,0 +1,154 @@
+package com.goldmansachs.txb.domain.config;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.goldmansachs.txb.domain.model.CountryCode;
+import com.goldmansachs.txb.domain.model.CountrySet;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Business hours of the regional desks, precomputed as epoch-second intervals so that
+ * "is this instant business time for this country?" is one array read and one binary
+ * search over a {@code long[]}, with no time-zone conversion or allocation.
+ *
+ * Each transaction country is served by at most one regional desk; countries not
+ * assigned to one use the default desk. For each desk the local days from January 1st
+ * two years back to January 1st two years ahead are laid out as sorted boundaries,
+ * alternating open and close, covering DST transitions, weekends and holidays. Instants
+ * outside that range fall back to converting through the zone rules, which gives the
+ * same answer more slowly.
+ *
+ * Two calendars are equal if their desks are, whenever their ranges were computed.
+ */
+public final class BusinessCalendar {
+    
+    /** Years precomputed either side of the current one. */
+    static final int HORIZON_YEARS = 2;
+    
+    private final List<BusinessDesk> desks;
+    /** Index into {@link #desks} per dense country code; 0 is the default desk. */
+    private final byte[] deskByCountry;
+    /** Per desk: sorted open/close boundaries, even index = open. */
+    private final long[][] boundaries;
+    /** Per desk: the epoch-second range [start, end) the boundaries cover. */
+    private final long[] horizonStart;
+    private final long[] horizonEnd;
+    
+    private BusinessCalendar(List<BusinessDesk> desks, LocalDate from, LocalDate to) {
+        this.desks = desks;
+        this.deskByCountry = new byte[CountryCode.COUNT];
+        this.boundaries = new long[desks.size()][];
+        this.horizonStart = new long[desks.size()];
+        this.horizonEnd = new long[desks.size()];
+        for (int index = 0; index < desks.size(); index++) {
+            BusinessDesk desk = desks.get(index);
+            for (String alpha2 : desk.countries().toAlpha2List()) {
+                short country = CountryCode.parse(alpha2);
+                if (deskByCountry[country] != 0) {
+                    throw new IllegalArgumentException("Country " + alpha2 + " is assigned to business desks "
+                        + desks.get(deskByCountry[country]).name() + " and " + desk.name());
+                }
+                deskByCountry[country] = (byte) index;
+            }
+            boundaries[index] = desk.boundaries(from, to);
+            horizonStart[index] = from.atStartOfDay(desk.zone()).toEpochSecond();
+            horizonEnd[index] = to.atStartOfDay(desk.zone()).toEpochSecond();
+        }
+    }
+    
+    /**
+     * @param defaultDesk Serves every country not assigned to a regional desk; must have no countries
+     * @throws IllegalArgumentException if desk names repeat or a country is assigned to two desks
+     */
+    public static BusinessCalendar of(BusinessDesk defaultDesk, List<BusinessDesk> regionalDesks) {
+        if (!defaultDesk.isDefault()) {
+            throw new IllegalArgumentException("The default business desk cannot have countries");
+        }
+        List<BusinessDesk> desks = new ArrayList<>(regionalDesks.size() + 1);
+        desks.add(defaultDesk);
+        // Sorted by name, so equal definitions give equal calendars whatever the source order
+        regionalDesks.stream().sorted((a, b) -> a.name().compareTo(b.name())).forEach(desk -> {
+            if (desk.isDefault()) {
+                throw new IllegalArgumentException("Business desk " + desk.name() + " has no countries");
+            }
+            if (desks.stream().anyMatch(existing -> existing.name().equals(desk.name()))) {
+                throw new IllegalArgumentException("Business desk " + desk.name() + " is defined twice");
+            }
+            desks.add(desk);
+        });
+        if (desks.size() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("At most " + (Byte.MAX_VALUE - 1) + " regional business desks are supported");
+        }
+        int year = LocalDate.now(ZoneOffset.UTC).getYear();
+        return new BusinessCalendar(List.copyOf(desks),
+            LocalDate.of(year - HORIZON_YEARS, 1, 1), LocalDate.of(year + HORIZON_YEARS, 1, 1));
+    }
+    
+    /**
+     * A calendar with only a default desk, working weekdays without holidays.
+     */
+    public static BusinessCalendar singleDesk(int startHour, int endHour, ZoneId zone) {
+        return of(new BusinessDesk(BusinessDesk.DEFAULT_NAME, zone, startHour, endHour,
+            EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY), List.of(), CountrySet.of(List.of())), List.of());
+    }
+    
+    /**
+     * @return true if the instant falls in business hours of the desk serving {@code country}
+     */
+    public boolean isBusinessTime(long epochSecond, short country) {
+        int desk = deskByCountry[country];
+        if (epochSecond < horizonStart[desk] || epochSecond >= horizonEnd[desk]) {
+            return desks.get(desk).isBusinessTime(epochSecond);
+        }
+        int index = Arrays.binarySearch(boundaries[desk], epochSecond);
+        // Found: open iff it is an open boundary (even index). Not found: index is -(insertion point) - 1,
+        // and the instant is open iff the boundary before it is an open one (odd insertion point),
+        // so in both cases open iff index is even
+        return (index & 1) == 0;
+    }
+    
+    public BusinessDesk deskFor(short country) {
+        return desks.get(deskByCountry[country]);
+    }
+    
+    public BusinessDesk defaultDesk() {
+        return desks.get(0);
+    }
+    
+    /**
+     * @return The default desk, then the regional desks by name
+     */
+    @JsonValue
+    public List<BusinessDesk> desks() {
+        return desks;
+    }
+    
+    /**
+     * Deterministic form of the desk definitions, for configuration hashes.
+     */
+    String canonical() {
+        return desks.stream().map(BusinessDesk::canonical).toList().toString();
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof BusinessCalendar calendar && desks.equals(calendar.desks);
+    }
+    
+    @Override
+    public int hashCode() {
+        return desks.hashCode();
+    }
+    
+    @Override
+    public String toString() {
+        return desks.toString();
+    }
+}
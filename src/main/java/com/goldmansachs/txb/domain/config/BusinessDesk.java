@@ -0,0 +1,152 @@
+package com.goldmansachs.txb.domain.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.goldmansachs.txb.domain.model.CountrySet;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Business hours of one regional desk: hours {@code [startHour, endHour)} of local time in
+ * {@code zone}, on every day that is neither a weekend day nor a holiday.
+ *
+ * The default desk has no countries and serves every country not assigned to another desk.
+ */
+public record BusinessDesk(
+    String name,
+    ZoneId zone,
+    int startHour,
+    int endHour,
+    Set<DayOfWeek> weekend,
+    List<LocalDate> holidays,
+    CountrySet countries
+) {
+    public static final String DEFAULT_NAME = "default";
+    public static final String DEFAULT_WEEKEND = "SATURDAY,SUNDAY";
+    
+    /**
+     * @throws IllegalArgumentException if the hours are out of range or every day is a weekend day
+     */
+    public BusinessDesk {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Business desk name is required");
+        }
+        if (zone == null) {
+            throw new IllegalArgumentException("Time zone of business desk " + name + " is required");
+        }
+        if (startHour < 0 || startHour >= endHour || endHour > 24) {
+            throw new IllegalArgumentException("Business hours of desk " + name
+                + " must satisfy 0 <= start < end <= 24, got " + startHour + "-" + endHour);
+        }
+        // Held in day order, so the canonical form and JSON are stable
+        weekend = Collections.unmodifiableSet(weekend.isEmpty() ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(weekend));
+        if (weekend.size() == DayOfWeek.values().length) {
+            throw new IllegalArgumentException("Business desk " + name + " has no working days");
+        }
+        holidays = holidays.stream().sorted().distinct().toList();
+        if (countries == null) {
+            throw new IllegalArgumentException("Countries of business desk " + name + " are required");
+        }
+    }
+    
+    /**
+     * @throws IllegalArgumentException if an entry is not a day name such as {@code SATURDAY}
+     */
+    public static Set<DayOfWeek> parseWeekend(String days) {
+        Set<DayOfWeek> weekend = EnumSet.noneOf(DayOfWeek.class);
+        for (String day : split(days)) {
+            try {
+                weekend.add(DayOfWeek.valueOf(day.toUpperCase()));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Invalid weekend day '" + day + "'");
+            }
+        }
+        return weekend;
+    }
+    
+    /**
+     * @throws IllegalArgumentException if an entry is not an ISO date such as {@code 2025-12-25}
+     */
+    public static List<LocalDate> parseHolidays(String dates) {
+        return split(dates).stream().map(date -> {
+            try {
+                return LocalDate.parse(date);
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Invalid holiday '" + date + "'; expected yyyy-MM-dd");
+            }
+        }).toList();
+    }
+    
+    private static List<String> split(String values) {
+        return Arrays.stream(values.split(","))
+            .map(String::trim)
+            .filter(value -> !value.isEmpty())
+            .toList();
+    }
+    
+    @JsonIgnore
+    public boolean isDefault() {
+        return countries.size() == 0;
+    }
+    
+    /**
+     * Answers from the zone rules directly. Used outside the precomputed range of
+     * {@link BusinessCalendar}; the answer is the same as the calendar's.
+     */
+    public boolean isBusinessTime(long epochSecond) {
+        LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone);
+        return local.getHour() >= startHour
+            && local.getHour() < endHour
+            && isWorkingDay(local.toLocalDate());
+    }
+    
+    /**
+     * The business intervals of the local days {@code [from, to)}, as sorted epoch seconds
+     * alternating open, close, open, close... Intervals that touch (e.g. 24-hour desks) are
+     * merged, so every boundary is a real change between business and non-business time.
+     *
+     * Local times are resolved like {@link LocalDateTime#atZone}: a start or end hour that
+     * falls in a DST gap moves forward by the gap, and one that falls in an overlap takes
+     * the earlier offset. Both give the same answer as comparing the local hour.
+     */
+    long[] boundaries(LocalDate from, LocalDate to) {
+        Set<LocalDate> holidaySet = Set.copyOf(holidays);
+        long[] boundaries = new long[2 * (int) (to.toEpochDay() - from.toEpochDay())];
+        int size = 0;
+        for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+            if (weekend.contains(day.getDayOfWeek()) || holidaySet.contains(day)) {
+                continue;
+            }
+            long open = day.atTime(startHour, 0).atZone(zone).toEpochSecond();
+            long close = (endHour == 24 ? day.plusDays(1).atStartOfDay(zone) : day.atTime(endHour, 0).atZone(zone))
+                .toEpochSecond();
+            if (size > 0 && boundaries[size - 1] >= open) {
+                boundaries[size - 1] = Math.max(boundaries[size - 1], close);
+            } else {
+                boundaries[size++] = open;
+                boundaries[size++] = close;
+            }
+        }
+        return Arrays.copyOf(boundaries, size);
+    }
+    
+    private boolean isWorkingDay(LocalDate day) {
+        return !weekend.contains(day.getDayOfWeek()) && Collections.binarySearch(holidays, day) < 0;
+    }
+    
+    /**
+     * Deterministic form of the definition, for configuration hashes.
+     */
+    String canonical() {
+        return name + ":" + startHour + "-" + endHour + "@" + zone.getId()
+            + weekend + holidays + countries.toAlpha2List();
+    }
+}
@@ -0,0 +1,315 @@
+package com.goldmansachs.txb.domain.config;
+
+import com.goldmansachs.txb.domain.model.CountrySet;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * One immutable, versioned set of rule and threshold settings.
+ *
+ * The engine reads the current configuration once per score and hands the same instance
+ * to every rule, so a score is always computed against exactly one version even if a new
+ * one is swapped in mid-flight. The version is recorded with every audit row.
+ *
+ * Configurations are expressed as properties, using the same keys as application.yml:
+ * <pre>
+ * txb.risk.rules.version=2024-06-01.1
+ * txb.risk.high-risk-countries=IR,KP,SY,CU,VE,RU
+ * txb.risk.risk-threshold-medium=200
+ * txb.risk.risk-threshold-high=400
+ * txb.risk.risk-threshold-critical=600
+ * txb.risk.business-hours.start=9
+ * txb.risk.business-hours.end=17
+ * txb.risk.business-hours.zone=America/New_York
+ * txb.risk.business-hours.weekend=SATURDAY,SUNDAY
+ * txb.risk.business-hours.holidays=2025-12-25,2026-01-01
+ * txb.risk.business-hours.desks.EMEA.zone=Europe/London
+ * txb.risk.business-hours.desks.EMEA.countries=GB,DE,FR,CH
+ * txb.risk.business-hours.desks.EMEA.holidays=2025-12-25,2025-12-26
+ * txb.risk.rules.HIGH_RISK_COUNTRY.weight=300
+ * txb.risk.rules.UNUSUAL_TIME_OF_DAY.enabled=false
+ * </pre>
+ * Keys that are not set keep their base value. Rules without a configured weight use
+ * their built-in weight. Without an explicit version, the version is derived from a
+ * hash of the settings, so identical settings always carry the same version.
+ *
+ * The {@code business-hours.*} keys define the default business desk; each
+ * {@code business-hours.desks.<NAME>.*} group (zone, start, end, weekend, holidays,
+ * countries) defines a regional desk serving the listed transaction countries. A desk
+ * given an empty country list is removed.
+ */
+public record RuleConfiguration(
+    String version,
+    Map<String, Integer> weights,
+    Set<String> disabledRules,
+    CountrySet highRiskCountries,
+    int riskThresholdMedium,
+    int riskThresholdHigh,
+    int riskThresholdCritical,
+    BusinessCalendar businessCalendar
+) {
+    private static final String PREFIX = "txb.risk.";
+    private static final String RULE_PREFIX = PREFIX + "rules.";
+    private static final String VERSION_KEY = RULE_PREFIX + "version";
+    private static final String WEIGHT_SUFFIX = ".weight";
+    private static final String ENABLED_SUFFIX = ".enabled";
+    private static final String BUSINESS_HOURS_PREFIX = PREFIX + "business-hours.";
+    private static final String DESK_PREFIX = BUSINESS_HOURS_PREFIX + "desks.";
+    private static final Set<String> DESK_SETTINGS = Set.of("zone", "start", "end", "weekend", "holidays", "countries");
+    private static final Set<String> DEFAULT_DESK_SETTINGS = Set.of("zone", "start", "end", "weekend", "holidays");
+    
+    public static final String DEFAULT_HIGH_RISK_COUNTRIES = "IR,KP,SY,CU,VE";
+    public static final int DEFAULT_BUSINESS_HOURS_START = 9;
+    public static final int DEFAULT_BUSINESS_HOURS_END = 17;
+    public static final String DEFAULT_BUSINESS_TIME_ZONE = "America/New_York";
+    
+    public RuleConfiguration {
+        if (version == null || version.isBlank() || version.length() > 64) {
+            throw new IllegalArgumentException("Rule configuration version must be 1-64 characters");
+        }
+        weights = Map.copyOf(weights);
+        disabledRules = Set.copyOf(disabledRules);
+        if (highRiskCountries == null) {
+            throw new IllegalArgumentException("High-risk countries are required");
+        }
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            if (weight.getValue() < 0) {
+                throw new IllegalArgumentException("Weight of " + weight.getKey() + " must not be negative");
+            }
+        }
+        if (riskThresholdMedium > riskThresholdHigh || riskThresholdHigh > riskThresholdCritical) {
+            throw new IllegalArgumentException("Risk thresholds must satisfy medium <= high <= critical, got "
+                + riskThresholdMedium + "/" + riskThresholdHigh + "/" + riskThresholdCritical);
+        }
+        if (businessCalendar == null) {
+            throw new IllegalArgumentException("Business calendar is required");
+        }
+    }
+    
+    /**
+     * The settings the service uses when nothing is configured.
+     */
+    public static RuleConfiguration defaults() {
+        RiskThresholdConfig thresholds = new RiskThresholdConfig();
+        return new RuleConfiguration("default", Map.of(), Set.of(),
+            parseCountries(DEFAULT_HIGH_RISK_COUNTRIES),
+            thresholds.getRiskThresholdMedium(), thresholds.getRiskThresholdHigh(), thresholds.getRiskThresholdCritical(),
+            BusinessCalendar.singleDesk(DEFAULT_BUSINESS_HOURS_START, DEFAULT_BUSINESS_HOURS_END,
+                ZoneId.of(DEFAULT_BUSINESS_TIME_ZONE)));
+    }
+    
+    /**
+     * Builds a configuration from properties, starting from {@code base} for every key not set.
+     *
+     * @throws IllegalArgumentException if a value is malformed or the result is inconsistent
+     */
+    public static RuleConfiguration fromProperties(Properties properties, RuleConfiguration base) {
+        Map<String, Integer> weights = new HashMap<>(base.weights);
+        Set<String> disabledRules = new HashSet<>(base.disabledRules);
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(RULE_PREFIX) || key.equals(VERSION_KEY)) {
+                continue;
+            }
+            String value = properties.getProperty(key).trim();
+            if (key.endsWith(WEIGHT_SUFFIX)) {
+                weights.put(ruleCode(key, WEIGHT_SUFFIX), parseInt(key, value));
+            } else if (key.endsWith(ENABLED_SUFFIX)) {
+                String reasonCode = ruleCode(key, ENABLED_SUFFIX);
+                if (parseBoolean(key, value)) {
+                    disabledRules.remove(reasonCode);
+                } else {
+                    disabledRules.add(reasonCode);
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown rule setting " + key);
+            }
+        }
+        
+        RuleConfiguration unversioned = new RuleConfiguration(
+            base.version,
+            weights,
+            disabledRules,
+            properties.containsKey(PREFIX + "high-risk-countries")
+                ? parseCountries(properties.getProperty(PREFIX + "high-risk-countries"))
+                : base.highRiskCountries,
+            intProperty(properties, PREFIX + "risk-threshold-medium", base.riskThresholdMedium),
+            intProperty(properties, PREFIX + "risk-threshold-high", base.riskThresholdHigh),
+            intProperty(properties, PREFIX + "risk-threshold-critical", base.riskThresholdCritical),
+            parseBusinessCalendar(properties, base.businessCalendar)
+        );
+        String version = properties.getProperty(VERSION_KEY);
+        return unversioned.withVersion(version != null ? version.trim() : unversioned.contentHash());
+    }
+    
+    /**
+     * @throws IllegalArgumentException if an entry is not a 2-letter country code
+     */
+    public static CountrySet parseCountries(String countries) {
+        return CountrySet.of(Arrays.stream(countries.split(","))
+            .map(String::trim)
+            .filter(country -> !country.isEmpty())
+            .toList());
+    }
+    
+    /**
+     * Builds the business calendar from the {@code business-hours.*} keys, starting from
+     * {@code base} for every desk and setting not set.
+     *
+     * @throws IllegalArgumentException if a setting is unknown or malformed, or desks overlap
+     */
+    static BusinessCalendar parseBusinessCalendar(Properties properties, BusinessCalendar base) {
+        Set<String> deskNames = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(DESK_PREFIX)) {
+                String setting = key.substring(DESK_PREFIX.length());
+                int dot = setting.lastIndexOf('.');
+                if (dot <= 0 || !DESK_SETTINGS.contains(setting.substring(dot + 1))) {
+                    throw new IllegalArgumentException("Unknown business desk setting " + key);
+                }
+                deskNames.add(setting.substring(0, dot));
+            } else if (key.startsWith(BUSINESS_HOURS_PREFIX)
+                    && !DEFAULT_DESK_SETTINGS.contains(key.substring(BUSINESS_HOURS_PREFIX.length()))) {
+                throw new IllegalArgumentException("Unknown business hours setting " + key);
+            }
+        }
+        
+        BusinessDesk defaultDesk = parseDesk(properties, BUSINESS_HOURS_PREFIX, base.defaultDesk());
+        Map<String, BusinessDesk> desks = new TreeMap<>();
+        for (BusinessDesk desk : base.desks().subList(1, base.desks().size())) {
+            desks.put(desk.name(), desk);
+        }
+        for (String name : deskNames) {
+            BusinessDesk baseDesk = desks.remove(name);
+            String prefix = DESK_PREFIX + name + ".";
+            if (baseDesk == null) {
+                String countries = properties.getProperty(prefix + "countries", "");
+                if (parseCountries(countries).size() == 0) {
+                    throw new IllegalArgumentException("Business desk " + name + " needs countries");
+                }
+                // Settings not given take the defaults of a new desk; the zone has none
+                String zone = properties.getProperty(prefix + "zone");
+                if (zone == null) {
+                    throw new IllegalArgumentException("Business desk " + name + " needs a zone");
+                }
+                baseDesk = new BusinessDesk(name, parseZone(zone.trim()),
+                    DEFAULT_BUSINESS_HOURS_START, DEFAULT_BUSINESS_HOURS_END,
+                    BusinessDesk.parseWeekend(BusinessDesk.DEFAULT_WEEKEND), List.of(), parseCountries(countries));
+            }
+            BusinessDesk desk = parseDesk(properties, prefix, baseDesk);
+            if (!desk.isDefault()) {
+                desks.put(name, desk);
+            }
+        }
+        return BusinessCalendar.of(defaultDesk, List.copyOf(desks.values()));
+    }
+    
+    private static BusinessDesk parseDesk(Properties properties, String prefix, BusinessDesk base) {
+        String zone = properties.getProperty(prefix + "zone");
+        String weekend = properties.getProperty(prefix + "weekend");
+        String holidays = properties.getProperty(prefix + "holidays");
+        String countries = properties.getProperty(prefix + "countries");
+        return new BusinessDesk(
+            base.name(),
+            zone != null ? parseZone(zone.trim()) : base.zone(),
+            intProperty(properties, prefix + "start", base.startHour()),
+            intProperty(properties, prefix + "end", base.endHour()),
+            weekend != null ? BusinessDesk.parseWeekend(weekend) : base.weekend(),
+            holidays != null ? BusinessDesk.parseHolidays(holidays) : base.holidays(),
+            countries != null ? parseCountries(countries) : base.countries());
+    }
+    
+    public RuleConfiguration withVersion(String newVersion) {
+        return new RuleConfiguration(newVersion, weights, disabledRules, highRiskCountries,
+            riskThresholdMedium, riskThresholdHigh, riskThresholdCritical, businessCalendar);
+    }
+    
+    public boolean isEnabled(String reasonCode) {
+        return !disabledRules.contains(reasonCode);
+    }
+    
+    /**
+     * @return true if both configurations have the same settings, whatever their versions
+     */
+    public boolean sameSettingsAs(RuleConfiguration other) {
+        return withVersion(other.version).equals(other);
+    }
+    
+    /**
+     * Rejects weights or enable flags for rules that do not exist, which would otherwise
+     * be silently ignored (e.g. a misspelt reason code).
+     */
+    public void requireKnownRules(Collection<String> reasonCodes) {
+        Set<String> unknown = new HashSet<>(weights.keySet());
+        unknown.addAll(disabledRules);
+        unknown.removeAll(reasonCodes);
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown rules " + unknown + "; known rules are " + reasonCodes);
+        }
+    }
+    
+    /**
+     * Deterministic short hash of the settings (not the version), used as the version
+     * when none is given.
+     */
+    String contentHash() {
+        String canonical = String.join("|",
+            new TreeMap<>(weights).toString(),
+            disabledRules.stream().sorted().toList().toString(),
+            highRiskCountries.toAlpha2List().toString(),
+            riskThresholdMedium + "/" + riskThresholdHigh + "/" + riskThresholdCritical,
+            businessCalendar.canonical());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return "sha256:" + HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+    
+    private static String ruleCode(String key, String suffix) {
+        return key.substring(RULE_PREFIX.length(), key.length() - suffix.length());
+    }
+    
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : parseInt(key, value.trim());
+    }
+    
+    private static int parseInt(String key, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid integer for " + key + ": '" + value + "'");
+        }
+    }
+    
+    private static boolean parseBoolean(String key, String value) {
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Invalid boolean for " + key + ": '" + value + "'");
+        }
+        return Boolean.parseBoolean(value);
+    }
+    
+    private static ZoneId parseZone(String zone) {
+        try {
+            return ZoneId.of(zone);
+        } catch (DateTimeException ex) {
+            throw new IllegalArgumentException("Invalid business time zone '" + zone + "'");
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.goldmansachs.txb.domain.config;
+
+import com.goldmansachs.txb.engine.RiskRule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the current {@link RuleConfiguration} and swaps in new versions without a restart.
+ *
+ * The current configuration is a single volatile reference to an immutable object, so
+ * readers take no locks and a swap is atomic: a score started before the swap finishes
+ * on the old version, one started after it uses the new one. Updates are serialised so
+ * concurrent reloads cannot interleave their validation.
+ *
+ * New versions come from:
+ * - {@code txb.risk.rule-config.file}, polled every {@code txb.risk.rule-config.poll-interval}
+ *   and reloaded whenever its modification time or size changes
+ * - The admin endpoint, which posts the same properties format
+ *
+ * Both are layered over the startup configuration from application.yml, so a file only
+ * needs the keys it changes. An invalid configuration is rejected as a whole and the
+ * current one stays active. A configuration whose version is already active but whose
+ * settings differ is rejected too, since audit rows could no longer tell them apart.
+ */
+@Component
+public class RuleConfigurationStore {
+    
+    private static final Logger log = LoggerFactory.getLogger(RuleConfigurationStore.class);
+    
+    private final RuleConfiguration base;
+    private final Collection<String> knownRules;
+    private final Path configFile;
+    private final Duration pollInterval;
+    private final ScheduledExecutorService watcher;
+    private final Counter appliedCounter;
+    private final Counter rejectedCounter;
+    
+    private volatile RuleConfiguration current;
+    private BasicFileAttributes lastSeenFile;
+    
+    @Autowired
+    public RuleConfigurationStore(
+            RiskThresholdConfig thresholdConfig,
+            List<RiskRule> rules,
+            MeterRegistry meterRegistry,
+            Environment environment,
+            @Value("${txb.risk.high-risk-countries:" + RuleConfiguration.DEFAULT_HIGH_RISK_COUNTRIES + "}") String highRiskCountries,
+            @Value("${txb.risk.rule-config.file:}") String configFile,
+            @Value("${txb.risk.rule-config.poll-interval:5s}") Duration pollInterval) {
+        RuleConfiguration startup = new RuleConfiguration("application", Map.of(), Set.of(),
+            RuleConfiguration.parseCountries(highRiskCountries),
+            thresholdConfig.getRiskThresholdMedium(),
+            thresholdConfig.getRiskThresholdHigh(),
+            thresholdConfig.getRiskThresholdCritical(),
+            RuleConfiguration.parseBusinessCalendar(businessHoursProperties(environment),
+                RuleConfiguration.defaults().businessCalendar()));
+        // Versioned by content like an unversioned override, so audit rows from instances whose properties differ stay distinguishable
+        this.base = startup.withVersion(startup.contentHash());
+        this.knownRules = rules.stream().map(RiskRule::reasonCode).toList();
+        this.configFile = configFile.isBlank() ? null : Path.of(configFile);
+        this.pollInterval = pollInterval;
+        this.watcher = this.configFile == null ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rule-config-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.appliedCounter = Counter.builder("risk.rules.config.reloads")
+            .tag("result", "applied")
+            .description("Rule configuration versions swapped in")
+            .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("risk.rules.config.reloads")
+            .tag("result", "rejected")
+            .description("Rule configuration updates rejected as invalid")
+            .register(meterRegistry);
+        this.current = base;
+    }
+    
+    /**
+     * Creates a store fixed to one configuration, for standalone engines (backtests, benchmarks).
+     */
+    public RuleConfigurationStore(RuleConfiguration configuration) {
+        this.base = configuration;
+        this.knownRules = null;
+        this.configFile = null;
+        this.pollInterval = null;
+        this.watcher = null;
+        this.appliedCounter = null;
+        this.rejectedCounter = null;
+        this.current = configuration;
+    }
+    
+    @PostConstruct
+    void start() {
+        if (configFile == null) {
+            log.info("Using rule configuration {} from application properties", current.version());
+            return;
+        }
+        // A configured file must be valid at startup; later bad edits only log and keep the last good version
+        pollFile();
+        long intervalNanos = pollInterval.toNanos();
+        watcher.scheduleWithFixedDelay(this::pollFileSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+    }
+    
+    /**
+     * @return The active configuration. Callers should read it once per unit of work.
+     */
+    public RuleConfiguration current() {
+        return current;
+    }
+    
+    /**
+     * Parses a properties document over the startup configuration and swaps it in.
+     *
+     * @param source Where the document came from, for logging
+     * @return The configuration now active
+     * @throws IllegalArgumentException if the document is invalid
+     * @throws IllegalStateException if its version is active with different settings
+     */
+    public RuleConfiguration apply(String propertiesDocument, String source) {
+        Properties properties = new Properties();
+        try {
+            properties.load(new StringReader(propertiesDocument));
+        } catch (IOException | IllegalArgumentException ex) {
+            rejected();
+            throw new IllegalArgumentException("Malformed rule configuration: " + ex.getMessage(), ex);
+        }
+        return apply(properties, source);
+    }
+    
+    private synchronized RuleConfiguration apply(Properties properties, String source) {
+        RuleConfiguration next;
+        try {
+            next = RuleConfiguration.fromProperties(properties, base);
+            if (knownRules != null) {
+                next.requireKnownRules(knownRules);
+            }
+        } catch (IllegalArgumentException ex) {
+            rejected();
+            throw ex;
+        }
+        RuleConfiguration active = current;
+        if (next.version().equals(active.version())) {
+            if (next.sameSettingsAs(active)) {
+                return active;
+            }
+            rejected();
+            throw new IllegalStateException("Rule configuration version " + next.version()
+                + " is already active with different settings; use a new version");
+        }
+        current = next;
+        appliedCounter.increment();
+        log.info("Activated rule configuration {} (previous {}) from {}", next.version(), active.version(), source);
+        return next;
+    }
+    
+    /**
+     * The {@code txb.risk.business-hours.*} keys of the application properties, flattened to
+     * the properties format so regional desks, whose names are not known up front, parse
+     * the same way as in a rule configuration file.
+     */
+    private static Properties businessHoursProperties(Environment environment) {
+        Properties properties = new Properties();
+        Binder.get(environment)
+            .bind("txb.risk.business-hours", Bindable.mapOf(String.class, String.class))
+            .ifBound(settings -> settings.forEach(
+                (key, value) -> properties.setProperty("txb.risk.business-hours." + key, value)));
+        return properties;
+    }
+    
+    private void rejected() {
+        if (rejectedCounter != null) {
+            rejectedCounter.increment();
+        }
+    }
+    
+    private void pollFileSafely() {
+        try {
+            pollFile();
+        } catch (RuntimeException ex) {
+            log.error("Rejected rule configuration from {}; keeping version {}: {}",
+                      configFile, current.version(), ex.getMessage());
+        }
+    }
+    
+    private void pollFile() {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(configFile, BasicFileAttributes.class);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read rule configuration file " + configFile, ex);
+        }
+        if (lastSeenFile != null
+                && attributes.lastModifiedTime().equals(lastSeenFile.lastModifiedTime())
+                && attributes.size() == lastSeenFile.size()) {
+            return;
+        }
+        // Remembered before parsing, so a bad file is reported once rather than on every poll
+        lastSeenFile = attributes;
+        
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(configFile)) {
+            properties.load(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read rule configuration file " + configFile, ex);
+        }
+        apply(properties, configFile.toString());
+    }
+}
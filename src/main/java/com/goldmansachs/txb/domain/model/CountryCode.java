@@ -0,0 +1,56 @@
+package com.goldmansachs.txb.domain.model;
+
+/**
+ * Dense integer codes for ISO 3166-1 alpha-2 country codes.
+ * 
+ * Every two-letter code maps to {@code (first - 'A') * 26 + (second - 'A')}, so the whole
+ * alpha-2 space (assigned, reserved and unassigned) fits in {@value #COUNT} codes without
+ * a lookup table, and sets of countries can be held as a {@link CountrySet} bitset.
+ * Parsing is case-insensitive; {@link #toAlpha2} returns a shared, upper-case instance.
+ */
+public final class CountryCode {
+    
+    public static final int COUNT = 26 * 26;
+    
+    private static final String[] ALPHA2 = new String[COUNT];
+    
+    static {
+        for (int code = 0; code < COUNT; code++) {
+            ALPHA2[code] = new String(new char[] {(char) ('A' + code / 26), (char) ('A' + code % 26)});
+        }
+    }
+    
+    private CountryCode() {
+    }
+    
+    /**
+     * @param alpha2 A two-letter country code, in either case
+     * @return The dense code, in {@code [0, COUNT)}
+     * @throws IllegalArgumentException if the value is not two ASCII letters
+     */
+    public static short parse(CharSequence alpha2) {
+        if (alpha2 == null || alpha2.length() != 2) {
+            throw new IllegalArgumentException("Country must be a 2-letter ISO code, got '" + alpha2 + "'");
+        }
+        return (short) (letter(alpha2, 0) * 26 + letter(alpha2, 1));
+    }
+    
+    /**
+     * @return The upper-case alpha-2 code for a dense code
+     */
+    public static String toAlpha2(short code) {
+        return ALPHA2[code];
+    }
+    
+    /**
+     * @return The letter at {@code index} as 0-25, folding lower case to upper case
+     */
+    static int letter(CharSequence value, int index) {
+        char c = value.charAt(index);
+        int upper = c & ~0x20;
+        if (c > 'z' || upper < 'A' || upper > 'Z') {
+            throw new IllegalArgumentException("Invalid ISO code '" + value + "'");
+        }
+        return upper - 'A';
+    }
+}
@@ -0,0 +1,78 @@
+package com.goldmansachs.txb.domain.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable set of countries held as a bitset indexed by {@link CountryCode}.
+ * Membership is a single array read and bit test, with no string hashing.
+ */
+public final class CountrySet {
+    
+    private static final int WORDS = (CountryCode.COUNT + 63) >>> 6;
+    
+    private final long[] bits;
+    
+    private CountrySet(long[] bits) {
+        this.bits = bits;
+    }
+    
+    /**
+     * @throws IllegalArgumentException if any entry is not a 2-letter country code
+     */
+    public static CountrySet of(Collection<? extends CharSequence> alpha2Codes) {
+        long[] bits = new long[WORDS];
+        for (CharSequence alpha2 : alpha2Codes) {
+            short code = CountryCode.parse(alpha2);
+            bits[code >>> 6] |= 1L << code;
+        }
+        return new CountrySet(bits);
+    }
+    
+    public boolean contains(short country) {
+        return (bits[country >>> 6] & (1L << country)) != 0;
+    }
+    
+    public int size() {
+        int size = 0;
+        for (long word : bits) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+    
+    /**
+     * @return The members as upper-case alpha-2 codes, in code (alphabetical) order
+     */
+    @JsonValue
+    public List<String> toAlpha2List() {
+        List<String> codes = new ArrayList<>(size());
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                codes.add(CountryCode.toAlpha2((short) ((word << 6) + Long.numberOfTrailingZeros(remaining))));
+                remaining &= remaining - 1;
+            }
+        }
+        return codes;
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CountrySet set && Arrays.equals(bits, set.bits);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bits);
+    }
+    
+    @Override
+    public String toString() {
+        return toAlpha2List().toString();
+    }
+}
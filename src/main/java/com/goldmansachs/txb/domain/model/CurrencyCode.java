@@ -0,0 +1,48 @@
+package com.goldmansachs.txb.domain.model;
+
+/**
+ * Dense integer codes for ISO 4217 alphabetic currency codes.
+ * 
+ * Every three-letter code maps to a base-26 number in {@code [0, COUNT)}, which covers the
+ * whole alpha-3 space without a lookup table and can index per-currency arrays directly.
+ * Parsing is case-insensitive; {@link #toAlpha3} returns a shared, upper-case instance.
+ */
+public final class CurrencyCode {
+    
+    public static final int COUNT = 26 * 26 * 26;
+    
+    /**
+     * Filled on first use: only a few hundred of the 17,576 codes are ever seen. Racing
+     * writers store equal immutable strings, so the array needs no synchronisation.
+     */
+    private static final String[] ALPHA3 = new String[COUNT];
+    
+    private CurrencyCode() {
+    }
+    
+    /**
+     * @param alpha3 A three-letter currency code, in either case
+     * @return The dense code, in {@code [0, COUNT)}
+     * @throws IllegalArgumentException if the value is not three ASCII letters
+     */
+    public static short parse(CharSequence alpha3) {
+        if (alpha3 == null || alpha3.length() != 3) {
+            throw new IllegalArgumentException("Currency must be a 3-letter ISO code, got '" + alpha3 + "'");
+        }
+        return (short) ((CountryCode.letter(alpha3, 0) * 26 + CountryCode.letter(alpha3, 1)) * 26
+            + CountryCode.letter(alpha3, 2));
+    }
+    
+    /**
+     * @return The upper-case alpha-3 code for a dense code
+     */
+    public static String toAlpha3(short code) {
+        String alpha3 = ALPHA3[code];
+        if (alpha3 == null) {
+            alpha3 = new String(new char[] {
+                (char) ('A' + code / (26 * 26)), (char) ('A' + code / 26 % 26), (char) ('A' + code % 26)});
+            ALPHA3[code] = alpha3;
+        }
+        return alpha3;
+    }
+}
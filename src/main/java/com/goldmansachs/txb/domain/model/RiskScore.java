@@ -4,12 +4,14 @@ import java.util.List;
 
 /**
  * Represents the result of a risk assessment. This is an immutable record to ensure data integrity.
+ * {@code configVersion} identifies the rule configuration the score was computed with.
  */
 public record RiskScore(
     String transactionId,
     int score,
     RiskLevel level,
-    List<String> reasonCodes
+    List<String> reasonCodes,
+    String configVersion
 ) {
     public enum RiskLevel {
         LOW, MEDIUM, HIGH, CRITICAL
@@ -5,13 +5,30 @@ import java.time.OffsetDateTime;
 
 /**
  * Represents a financial transaction. This is an immutable record to ensure data integrity.
+ * 
+ * Currency and country are held as dense codes ({@link CurrencyCode}, {@link CountryCode}),
+ * parsed once where the transaction enters the service, so rules compare primitives.
  */
 public record Transaction(
     String transactionId,
     String clientId,
     String beneficiaryId,
     BigDecimal amount,
-    String currency,
+    short currency,
     OffsetDateTime transactionTime,
-    String country
-) {}
+    short country
+) {
+    /**
+     * @return The ISO 4217 alphabetic currency code, e.g. "USD"
+     */
+    public String currencyCode() {
+        return CurrencyCode.toAlpha3(currency);
+    }
+    
+    /**
+     * @return The ISO 3166-1 alpha-2 country code, e.g. "US"
+     */
+    public String countryCode() {
+        return CountryCode.toAlpha2(country);
+    }
+}
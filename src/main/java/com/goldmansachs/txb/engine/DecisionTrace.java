@@ -0,0 +1,39 @@
+package com.goldmansachs.txb.engine;
+
+import com.goldmansachs.txb.domain.model.RiskScore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How a score was reached: every rule in evaluation order, triggered or not, with its
+ * inputs and timing. Produced by {@link RiskScoringEngine#explainScore}.
+ * 
+ * @param configVersion The rule configuration version the rules were evaluated against
+ * @param score The score this evaluation produced
+ * @param nanos Wall-clock time for the whole evaluation
+ * @param rules One entry per rule, including disabled rules; in a replay, only the rules that triggered
+ * @param replay true if the returned result was computed by an earlier request, and this
+ *               trace was rebuilt from what was recorded with it rather than by evaluating
+ *               any rule: weights, timings and inputs were not recorded and are left empty
+ */
+public record DecisionTrace(
+    String configVersion,
+    int score,
+    long nanos,
+    List<RuleTrace> rules,
+    boolean replay
+) {
+    /**
+     * Rebuilds the trace of an earlier result from its recorded configuration version,
+     * score and reason codes, without re-running the rules.
+     */
+    public static DecisionTrace replayOf(RiskScore riskScore) {
+        List<RuleTrace> rules = new ArrayList<>(riskScore.reasonCodes().size());
+        for (String reasonCode : riskScore.reasonCodes()) {
+            rules.add(new RuleTrace(reasonCode, true, true, false, 0, 0, Map.of()));
+        }
+        return new DecisionTrace(riskScore.configVersion(), riskScore.score(), 0, List.copyOf(rules), true);
+    }
+}
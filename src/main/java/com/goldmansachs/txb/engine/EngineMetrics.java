@@ -0,0 +1,103 @@
+package com.goldmansachs.txb.engine;
+
+import com.goldmansachs.txb.domain.model.RiskScore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Engine instrumentation, exported through the application's Prometheus registry.
+ * 
+ * Every meter is registered once at startup and held in arrays indexed by rule position
+ * (or risk-level ordinal), so recording on the hot path is a field load plus an atomic
+ * update: no tag lookup, no meter registry access, no allocation.
+ * 
+ * Meters:
+ * - risk.rule.evaluation.time{rule}: per-rule latency histogram, including history lookups
+ * - risk.rule.triggered{rule}: how often each rule triggers
+ * - risk.rule.fallbacks{rule}: signals assumed rather than evaluated (circuit breaker or deadline)
+ * - risk.rule.deadline.misses{rule}: rules cancelled by the parallel-mode deadline
+ * - risk.score.level{level}: risk-level distribution
+ * - risk.score.value: score histogram with buckets at every 100 points
+ */
+final class EngineMetrics {
+    
+    private static final double[] SCORE_BUCKETS = {100, 200, 300, 400, 500, 600, 700, 800, 900, 1000};
+    
+    private final Timer[] ruleTimers;
+    private final Counter[] ruleTriggers;
+    private final Counter[] ruleFallbacks;
+    private final Counter[] ruleDeadlineMisses;
+    private final Counter[] levelCounters;
+    private final DistributionSummary scoreSummary;
+    
+    EngineMetrics(RuleTable ruleTable, MeterRegistry meterRegistry) {
+        int size = ruleTable.size();
+        this.ruleTimers = new Timer[size];
+        this.ruleTriggers = new Counter[size];
+        this.ruleFallbacks = new Counter[size];
+        this.ruleDeadlineMisses = new Counter[size];
+        for (int i = 0; i < size; i++) {
+            String rule = ruleTable.rule(i).reasonCode();
+            ruleTimers[i] = Timer.builder("risk.rule.evaluation.time")
+                .description("Time taken to evaluate a single rule")
+                .tag("rule", rule)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(500))
+                .maximumExpectedValue(Duration.ofMillis(500))
+                .register(meterRegistry);
+            ruleTriggers[i] = Counter.builder("risk.rule.triggered")
+                .description("Number of times a rule triggered")
+                .tag("rule", rule)
+                .register(meterRegistry);
+            ruleFallbacks[i] = Counter.builder("risk.rule.fallbacks")
+                .description("Number of times a rule's fallback signal was used")
+                .tag("rule", rule)
+                .register(meterRegistry);
+            ruleDeadlineMisses[i] = Counter.builder("risk.rule.deadline.misses")
+                .description("Number of times a rule missed the scoring deadline")
+                .tag("rule", rule)
+                .register(meterRegistry);
+        }
+        
+        RiskScore.RiskLevel[] levels = RiskScore.RiskLevel.values();
+        this.levelCounters = new Counter[levels.length];
+        for (RiskScore.RiskLevel level : levels) {
+            levelCounters[level.ordinal()] = Counter.builder("risk.score.level")
+                .description("Number of scores per risk level")
+                .tag("level", level.name())
+                .register(meterRegistry);
+        }
+        
+        this.scoreSummary = DistributionSummary.builder("risk.score.value")
+            .description("Distribution of calculated risk scores")
+            .serviceLevelObjectives(SCORE_BUCKETS)
+            .register(meterRegistry);
+    }
+    
+    void recordRuleTime(int ruleIndex, long elapsedNanos) {
+        ruleTimers[ruleIndex].record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    void recordSignal(int ruleIndex, RiskSignal signal) {
+        if (signal.triggered()) {
+            ruleTriggers[ruleIndex].increment();
+        }
+        if (signal.fallback()) {
+            ruleFallbacks[ruleIndex].increment();
+        }
+    }
+    
+    void recordDeadlineMiss(int ruleIndex) {
+        ruleDeadlineMisses[ruleIndex].increment();
+    }
+    
+    void recordScore(int score, RiskScore.RiskLevel level) {
+        levelCounters[level.ordinal()].increment();
+        scoreSummary.record(score);
+    }
+}
@@ -0,0 +1,172 @@
+package com.goldmansachs.txb.engine;
+
+import com.goldmansachs.txb.domain.config.RuleConfiguration;
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryEntity;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryLookup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-transaction state shared by all rules during a single scoring pass.
+ * The engine builds one context per transaction and hands it to every rule.
+ *
+ * The context carries the {@link RuleConfiguration} the engine read when the score
+ * started, so every rule of one score sees the same configuration version.
+ *
+ * The client/beneficiary history is fetched lazily on first access and memoized,
+ * so a transaction costs at most one history lookup regardless of how many rules
+ * depend on it. A failed lookup is memoized as well: every history-backed rule sees
+ * the same exception and falls back through its own circuit breaker, instead of
+ * retrying the query against a dependency that has just failed.
+ *
+ * A context evaluated by rules on several threads is created with
+ * {@link #forConcurrentRules}, which guards the lookup with a {@link ReentrantLock} rather
+ * than {@code synchronized} so a virtual thread blocked on the query does not pin its
+ * carrier thread. Single-threaded contexts skip the lock (and its allocation) entirely.
+ *
+ * A context created with {@link #forTracing} also collects, per rule, the input values
+ * the rule compared ({@link #traceInput}) and where the history came from, for a
+ * {@link DecisionTrace}. Rules should guard anything costly to compute or box with
+ * {@link #tracing()}; on other contexts tracing is a single field check.
+ */
+public final class EvaluationContext {
+    
+    private final Transaction transaction;
+    private final RuleConfiguration configuration;
+    private final TransactionHistoryLookup historyLookup;
+    
+    private final ReentrantLock historyLock;
+    private Optional<TransactionHistoryEntity> history;
+    private RuntimeException historyFailure;
+    
+    private final boolean tracing;
+    private Map<String, Object> ruleInputs;
+    
+    public EvaluationContext(Transaction transaction, RuleConfiguration configuration,
+                             TransactionHistoryLookup historyLookup) {
+        this(transaction, configuration, historyLookup, null, false);
+    }
+    
+    private EvaluationContext(Transaction transaction, RuleConfiguration configuration,
+                              TransactionHistoryLookup historyLookup, ReentrantLock historyLock, boolean tracing) {
+        this.transaction = transaction;
+        this.configuration = configuration;
+        this.historyLookup = historyLookup;
+        this.historyLock = historyLock;
+        this.tracing = tracing;
+    }
+    
+    /**
+     * Creates a context that may be read by rules running concurrently on different threads.
+     */
+    public static EvaluationContext forConcurrentRules(Transaction transaction, RuleConfiguration configuration,
+                                                       TransactionHistoryLookup historyLookup) {
+        return new EvaluationContext(transaction, configuration, historyLookup, new ReentrantLock(), false);
+    }
+    
+    /**
+     * Creates a single-threaded context that records rule inputs for a decision trace.
+     */
+    static EvaluationContext forTracing(Transaction transaction, RuleConfiguration configuration,
+                                        TransactionHistoryLookup historyLookup) {
+        return new EvaluationContext(transaction, configuration, historyLookup, null, true);
+    }
+    
+    public Transaction transaction() {
+        return transaction;
+    }
+    
+    public RuleConfiguration configuration() {
+        return configuration;
+    }
+    
+    /**
+     * @return true if rule inputs are being recorded for a decision trace
+     */
+    public boolean tracing() {
+        return tracing;
+    }
+    
+    /**
+     * Records a value the current rule based its decision on. Ignored unless {@link #tracing()}.
+     */
+    public void traceInput(String name, Object value) {
+        if (ruleInputs != null) {
+            ruleInputs.put(name, value);
+        }
+    }
+    
+    /**
+     * Starts collecting inputs for the next rule.
+     */
+    void beginRuleTrace() {
+        ruleInputs = new LinkedHashMap<>();
+    }
+    
+    /**
+     * @return The inputs recorded since {@link #beginRuleTrace}, in recording order
+     */
+    Map<String, Object> endRuleTrace() {
+        Map<String, Object> inputs = ruleInputs;
+        ruleInputs = null;
+        return inputs;
+    }
+    
+    /**
+     * Returns the history for the transaction's client/beneficiary pair,
+     * querying the history lookup only on the first call.
+     *
+     * @return The history record, or empty if the client has never paid this beneficiary
+     * @throws RuntimeException the (memoized) lookup failure, if the lookup failed
+     */
+    public Optional<TransactionHistoryEntity> history() {
+        if (historyLock == null) {
+            return loadHistory();
+        }
+        historyLock.lock();
+        try {
+            return loadHistory();
+        } finally {
+            historyLock.unlock();
+        }
+    }
+    
+    private Optional<TransactionHistoryEntity> loadHistory() {
+        if (historyFailure != null) {
+            throw historyFailure;
+        }
+        if (history == null) {
+            if (tracing) {
+                return loadHistoryTraced();
+            }
+            try {
+                history = historyLookup.findHistory(transaction.clientId(), transaction.beneficiaryId());
+            } catch (RuntimeException ex) {
+                historyFailure = ex;
+                throw ex;
+            }
+        } else if (tracing) {
+            traceInput("history.source", "memoized");
+        }
+        return history;
+    }
+    
+    private Optional<TransactionHistoryEntity> loadHistoryTraced() {
+        traceInput("history.source", historyLookup.sourceOf(transaction.clientId(), transaction.beneficiaryId()));
+        long startNanos = System.nanoTime();
+        try {
+            history = historyLookup.findHistory(transaction.clientId(), transaction.beneficiaryId());
+            return history;
+        } catch (RuntimeException ex) {
+            historyFailure = ex;
+            traceInput("history.error", ex.toString());
+            throw ex;
+        } finally {
+            traceInput("history.nanos", System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.goldmansachs.txb.engine;
+
+import com.goldmansachs.txb.domain.model.RiskScore;
+
+/**
+ * A risk score together with the trace of how it was reached.
+ */
+public record ExplainedScore(
+    RiskScore riskScore,
+    DecisionTrace trace
+) {}
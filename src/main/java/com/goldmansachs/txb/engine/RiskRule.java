@@ -5,13 +5,44 @@ import com.goldmansachs.txb.domain.model.Transaction;
 /**
  * Interface for all risk rules.
  * Each rule evaluates a transaction and produces a risk signal.
+ * 
+ * Rules that need data beyond the transaction itself (e.g. client/beneficiary history)
+ * must read it through the {@link EvaluationContext} so the lookup is shared across rules.
  */
 public interface RiskRule {
     /**
      * Evaluates the transaction against this rule.
      * 
      * @param transaction The transaction to evaluate
+     * @param context Per-transaction context shared by all rules in this scoring pass
      * @return A RiskSignal indicating whether the rule was triggered and its weight
      */
-    RiskSignal evaluate(Transaction transaction);
+    RiskSignal evaluate(Transaction transaction, EvaluationContext context);
+    
+    /**
+     * @return The reason code this rule reports when triggered
+     */
+    String reasonCode();
+    
+    /**
+     * Signal to use when the rule cannot produce a result, e.g. when it misses the
+     * engine's deadline. The returned signal must be marked as a fallback. Defaults to
+     * not triggered (fail-open); rules whose safe assumption is to flag the transaction,
+     * or that want to avoid the per-call allocation, override this with a shared instance.
+     * 
+     * @param transaction The transaction being evaluated
+     * @return The fallback signal for this rule
+     */
+    default RiskSignal fallbackSignal(Transaction transaction) {
+        return RiskSignal.notTriggered(reasonCode()).asFallback();
+    }
+    
+    /**
+     * Whether evaluating this rule may wait on I/O, such as a history lookup that can reach
+     * the database. Degraded scoring skips these rules (see
+     * {@link RiskScoringEngine#calculateScore(Transaction, boolean)}). Defaults to false.
+     */
+    default boolean ioBound() {
+        return false;
+    }
 }
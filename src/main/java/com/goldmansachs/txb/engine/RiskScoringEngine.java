@@ -1,34 +1,103 @@
 package com.goldmansachs.txb.engine;
 
-import com.goldmansachs.txb.domain.config.RiskThresholdConfig;
+import com.goldmansachs.txb.domain.config.RuleConfiguration;
+import com.goldmansachs.txb.domain.config.RuleConfigurationStore;
 import com.goldmansachs.txb.domain.model.RiskScore;
 import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.infrastructure.repository.HistoryKey;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryEntity;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryLookup;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
  * The core risk scoring engine that evaluates all rules and aggregates the results.
  * This engine is deterministic and explainable - every score can be traced back to
  * specific rules that were triggered.
  * 
- * The engine evaluates all rules sequentially, then aggregates the results into a single risk score.
+ * The engine evaluates all rules, then aggregates the results into a single risk score.
+ * A single {@link EvaluationContext} is built per transaction so that history-backed rules
+ * share one history lookup instead of each issuing their own.
+ * 
+ * Rules run sequentially by default. In {@link RuleExecutionMode#PARALLEL} mode each rule
+ * runs on its own virtual thread and the engine waits at most {@code txb.risk.engine.deadline}
+ * for all of them; a rule that misses the deadline contributes its
+ * {@link RiskRule#fallbackSignal fallback signal}. Signals are always aggregated in rule
+ * order, so both modes produce the same RiskScore for the same rule outcomes.
+ * 
+ * Rules are compiled into a {@link RuleTable} at startup. The sequential hot path tracks
+ * triggered rules in a bitmask and uses the table's interned reason-code lists, so apart
+ * from the context and the resulting RiskScore it allocates nothing per score.
+ * Per-rule timings, trigger and fallback counts and the score distribution are recorded
+ * through pre-registered meters (see {@link EngineMetrics}).
+ * 
+ * Weights, enable flags and thresholds come from the {@link RuleConfiguration} current when
+ * a score starts; rules read their own settings from the same instance through the context.
+ * A configuration is bound to the rule table once per version, not once per score.
+ * 
+ * A degraded score skips the {@link RiskRule#ioBound() I/O-bound} rules, which then
+ * report not triggered, marked as a fallback; it is used to shed database load when the
+ * service is close to saturation.
  */
 @Component
 public class RiskScoringEngine {
     
     private static final Logger log = LoggerFactory.getLogger(RiskScoringEngine.class);
     
-    private final List<RiskRule> rules;
-    private final RiskThresholdConfig thresholdConfig;
+    private final RuleTable ruleTable;
+    private final EngineMetrics metrics;
+    private final RuleConfigurationStore configurationStore;
+    private final TransactionHistoryLookup historyLookup;
+    private final RuleExecutionMode executionMode;
+    private final long deadlineNanos;
+    private final ExecutorService ruleExecutor;
     
-    public RiskScoringEngine(List<RiskRule> rules, RiskThresholdConfig thresholdConfig) {
-        this.rules = rules;
-        this.thresholdConfig = thresholdConfig;
-        log.info("Initialized RiskScoringEngine with {} rules", rules.size());
+    private volatile RuleTable.Binding binding;
+    
+    public RiskScoringEngine(List<RiskRule> rules, RuleConfigurationStore configurationStore,
+                             TransactionHistoryLookup historyLookup,
+                             MeterRegistry meterRegistry,
+                             @Value("${txb.risk.engine.execution-mode:SEQUENTIAL}") RuleExecutionMode executionMode,
+                             @Value("${txb.risk.engine.deadline:50ms}") Duration deadline) {
+        this.ruleTable = RuleTable.compile(rules);
+        this.metrics = new EngineMetrics(ruleTable, meterRegistry);
+        this.configurationStore = configurationStore;
+        this.binding = ruleTable.bind(configurationStore.current());
+        this.historyLookup = historyLookup;
+        this.executionMode = executionMode;
+        this.deadlineNanos = deadline.toNanos();
+        this.ruleExecutor = executionMode == RuleExecutionMode.PARALLEL
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("risk-rule-", 0).factory())
+            : null;
+        log.info("Initialized RiskScoringEngine with {} rules (executionMode={}, deadline={})",
+                 rules.size(), executionMode, deadline);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        if (ruleExecutor != null) {
+            ruleExecutor.shutdownNow();
+        }
     }
     
     /**
@@ -38,41 +107,320 @@ public class RiskScoringEngine {
      * @return A RiskScore containing the total score, risk level, and reason codes
      */
     public RiskScore calculateScore(Transaction transaction) {
-        long startTime = System.currentTimeMillis();
-        log.debug("Calculating risk score for transaction {}", transaction.transactionId());
+        return calculateScore(transaction, false);
+    }
+    
+    /**
+     * Evaluates the rules against the transaction, optionally in degraded mode.
+     * 
+     * In degraded mode the {@link RiskRule#ioBound() I/O-bound} rules are not evaluated and
+     * contribute a not-triggered fallback signal instead; not their own fallback signal,
+     * which assumes their dependency has failed.
+     * 
+     * @param transaction The transaction to evaluate
+     * @param degraded Whether to skip the I/O-bound rules
+     * @return A RiskScore containing the total score, risk level, and reason codes
+     */
+    public RiskScore calculateScore(Transaction transaction, boolean degraded) {
+        long startNanos = System.nanoTime();
+        RuleTable.Binding rules = currentBinding();
+        int skipMask = degraded ? ruleTable.ioBoundMask() : 0;
+        if (executionMode == RuleExecutionMode.PARALLEL) {
+            return evaluateParallel(transaction, rules,
+                EvaluationContext.forConcurrentRules(transaction, rules.configuration(), historyLookup),
+                skipMask, startNanos);
+        }
+        return evaluateSequential(transaction, rules,
+            new EvaluationContext(transaction, rules.configuration(), historyLookup), skipMask, startNanos);
+    }
+    
+    /**
+     * Evaluates all rules like {@link #calculateScore} and also records a {@link DecisionTrace}:
+     * every rule's signal, the inputs it compared, whether it fell back, and its timing.
+     * 
+     * Explained scores are always evaluated sequentially on the calling thread, so rule
+     * timings are not skewed by scheduling, and without the parallel-mode deadline. The
+     * tracing cost is confined to this method and to rules checking
+     * {@link EvaluationContext#tracing()}; {@link #calculateScore} is unaffected.
+     * 
+     * @param transaction The transaction to evaluate
+     * @return The RiskScore and the trace that produced it
+     */
+    public ExplainedScore explainScore(Transaction transaction) {
+        return explainScore(transaction, false);
+    }
+    
+    /**
+     * Like {@link #explainScore(Transaction)}, optionally in degraded mode: the
+     * {@link RiskRule#ioBound() I/O-bound} rules are then skipped as in
+     * {@link #calculateScore(Transaction, boolean)}, and traced as not-triggered fallbacks
+     * with a {@code skipped} input.
+     * 
+     * @param transaction The transaction to evaluate
+     * @param degraded Whether to skip the I/O-bound rules
+     * @return The RiskScore and the trace that produced it
+     */
+    public ExplainedScore explainScore(Transaction transaction, boolean degraded) {
+        long startNanos = System.nanoTime();
+        RuleTable.Binding rules = currentBinding();
+        int skipMask = degraded ? ruleTable.ioBoundMask() : 0;
+        EvaluationContext context = EvaluationContext.forTracing(transaction, rules.configuration(), historyLookup);
         
-        // Evaluate all rules
-        List<RiskSignal> signals = rules.stream()
-            .map(rule -> rule.evaluate(transaction))
-            .collect(Collectors.toList());
+        List<RuleTrace> traces = new ArrayList<>(ruleTable.size());
+        int triggeredMask = 0;
+        int totalScore = 0;
+        for (int i = 0; i < ruleTable.size(); i++) {
+            RiskRule rule = ruleTable.rule(i);
+            if (!rules.enabled(i)) {
+                traces.add(RuleTrace.disabled(rule.reasonCode()));
+                continue;
+            }
+            if ((skipMask & (1 << i)) != 0) {
+                metrics.recordSignal(i, ruleTable.skippedSignal(i));
+                traces.add(RuleTrace.skipped(rule.reasonCode()));
+                continue;
+            }
+            context.beginRuleTrace();
+            long ruleStart = System.nanoTime();
+            RiskSignal signal = rule.evaluate(transaction, context);
+            long ruleNanos = System.nanoTime() - ruleStart;
+            metrics.recordRuleTime(i, ruleNanos);
+            metrics.recordSignal(i, signal);
+            int weight = 0;
+            if (signal.triggered()) {
+                triggeredMask |= 1 << i;
+                weight = rules.weight(i, signal);
+                totalScore += weight;
+            }
+            traces.add(new RuleTrace(rule.reasonCode(), true, signal.triggered(), signal.fallback(), weight,
+                ruleNanos, context.endRuleTrace()));
+        }
+        RiskScore riskScore = toRiskScore(transaction, rules, totalScore, triggeredMask, startNanos);
+        DecisionTrace trace = new DecisionTrace(rules.configuration().version(), totalScore,
+            System.nanoTime() - startNanos, List.copyOf(traces), false);
+        return new ExplainedScore(riskScore, trace);
+    }
+    
+    /**
+     * Scores a batch of transactions. History for all distinct client/beneficiary pairs
+     * is resolved up front in bulk, so the per-transaction rule evaluation does no I/O.
+     * 
+     * If the bulk lookup fails, every transaction in the batch sees that failure and the
+     * history-backed rules apply their circuit-breaker fallbacks, exactly as they would
+     * for a failed single lookup.
+     * 
+     * Batch items are always evaluated sequentially: with history prefetched the rules are
+     * pure CPU work, so fanning them out would only add scheduling overhead. The whole batch
+     * is scored against one configuration version.
+     * 
+     * @param transactions The transactions to evaluate
+     * @return One RiskScore per transaction, in input order
+     */
+    public List<RiskScore> calculateScores(List<Transaction> transactions) {
+        return calculateScores(transactions, transaction -> {});
+    }
+    
+    /**
+     * Like {@link #calculateScores(List)}, calling {@code onScored} with each transaction
+     * as soon as it is scored and before the next one is, so in-memory state such as
+     * velocity windows can count earlier items of the batch when later ones are scored.
+     * 
+     * @param transactions The transactions to evaluate
+     * @param onScored Called with each transaction after it is scored, in input order
+     * @return One RiskScore per transaction, in input order
+     */
+    public List<RiskScore> calculateScores(List<Transaction> transactions, Consumer<Transaction> onScored) {
+        return calculateScores(transactions, false, onScored);
+    }
+    
+    /**
+     * Like {@link #calculateScores(List, Consumer)}, optionally in degraded mode, which skips
+     * the {@link RiskRule#ioBound() I/O-bound} rules as {@link #calculateScore(Transaction, boolean)}
+     * does, and with them the bulk history lookup.
+     * 
+     * @param transactions The transactions to evaluate
+     * @param degraded Whether to skip the I/O-bound rules
+     * @param onScored Called with each transaction after it is scored, in input order
+     * @return One RiskScore per transaction, in input order
+     */
+    public List<RiskScore> calculateScores(List<Transaction> transactions, boolean degraded,
+                                           Consumer<Transaction> onScored) {
+        RuleTable.Binding rules = currentBinding();
+        if (degraded) {
+            List<RiskScore> scores = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                EvaluationContext context = new EvaluationContext(transaction, rules.configuration(), historyLookup);
+                scores.add(evaluateSequential(transaction, rules, context, ruleTable.ioBoundMask(), System.nanoTime()));
+                onScored.accept(transaction);
+            }
+            return scores;
+        }
         
-        // Aggregate triggered signals
-        List<RiskSignal> triggeredSignals = signals.stream()
-            .filter(RiskSignal::triggered)
-            .collect(Collectors.toList());
+        Set<HistoryKey> keys = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            keys.add(new HistoryKey(transaction.clientId(), transaction.beneficiaryId()));
+        }
         
-        // Calculate total score
-        int totalScore = triggeredSignals.stream()
-            .mapToInt(RiskSignal::weight)
-            .sum();
+        TransactionHistoryLookup prefetched;
+        try {
+            Map<HistoryKey, Optional<TransactionHistoryEntity>> histories = historyLookup.findAllHistory(keys);
+            prefetched = (clientId, beneficiaryId) ->
+                histories.getOrDefault(new HistoryKey(clientId, beneficiaryId), Optional.empty());
+        } catch (RuntimeException ex) {
+            log.warn("Bulk history lookup failed for batch of {} transactions: {}", transactions.size(), ex.getMessage());
+            prefetched = (clientId, beneficiaryId) -> {
+                throw ex;
+            };
+        }
         
-        // Extract reason codes
-        List<String> reasonCodes = triggeredSignals.stream()
-            .map(RiskSignal::reasonCode)
-            .collect(Collectors.toList());
+        List<RiskScore> scores = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            EvaluationContext context = new EvaluationContext(transaction, rules.configuration(), prefetched);
+            scores.add(evaluateSequential(transaction, rules, context, 0, System.nanoTime()));
+            onScored.accept(transaction);
+        }
+        return scores;
+    }
+    
+    /**
+     * Evaluates the rule table in order on the calling thread.
+     * Allocation-free apart from the returned RiskScore: rules return shared signals,
+     * triggered rules are tracked in a bitmask and the reason-code list is interned.
+     * Rules set in {@code skipMask} are not evaluated and contribute their skipped signal.
+     */
+    private RiskScore evaluateSequential(Transaction transaction, RuleTable.Binding rules,
+                                         EvaluationContext context, int skipMask, long startNanos) {
+        int triggeredMask = 0;
+        int totalScore = 0;
+        for (int i = 0; i < ruleTable.size(); i++) {
+            if (!rules.enabled(i)) {
+                continue;
+            }
+            RiskSignal signal;
+            if ((skipMask & (1 << i)) != 0) {
+                signal = ruleTable.skippedSignal(i);
+            } else {
+                long ruleStart = System.nanoTime();
+                signal = ruleTable.rule(i).evaluate(transaction, context);
+                metrics.recordRuleTime(i, System.nanoTime() - ruleStart);
+            }
+            metrics.recordSignal(i, signal);
+            if (signal.triggered()) {
+                triggeredMask |= 1 << i;
+                totalScore += rules.weight(i, signal);
+            }
+        }
+        return toRiskScore(transaction, rules, totalScore, triggeredMask, startNanos);
+    }
+    
+    /**
+     * Fans the rules out on virtual threads and joins them in rule order under the deadline.
+     * The deadline covers the whole score, not each rule: once it has passed, every
+     * unfinished rule is cancelled and replaced by its fallback signal.
+     */
+    @SuppressWarnings("unchecked")
+    private RiskScore evaluateParallel(Transaction transaction, RuleTable.Binding rules,
+                                       EvaluationContext context, int skipMask, long startNanos) {
+        long deadline = startNanos + deadlineNanos;
+        
+        Future<RiskSignal>[] futures = new Future[ruleTable.size()];
+        for (int i = 0; i < futures.length; i++) {
+            if (!rules.enabled(i)) {
+                continue;
+            }
+            if ((skipMask & (1 << i)) != 0) {
+                futures[i] = CompletableFuture.completedFuture(ruleTable.skippedSignal(i));
+                continue;
+            }
+            RiskRule rule = ruleTable.rule(i);
+            int ruleIndex = i;
+            futures[i] = ruleExecutor.submit(() -> {
+                long ruleStart = System.nanoTime();
+                RiskSignal signal = rule.evaluate(transaction, context);
+                metrics.recordRuleTime(ruleIndex, System.nanoTime() - ruleStart);
+                return signal;
+            });
+        }
+        
+        int triggeredMask = 0;
+        int totalScore = 0;
+        for (int i = 0; i < futures.length; i++) {
+            if (futures[i] == null) {
+                continue;
+            }
+            RiskSignal signal;
+            try {
+                signal = futures[i].get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                futures[i].cancel(true);
+                RiskRule rule = ruleTable.rule(i);
+                signal = rule.fallbackSignal(transaction);
+                metrics.recordDeadlineMiss(i);
+                log.warn("Rule {} missed the {}ms deadline for transaction {}. Using fallback signal (triggered={})",
+                         rule.reasonCode(), TimeUnit.NANOSECONDS.toMillis(deadlineNanos),
+                         transaction.transactionId(), signal.triggered());
+            } catch (ExecutionException ex) {
+                // Same contract as sequential mode: an unhandled rule failure fails the score
+                cancelAll(futures);
+                throw ex.getCause() instanceof RuntimeException runtime
+                    ? runtime
+                    : new IllegalStateException("Rule evaluation failed", ex.getCause());
+            } catch (InterruptedException ex) {
+                cancelAll(futures);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while evaluating rules", ex);
+            }
+            metrics.recordSignal(i, signal);
+            if (signal.triggered()) {
+                triggeredMask |= 1 << i;
+                totalScore += rules.weight(i, signal);
+            }
+        }
+        return toRiskScore(transaction, rules, totalScore, triggeredMask, startNanos);
+    }
+    
+    private static void cancelAll(Future<RiskSignal>[] futures) {
+        for (Future<RiskSignal> future : futures) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+    
+    /**
+     * Returns the binding for the current configuration, rebinding after a swap.
+     * Two threads may rebind the same version concurrently; both results are equivalent.
+     */
+    private RuleTable.Binding currentBinding() {
+        RuleConfiguration configuration = configurationStore.current();
+        RuleTable.Binding current = binding;
+        if (current.configuration() != configuration) {
+            current = ruleTable.bind(configuration);
+            binding = current;
+        }
+        return current;
+    }
+    
+    private RiskScore toRiskScore(Transaction transaction, RuleTable.Binding rules, int totalScore,
+                                  int triggeredMask, long startNanos) {
+        List<String> reasonCodes = ruleTable.reasonCodes(triggeredMask);
+        RuleConfiguration configuration = rules.configuration();
         
-        // Determine risk level using configurable thresholds
+        // Determine risk level using the thresholds of the configuration version in use
         RiskScore.RiskLevel riskLevel = RiskScore.calculateRiskLevel(
             totalScore,
-            thresholdConfig.getRiskThresholdMedium(),
-            thresholdConfig.getRiskThresholdHigh(),
-            thresholdConfig.getRiskThresholdCritical()
+            configuration.riskThresholdMedium(),
+            configuration.riskThresholdHigh(),
+            configuration.riskThresholdCritical()
         );
+        metrics.recordScore(totalScore, riskLevel);
         
-        long calculationTime = System.currentTimeMillis() - startTime;
-        log.info("Risk score calculated for transaction {}: score={}, level={}, reasons={}, time={}ms",
-                 transaction.transactionId(), totalScore, riskLevel, reasonCodes, calculationTime);
+        if (log.isDebugEnabled()) {
+            log.debug("Risk score calculated for transaction {}: score={}, level={}, reasons={}, config={}, time={}us",
+                      transaction.transactionId(), totalScore, riskLevel, reasonCodes, configuration.version(),
+                      TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        }
         
-        return new RiskScore(transaction.transactionId(), totalScore, riskLevel, reasonCodes);
+        return new RiskScore(transaction.transactionId(), totalScore, riskLevel, reasonCodes, configuration.version());
     }
 }
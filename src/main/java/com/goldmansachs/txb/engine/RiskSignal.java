@@ -3,23 +3,37 @@ package com.goldmansachs.txb.engine;
 /**
  * Represents a signal from a risk rule evaluation.
  * Each rule produces a signal with a weight and reason code.
+ * 
+ * Signals are immutable, so rules should create their triggered and non-triggered
+ * signals once and return the shared instances rather than allocating per evaluation.
+ * 
+ * {@code fallback} marks a signal that was assumed rather than evaluated, e.g. because
+ * the rule's dependency was unavailable or it missed the engine deadline.
  */
 public record RiskSignal(
     String reasonCode,
     int weight,
-    boolean triggered
+    boolean triggered,
+    boolean fallback
 ) {
     /**
      * Factory method for creating a triggered signal
      */
     public static RiskSignal triggered(String reasonCode, int weight) {
-        return new RiskSignal(reasonCode, weight, true);
+        return new RiskSignal(reasonCode, weight, true, false);
     }
     
     /**
      * Factory method for creating a non-triggered signal
      */
     public static RiskSignal notTriggered(String reasonCode) {
-        return new RiskSignal(reasonCode, 0, false);
+        return new RiskSignal(reasonCode, 0, false, false);
+    }
+    
+    /**
+     * @return A copy of this signal marked as a fallback
+     */
+    public RiskSignal asFallback() {
+        return new RiskSignal(reasonCode, weight, triggered, true);
     }
 }
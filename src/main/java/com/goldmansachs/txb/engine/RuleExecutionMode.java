@@ -0,0 +1,17 @@
+package com.goldmansachs.txb.engine;
+
+/**
+ * How the engine evaluates the rules of a single transaction.
+ */
+public enum RuleExecutionMode {
+    /**
+     * Rules run one after another on the calling thread. Total latency is the sum of all rules.
+     */
+    SEQUENTIAL,
+    
+    /**
+     * Rules fan out on virtual threads and are joined under a per-score deadline.
+     * Total latency is bounded by the deadline; rules that miss it contribute their fallback signal.
+     */
+    PARALLEL
+}
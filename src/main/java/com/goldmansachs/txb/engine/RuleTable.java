@@ -0,0 +1,125 @@
+package com.goldmansachs.txb.engine;
+
+import com.goldmansachs.txb.domain.config.RuleConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rules compiled into a fixed-order array, with the reason-code list for every possible
+ * combination of triggered rules precomputed and indexed by bitmask.
+ * 
+ * Bit {@code i} of a mask is set when rule {@code i} triggered. Since reason codes are
+ * reported in rule order, each of the 2^N masks maps to exactly one immutable list, so
+ * the engine can attach a shared list to every RiskScore instead of building one per score.
+ */
+final class RuleTable {
+    
+    /**
+     * Caps the eagerly built mask table at 2^16 lists. Well above the current rule count;
+     * raising it means reconsidering eager interning.
+     */
+    static final int MAX_RULES = 16;
+    
+    private final RiskRule[] rules;
+    private final List<String>[] reasonCodesByMask;
+    private final RiskSignal[] skippedSignals;
+    private final int ioBoundMask;
+    
+    @SuppressWarnings("unchecked")
+    private RuleTable(RiskRule[] rules) {
+        this.rules = rules;
+        this.reasonCodesByMask = new List[1 << rules.length];
+        for (int mask = 0; mask < reasonCodesByMask.length; mask++) {
+            List<String> reasonCodes = new ArrayList<>(Integer.bitCount(mask));
+            for (int i = 0; i < rules.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    reasonCodes.add(rules[i].reasonCode());
+                }
+            }
+            reasonCodesByMask[mask] = List.copyOf(reasonCodes);
+        }
+        this.skippedSignals = new RiskSignal[rules.length];
+        int ioBound = 0;
+        for (int i = 0; i < rules.length; i++) {
+            skippedSignals[i] = RiskSignal.notTriggered(rules[i].reasonCode()).asFallback();
+            if (rules[i].ioBound()) {
+                ioBound |= 1 << i;
+            }
+        }
+        this.ioBoundMask = ioBound;
+    }
+    
+    static RuleTable compile(List<RiskRule> rules) {
+        if (rules.size() > MAX_RULES) {
+            throw new IllegalStateException(
+                "RuleTable supports at most " + MAX_RULES + " rules, got " + rules.size());
+        }
+        return new RuleTable(rules.toArray(new RiskRule[0]));
+    }
+    
+    int size() {
+        return rules.length;
+    }
+    
+    RiskRule rule(int index) {
+        return rules[index];
+    }
+    
+    /**
+     * @return The mask of the rules that are {@link RiskRule#ioBound() I/O-bound}
+     */
+    int ioBoundMask() {
+        return ioBoundMask;
+    }
+    
+    /**
+     * @return The shared signal for a rule skipped in degraded scoring: not triggered, marked as a fallback
+     */
+    RiskSignal skippedSignal(int index) {
+        return skippedSignals[index];
+    }
+    
+    /**
+     * Resolves a configuration against the table's rule order, so the hot path reads
+     * weights and enable flags by rule index instead of by reason code.
+     */
+    Binding bind(RuleConfiguration configuration) {
+        int[] weights = new int[rules.length];
+        int enabledMask = 0;
+        for (int i = 0; i < rules.length; i++) {
+            String reasonCode = rules[i].reasonCode();
+            weights[i] = configuration.weights().getOrDefault(reasonCode, Binding.RULE_WEIGHT);
+            if (configuration.isEnabled(reasonCode)) {
+                enabledMask |= 1 << i;
+            }
+        }
+        return new Binding(configuration, weights, enabledMask);
+    }
+    
+    /**
+     * @return The interned, immutable reason-code list for the rules set in {@code triggeredMask}
+     */
+    List<String> reasonCodes(int triggeredMask) {
+        return reasonCodesByMask[triggeredMask];
+    }
+    
+    /**
+     * A configuration resolved against this table. Bit {@code i} of {@code enabledMask}
+     * is set when rule {@code i} is enabled.
+     */
+    record Binding(RuleConfiguration configuration, int[] weights, int enabledMask) {
+        
+        /** Marks a rule without a configured weight, which keeps the weight of its own signal. */
+        static final int RULE_WEIGHT = -1;
+        
+        boolean enabled(int ruleIndex) {
+            return (enabledMask & (1 << ruleIndex)) != 0;
+        }
+        
+        int weight(int ruleIndex, RiskSignal signal) {
+            int weight = weights[ruleIndex];
+            return weight == RULE_WEIGHT ? signal.weight() : weight;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.goldmansachs.txb.engine;
+
+import java.util.Map;
+
+/**
+ * One rule's part in a {@link DecisionTrace}.
+ * 
+ * @param reasonCode The rule's reason code
+ * @param enabled false if the rule configuration disabled the rule; it was then not evaluated
+ * @param triggered Whether the rule triggered
+ * @param fallback Whether the signal was assumed (e.g. circuit breaker open) rather than evaluated
+ * @param weight The weight added to the score, after configuration overrides; 0 unless triggered
+ * @param nanos Wall-clock time spent in the rule, including any history lookup it triggered
+ * @param inputs The values the rule compared, as recorded through {@link EvaluationContext#traceInput}
+ */
+public record RuleTrace(
+    String reasonCode,
+    boolean enabled,
+    boolean triggered,
+    boolean fallback,
+    int weight,
+    long nanos,
+    Map<String, Object> inputs
+) {
+    static RuleTrace disabled(String reasonCode) {
+        return new RuleTrace(reasonCode, false, false, false, 0, 0, Map.of());
+    }
+    
+    static RuleTrace skipped(String reasonCode) {
+        return new RuleTrace(reasonCode, true, false, true, 0, 0, Map.of("skipped", "degraded"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.goldmansachs.txb.engine.rules;
+
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.EvaluationContext;
+import com.goldmansachs.txb.engine.RiskRule;
+import com.goldmansachs.txb.engine.RiskSignal;
+import com.goldmansachs.txb.infrastructure.velocity.VelocityWindow;
+import com.goldmansachs.txb.infrastructure.velocity.VelocityWindowStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Rule that checks if the beneficiary is receiving unusually many payments, across all
+ * clients (a typical pattern for mule accounts collecting funds).
+ * Thresholds (counting this payment), any of:
+ * - More than {@code txb.risk.velocity.beneficiary.max-count-1h} payments within an hour
+ * - More than {@code txb.risk.velocity.beneficiary.max-amount-24h} received within a day
+ * Weight: +150 (unless overridden by the rule configuration)
+ * 
+ * Amounts are summed in the base currency ({@code txb.risk.fx.base-currency}), which
+ * the amount limit is expressed in. Counts come from the in-memory
+ * {@link VelocityWindowStore}, so the rule does no I/O.
+ */
+@Component
+public class BeneficiaryVelocityRule implements RiskRule {
+    
+    private static final Logger log = LoggerFactory.getLogger(BeneficiaryVelocityRule.class);
+    private static final String REASON_CODE = "BENEFICIARY_VELOCITY";
+    private static final int WEIGHT = 150;
+    private static final RiskSignal TRIGGERED = RiskSignal.triggered(REASON_CODE, WEIGHT);
+    private static final RiskSignal NOT_TRIGGERED = RiskSignal.notTriggered(REASON_CODE);
+    
+    private final VelocityWindowStore velocityStore;
+    private final long maxCountPerHour;
+    private final long maxAmountPerDay;
+    
+    public BeneficiaryVelocityRule(VelocityWindowStore velocityStore,
+                                   @Value("${txb.risk.velocity.beneficiary.max-count-1h:50}") long maxCountPerHour,
+                                   @Value("${txb.risk.velocity.beneficiary.max-amount-24h:5000000}") BigDecimal maxAmountPerDay) {
+        if (maxCountPerHour < 1 || maxAmountPerDay.signum() <= 0) {
+            throw new IllegalArgumentException("txb.risk.velocity.beneficiary limits must be positive");
+        }
+        this.velocityStore = velocityStore;
+        this.maxCountPerHour = maxCountPerHour;
+        this.maxAmountPerDay = VelocityWindowStore.toMinorUnits(maxAmountPerDay);
+    }
+    
+    @Override
+    public String reasonCode() {
+        return REASON_CODE;
+    }
+    
+    @Override
+    public RiskSignal evaluate(Transaction transaction, EvaluationContext context) {
+        String beneficiaryId = transaction.beneficiaryId();
+        VelocityWindowStore.Scope scope = VelocityWindowStore.Scope.BENEFICIARY;
+        
+        long countPerHour = velocityStore.count(scope, beneficiaryId, VelocityWindow.ONE_HOUR) + 1;
+        long amountPerDay = velocityStore.amount(scope, beneficiaryId, VelocityWindow.ONE_DAY)
+            + velocityStore.amountOf(transaction);
+        if (context.tracing()) {
+            context.traceInput("count1h", countPerHour);
+            context.traceInput("maxCount1h", maxCountPerHour);
+            context.traceInput("amountMinorUnits24h", amountPerDay);
+            context.traceInput("maxAmountMinorUnits24h", maxAmountPerDay);
+        }
+        
+        if (countPerHour > maxCountPerHour || amountPerDay > maxAmountPerDay) {
+            if (log.isDebugEnabled()) {
+                log.debug("BENEFICIARY_VELOCITY triggered for transaction {}. Beneficiary {}: {} payments/1h, {} minor units/24h",
+                          transaction.transactionId(), beneficiaryId, countPerHour, amountPerDay);
+            }
+            return TRIGGERED;
+        }
+        
+        return NOT_TRIGGERED;
+    }
+}
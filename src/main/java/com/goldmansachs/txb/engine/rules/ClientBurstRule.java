@@ -0,0 +1,67 @@
+package com.goldmansachs.txb.engine.rules;
+
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.EvaluationContext;
+import com.goldmansachs.txb.engine.RiskRule;
+import com.goldmansachs.txb.engine.RiskSignal;
+import com.goldmansachs.txb.infrastructure.velocity.VelocityWindow;
+import com.goldmansachs.txb.infrastructure.velocity.VelocityWindowStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rule that checks if the client is sending payments in a burst.
+ * Threshold: more than {@code txb.risk.velocity.client-burst.max-count} payments within a minute,
+ * counting this one
+ * Weight: +200 (unless overridden by the rule configuration)
+ * 
+ * Counts come from the in-memory {@link VelocityWindowStore}, so the rule does no I/O.
+ */
+@Component
+public class ClientBurstRule implements RiskRule {
+    
+    private static final Logger log = LoggerFactory.getLogger(ClientBurstRule.class);
+    private static final String REASON_CODE = "CLIENT_BURST";
+    private static final int WEIGHT = 200;
+    private static final RiskSignal TRIGGERED = RiskSignal.triggered(REASON_CODE, WEIGHT);
+    private static final RiskSignal NOT_TRIGGERED = RiskSignal.notTriggered(REASON_CODE);
+    
+    private final VelocityWindowStore velocityStore;
+    private final long maxCount;
+    
+    public ClientBurstRule(VelocityWindowStore velocityStore,
+                           @Value("${txb.risk.velocity.client-burst.max-count:20}") long maxCount) {
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("txb.risk.velocity.client-burst.max-count must be positive, was " + maxCount);
+        }
+        this.velocityStore = velocityStore;
+        this.maxCount = maxCount;
+    }
+    
+    @Override
+    public String reasonCode() {
+        return REASON_CODE;
+    }
+    
+    @Override
+    public RiskSignal evaluate(Transaction transaction, EvaluationContext context) {
+        long count = velocityStore.count(VelocityWindowStore.Scope.CLIENT, transaction.clientId(),
+            VelocityWindow.ONE_MINUTE) + 1;
+        if (context.tracing()) {
+            context.traceInput("count1m", count);
+            context.traceInput("maxCount1m", maxCount);
+        }
+        
+        if (count > maxCount) {
+            if (log.isDebugEnabled()) {
+                log.debug("CLIENT_BURST triggered for transaction {}. Client {} sent {} payments in the last minute",
+                          transaction.transactionId(), transaction.clientId(), count);
+            }
+            return TRIGGERED;
+        }
+        
+        return NOT_TRIGGERED;
+    }
+}
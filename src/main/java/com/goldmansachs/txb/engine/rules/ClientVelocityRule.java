@@ -0,0 +1,88 @@
+package com.goldmansachs.txb.engine.rules;
+
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.EvaluationContext;
+import com.goldmansachs.txb.engine.RiskRule;
+import com.goldmansachs.txb.engine.RiskSignal;
+import com.goldmansachs.txb.infrastructure.velocity.VelocityWindow;
+import com.goldmansachs.txb.infrastructure.velocity.VelocityWindowStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Rule that checks if the client's sustained payment volume is unusually high.
+ * Thresholds (counting this payment), any of:
+ * - More than {@code txb.risk.velocity.client.max-count-1h} payments within an hour
+ * - More than {@code txb.risk.velocity.client.max-count-24h} payments within a day
+ * - More than {@code txb.risk.velocity.client.max-amount-24h} paid within a day
+ * Weight: +150 (unless overridden by the rule configuration)
+ * 
+ * Amounts are summed in the base currency ({@code txb.risk.fx.base-currency}), which
+ * the amount limit is expressed in. Counts come from the in-memory
+ * {@link VelocityWindowStore}, so the rule does no I/O.
+ */
+@Component
+public class ClientVelocityRule implements RiskRule {
+    
+    private static final Logger log = LoggerFactory.getLogger(ClientVelocityRule.class);
+    private static final String REASON_CODE = "CLIENT_VELOCITY";
+    private static final int WEIGHT = 150;
+    private static final RiskSignal TRIGGERED = RiskSignal.triggered(REASON_CODE, WEIGHT);
+    private static final RiskSignal NOT_TRIGGERED = RiskSignal.notTriggered(REASON_CODE);
+    
+    private final VelocityWindowStore velocityStore;
+    private final long maxCountPerHour;
+    private final long maxCountPerDay;
+    private final long maxAmountPerDay;
+    
+    public ClientVelocityRule(VelocityWindowStore velocityStore,
+                              @Value("${txb.risk.velocity.client.max-count-1h:100}") long maxCountPerHour,
+                              @Value("${txb.risk.velocity.client.max-count-24h:500}") long maxCountPerDay,
+                              @Value("${txb.risk.velocity.client.max-amount-24h:1000000}") BigDecimal maxAmountPerDay) {
+        if (maxCountPerHour < 1 || maxCountPerDay < 1 || maxAmountPerDay.signum() <= 0) {
+            throw new IllegalArgumentException("txb.risk.velocity.client limits must be positive");
+        }
+        this.velocityStore = velocityStore;
+        this.maxCountPerHour = maxCountPerHour;
+        this.maxCountPerDay = maxCountPerDay;
+        this.maxAmountPerDay = VelocityWindowStore.toMinorUnits(maxAmountPerDay);
+    }
+    
+    @Override
+    public String reasonCode() {
+        return REASON_CODE;
+    }
+    
+    @Override
+    public RiskSignal evaluate(Transaction transaction, EvaluationContext context) {
+        String clientId = transaction.clientId();
+        VelocityWindowStore.Scope scope = VelocityWindowStore.Scope.CLIENT;
+        
+        long countPerHour = velocityStore.count(scope, clientId, VelocityWindow.ONE_HOUR) + 1;
+        long countPerDay = velocityStore.count(scope, clientId, VelocityWindow.ONE_DAY) + 1;
+        long amountPerDay = velocityStore.amount(scope, clientId, VelocityWindow.ONE_DAY)
+            + velocityStore.amountOf(transaction);
+        if (context.tracing()) {
+            context.traceInput("count1h", countPerHour);
+            context.traceInput("maxCount1h", maxCountPerHour);
+            context.traceInput("count24h", countPerDay);
+            context.traceInput("maxCount24h", maxCountPerDay);
+            context.traceInput("amountMinorUnits24h", amountPerDay);
+            context.traceInput("maxAmountMinorUnits24h", maxAmountPerDay);
+        }
+        
+        if (countPerHour > maxCountPerHour || countPerDay > maxCountPerDay || amountPerDay > maxAmountPerDay) {
+            if (log.isDebugEnabled()) {
+                log.debug("CLIENT_VELOCITY triggered for transaction {}. Client {}: {} payments/1h, {} payments/24h, {} minor units/24h",
+                          transaction.transactionId(), clientId, countPerHour, countPerDay, amountPerDay);
+            }
+            return TRIGGERED;
+        }
+        
+        return NOT_TRIGGERED;
+    }
+}
@@ -1,24 +1,22 @@
 package com.goldmansachs.txb.engine.rules;
 
 import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.EvaluationContext;
 import com.goldmansachs.txb.engine.RiskRule;
 import com.goldmansachs.txb.engine.RiskSignal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
-import java.util.Set;
-import java.util.stream.Collectors;
-
 /**
  * Rule that checks if the beneficiary is in a high-risk country.
- * Weight: +250
+ * Weight: +250 (unless overridden by the rule configuration)
  * 
- * High-risk countries are configurable via application properties.
+ * High-risk countries are part of the hot-reloadable rule configuration.
  * This list would typically be maintained by compliance teams and updated regularly
- * based on OFAC sanctions, FATF grey/black lists, and internal risk assessments.
+ * based on OFAC sanctions, FATF grey/black lists, and internal risk assessments,
+ * so a list update takes effect without a restart. The list is held as a
+ * {@link com.goldmansachs.txb.domain.model.CountrySet}, so the check is a single bit test.
  */
 @Component
 public class HighRiskCountryRule implements RiskRule {
@@ -26,26 +24,28 @@ public class HighRiskCountryRule implements RiskRule {
     private static final Logger log = LoggerFactory.getLogger(HighRiskCountryRule.class);
     private static final String REASON_CODE = "HIGH_RISK_COUNTRY";
     private static final int WEIGHT = 250;
+    private static final RiskSignal TRIGGERED = RiskSignal.triggered(REASON_CODE, WEIGHT);
+    private static final RiskSignal NOT_TRIGGERED = RiskSignal.notTriggered(REASON_CODE);
     
-    private final Set<String> highRiskCountries;
-    
-    public HighRiskCountryRule(@Value("${txb.risk.high-risk-countries:IR,KP,SY,CU,VE}") String highRiskCountriesConfig) {
-        this.highRiskCountries = Arrays.stream(highRiskCountriesConfig.split(","))
-                .map(String::trim)
-                .collect(Collectors.toSet());
-        log.info("Initialized HighRiskCountryRule with countries: {}", this.highRiskCountries);
+    @Override
+    public String reasonCode() {
+        return REASON_CODE;
     }
     
     @Override
-    public RiskSignal evaluate(Transaction transaction) {
-        boolean isHighRiskCountry = highRiskCountries.contains(transaction.country());
+    public RiskSignal evaluate(Transaction transaction, EvaluationContext context) {
+        boolean isHighRiskCountry = context.configuration().highRiskCountries().contains(transaction.country());
+        if (context.tracing()) {
+            context.traceInput("country", transaction.countryCode());
+            context.traceInput("highRiskCountry", isHighRiskCountry);
+        }
         
         if (isHighRiskCountry) {
-            log.info("HIGH_RISK_COUNTRY triggered for transaction {}. Country: {}",
-                     transaction.transactionId(), transaction.country());
-            return RiskSignal.triggered(REASON_CODE, WEIGHT);
+            log.debug("HIGH_RISK_COUNTRY triggered for transaction {}. Country: {}",
+                      transaction.transactionId(), transaction.countryCode());
+            return TRIGGERED;
         }
         
-        return RiskSignal.notTriggered(REASON_CODE);
+        return NOT_TRIGGERED;
     }
 }
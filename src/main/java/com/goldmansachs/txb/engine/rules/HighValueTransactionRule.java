@@ -1,10 +1,12 @@
 package com.goldmansachs.txb.engine.rules;
 
 import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.EvaluationContext;
 import com.goldmansachs.txb.engine.RiskRule;
 import com.goldmansachs.txb.engine.RiskSignal;
+import com.goldmansachs.txb.infrastructure.fx.FxRateStore;
+import com.goldmansachs.txb.infrastructure.fx.FxRateTable;
 import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryEntity;
-import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryRepository;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,10 +18,15 @@ import java.util.Optional;
 /**
  * Rule that checks if the transaction amount is significantly higher than the client's average.
  * Threshold: 3x the average transaction amount
- * Weight: +200
+ * Weight: +200 (unless overridden by the rule configuration)
+ * 
+ * The amount is converted to the base currency through {@link FxRateStore}, the currency
+ * profile averages are kept in, and compared in minor units as longs. A payment in a
+ * currency without an FX rate does not trigger the rule.
  * 
  * Circuit Breaker: If the transaction history service is unavailable, this rule
  * does not trigger (fail-open approach, as we cannot determine the average).
+ * Degraded scoring skips the rule, since the history read may reach the database.
  */
 @Component
 public class HighValueTransactionRule implements RiskRule {
@@ -27,45 +34,93 @@ public class HighValueTransactionRule implements RiskRule {
     private static final Logger log = LoggerFactory.getLogger(HighValueTransactionRule.class);
     private static final String REASON_CODE = "HIGH_VALUE_TRANSACTION";
     private static final int WEIGHT = 200;
-    private static final BigDecimal THRESHOLD_MULTIPLIER = new BigDecimal("3.0");
+    private static final RiskSignal TRIGGERED = RiskSignal.triggered(REASON_CODE, WEIGHT);
+    private static final RiskSignal NOT_TRIGGERED = RiskSignal.notTriggered(REASON_CODE);
+    private static final RiskSignal FALLBACK = NOT_TRIGGERED.asFallback();
+    private static final long THRESHOLD_MULTIPLIER = 3;
+    
+    private final FxRateStore fxRates;
+    
+    public HighValueTransactionRule(FxRateStore fxRates) {
+        this.fxRates = fxRates;
+    }
     
-    private final TransactionHistoryRepository historyRepository;
+    @Override
+    public String reasonCode() {
+        return REASON_CODE;
+    }
     
-    public HighValueTransactionRule(TransactionHistoryRepository historyRepository) {
-        this.historyRepository = historyRepository;
+    @Override
+    public boolean ioBound() {
+        return true;
     }
     
     @Override
     @CircuitBreaker(name = "transactionHistory", fallbackMethod = "fallbackEvaluate")
-    public RiskSignal evaluate(Transaction transaction) {
-        Optional<TransactionHistoryEntity> history = historyRepository
-            .findByClientIdAndBeneficiaryId(transaction.clientId(), transaction.beneficiaryId());
+    public RiskSignal evaluate(Transaction transaction, EvaluationContext context) {
+        Optional<TransactionHistoryEntity> history = context.history();
         
         if (history.isEmpty() || history.get().getAvgAmount() == null) {
+            context.traceInput("avgAmount", null);
             // No history available - cannot determine if high value
-            return RiskSignal.notTriggered(REASON_CODE);
+            return NOT_TRIGGERED;
         }
         
         BigDecimal avgAmount = history.get().getAvgAmount();
-        BigDecimal threshold = avgAmount.multiply(THRESHOLD_MULTIPLIER);
-        boolean isHighValue = transaction.amount().compareTo(threshold) > 0;
+        long amount = fxRates.toBaseMinorUnits(transaction);
+        if (amount == FxRateTable.NO_RATE) {
+            if (context.tracing()) {
+                context.traceInput("amount", transaction.amount());
+                context.traceInput("currency", transaction.currencyCode());
+                context.traceInput("fxRate", null);
+            }
+            return NOT_TRIGGERED;
+        }
+        long threshold = saturatedMultiply(FxRateTable.toMinorUnits(avgAmount), THRESHOLD_MULTIPLIER);
+        boolean isHighValue = amount > threshold;
+        if (context.tracing()) {
+            context.traceInput("amount", transaction.amount());
+            context.traceInput("currency", transaction.currencyCode());
+            context.traceInput("fxRate", fxRates.current().rate(transaction.currency()));
+            context.traceInput("baseAmount", BigDecimal.valueOf(amount, FxRateTable.AMOUNT_SCALE));
+            context.traceInput("avgAmount", avgAmount);
+            context.traceInput("threshold", BigDecimal.valueOf(threshold, FxRateTable.AMOUNT_SCALE));
+        }
         
         if (isHighValue) {
-            log.info("HIGH_VALUE_TRANSACTION triggered for transaction {}. Amount: {}, Avg: {}, Threshold: {}",
-                     transaction.transactionId(), transaction.amount(), avgAmount, threshold);
-            return RiskSignal.triggered(REASON_CODE, WEIGHT);
+            if (log.isDebugEnabled()) {
+                log.debug("HIGH_VALUE_TRANSACTION triggered for transaction {}. Amount: {} {}, Base amount: {}, Avg: {}, Threshold: {}",
+                          transaction.transactionId(), transaction.amount(), transaction.currencyCode(),
+                          BigDecimal.valueOf(amount, FxRateTable.AMOUNT_SCALE), avgAmount,
+                          BigDecimal.valueOf(threshold, FxRateTable.AMOUNT_SCALE));
+            }
+            return TRIGGERED;
         }
         
-        return RiskSignal.notTriggered(REASON_CODE);
+        return NOT_TRIGGERED;
     }
     
     /**
      * Fallback method when circuit breaker is open.
      * Does not trigger the rule (fail-open approach).
      */
-    public RiskSignal fallbackEvaluate(Transaction transaction, Exception ex) {
+    public RiskSignal fallbackEvaluate(Transaction transaction, EvaluationContext context, Exception ex) {
+        if (context.tracing()) {
+            context.traceInput("fallbackReason", ex.toString());
+        }
         log.warn("Circuit breaker open for HIGH_VALUE_TRANSACTION rule. Not triggering rule. Error: {}", 
                  ex.getMessage());
-        return RiskSignal.notTriggered(REASON_CODE);
+        return fallbackSignal(transaction);
+    }
+    
+    private static long saturatedMultiply(long value, long multiplier) {
+        long high = Math.multiplyHigh(value, multiplier);
+        long low = value * multiplier;
+        return high == (low >> 63) ? low : (value < 0 ? Long.MIN_VALUE : Long.MAX_VALUE);
+    }
+    
+    @Override
+    public RiskSignal fallbackSignal(Transaction transaction) {
+        return FALLBACK;
     }
 }
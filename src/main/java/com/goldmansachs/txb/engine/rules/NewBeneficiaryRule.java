@@ -1,9 +1,10 @@
 package com.goldmansachs.txb.engine.rules;
 
 import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.EvaluationContext;
 import com.goldmansachs.txb.engine.RiskRule;
 import com.goldmansachs.txb.engine.RiskSignal;
-import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryRepository;
+import com.goldmansachs.txb.infrastructure.repository.KnownPairFilter;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,10 +12,15 @@ import org.springframework.stereotype.Component;
 
 /**
  * Rule that checks if the beneficiary has never been paid by this client before.
- * Weight: +150
+ * Weight: +150 (unless overridden by the rule configuration)
+ * 
+ * Most transactions go to known beneficiaries, but proving a pair is new is also common.
+ * A {@link KnownPairFilter} answers "new as of its last sync" without I/O; only pairs the
+ * filter reports as possibly known are checked against the transaction history.
  * 
  * Circuit Breaker: If the transaction history service is unavailable, this rule
  * conservatively assumes the beneficiary is new (fail-safe approach).
+ * Degraded scoring skips the rule altogether, without flagging the payment.
  */
 @Component
 public class NewBeneficiaryRule implements RiskRule {
@@ -22,35 +28,70 @@ public class NewBeneficiaryRule implements RiskRule {
     private static final Logger log = LoggerFactory.getLogger(NewBeneficiaryRule.class);
     private static final String REASON_CODE = "NEW_BENEFICIARY";
     private static final int WEIGHT = 150;
+    private static final RiskSignal TRIGGERED = RiskSignal.triggered(REASON_CODE, WEIGHT);
+    private static final RiskSignal NOT_TRIGGERED = RiskSignal.notTriggered(REASON_CODE);
+    private static final RiskSignal FALLBACK = TRIGGERED.asFallback();
+    
+    private final KnownPairFilter knownPairs;
     
-    private final TransactionHistoryRepository historyRepository;
+    public NewBeneficiaryRule(KnownPairFilter knownPairs) {
+        this.knownPairs = knownPairs;
+    }
     
-    public NewBeneficiaryRule(TransactionHistoryRepository historyRepository) {
-        this.historyRepository = historyRepository;
+    @Override
+    public String reasonCode() {
+        return REASON_CODE;
+    }
+    
+    @Override
+    public boolean ioBound() {
+        return true;
     }
     
     @Override
     @CircuitBreaker(name = "transactionHistory", fallbackMethod = "fallbackEvaluate")
-    public RiskSignal evaluate(Transaction transaction) {
-        boolean isNewBeneficiary = historyRepository
-            .findByClientIdAndBeneficiaryId(transaction.clientId(), transaction.beneficiaryId())
-            .isEmpty();
+    public RiskSignal evaluate(Transaction transaction, EvaluationContext context) {
+        boolean isNewBeneficiary;
+        if (!knownPairs.mightContain(transaction.clientId(), transaction.beneficiaryId())) {
+            isNewBeneficiary = true;
+            context.traceInput("knownPairFilter", "not_known");
+        } else {
+            context.traceInput("knownPairFilter", "maybe_known");
+            isNewBeneficiary = context.history().isEmpty();
+            if (context.tracing()) {
+                context.traceInput("historyFound", !isNewBeneficiary);
+            }
+            if (isNewBeneficiary) {
+                knownPairs.recordFalsePositive();
+            }
+        }
         
         if (isNewBeneficiary) {
-            log.info("NEW_BENEFICIARY triggered for transaction {}", transaction.transactionId());
-            return RiskSignal.triggered(REASON_CODE, WEIGHT);
+            log.debug("NEW_BENEFICIARY triggered for transaction {}", transaction.transactionId());
+            return TRIGGERED;
         }
         
-        return RiskSignal.notTriggered(REASON_CODE);
+        return NOT_TRIGGERED;
     }
     
     /**
      * Fallback method when circuit breaker is open.
      * Conservatively assumes the beneficiary is new (fail-safe).
      */
-    public RiskSignal fallbackEvaluate(Transaction transaction, Exception ex) {
+    public RiskSignal fallbackEvaluate(Transaction transaction, EvaluationContext context, Exception ex) {
+        if (context.tracing()) {
+            context.traceInput("fallbackReason", ex.toString());
+        }
         log.warn("Circuit breaker open for NEW_BENEFICIARY rule. Assuming new beneficiary (conservative). Error: {}", 
                  ex.getMessage());
-        return RiskSignal.triggered(REASON_CODE, WEIGHT);
+        return fallbackSignal(transaction);
+    }
+    
+    /**
+     * Conservatively assumes the beneficiary is new (fail-safe), matching the circuit breaker fallback.
+     */
+    @Override
+    public RiskSignal fallbackSignal(Transaction transaction) {
+        return FALLBACK;
     }
 }
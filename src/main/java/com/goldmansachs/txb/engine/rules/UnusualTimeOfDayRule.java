@@ -1,19 +1,23 @@
 package com.goldmansachs.txb.engine.rules;
 
+import com.goldmansachs.txb.domain.config.BusinessCalendar;
+import com.goldmansachs.txb.domain.config.BusinessDesk;
 import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.engine.EvaluationContext;
 import com.goldmansachs.txb.engine.RiskRule;
 import com.goldmansachs.txb.engine.RiskSignal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-
 /**
  * Rule that checks if the transaction is being made outside of normal business hours.
- * Normal business hours: 09:00 - 17:00 Eastern Time (configurable)
- * Weight: +100
+ * Normal business hours: those of the desk serving the transaction country, by default
+ * 09:00 - 17:00 Eastern Time on weekdays (hot-reloadable via the rule configuration)
+ * Weight: +100 (unless overridden by the rule configuration)
+ * 
+ * Business hours are precomputed per desk as epoch-second intervals (see {@link BusinessCalendar}),
+ * so the check is a binary search with no time-zone conversion.
  * 
  * This rule helps detect potentially fraudulent transactions that occur when
  * legitimate business operations are typically closed.
@@ -24,24 +28,37 @@ public class UnusualTimeOfDayRule implements RiskRule {
     private static final Logger log = LoggerFactory.getLogger(UnusualTimeOfDayRule.class);
     private static final String REASON_CODE = "UNUSUAL_TIME_OF_DAY";
     private static final int WEIGHT = 100;
+    private static final RiskSignal TRIGGERED = RiskSignal.triggered(REASON_CODE, WEIGHT);
+    private static final RiskSignal NOT_TRIGGERED = RiskSignal.notTriggered(REASON_CODE);
     
-    private static final int BUSINESS_HOURS_START = 9;
-    private static final int BUSINESS_HOURS_END = 17;
-    private static final ZoneId BUSINESS_TIMEZONE = ZoneId.of("America/New_York");
+    @Override
+    public String reasonCode() {
+        return REASON_CODE;
+    }
     
     @Override
-    public RiskSignal evaluate(Transaction transaction) {
-        ZonedDateTime transactionTime = transaction.transactionTime().atZoneSameInstant(BUSINESS_TIMEZONE);
-        int hour = transactionTime.getHour();
-        
-        boolean isOutsideBusinessHours = hour < BUSINESS_HOURS_START || hour >= BUSINESS_HOURS_END;
+    public RiskSignal evaluate(Transaction transaction, EvaluationContext context) {
+        BusinessCalendar calendar = context.configuration().businessCalendar();
+        boolean isOutsideBusinessHours = !calendar.isBusinessTime(
+            transaction.transactionTime().toEpochSecond(), transaction.country());
+        if (context.tracing()) {
+            BusinessDesk desk = calendar.deskFor(transaction.country());
+            context.traceInput("desk", desk.name());
+            context.traceInput("localTime", transaction.transactionTime().atZoneSameInstant(desk.zone()).toLocalDateTime());
+            context.traceInput("businessHours", desk.startHour() + "-" + desk.endHour());
+            context.traceInput("timeZone", desk.zone().getId());
+        }
         
         if (isOutsideBusinessHours) {
-            log.info("UNUSUAL_TIME_OF_DAY triggered for transaction {}. Hour: {} ET",
-                     transaction.transactionId(), hour);
-            return RiskSignal.triggered(REASON_CODE, WEIGHT);
+            if (log.isDebugEnabled()) {
+                BusinessDesk desk = calendar.deskFor(transaction.country());
+                log.debug("UNUSUAL_TIME_OF_DAY triggered for transaction {}. Local time: {} (desk {}, {})",
+                          transaction.transactionId(), transaction.transactionTime().atZoneSameInstant(desk.zone()),
+                          desk.name(), desk.zone());
+            }
+            return TRIGGERED;
         }
         
-        return RiskSignal.notTriggered(REASON_CODE);
+        return NOT_TRIGGERED;
     }
 }
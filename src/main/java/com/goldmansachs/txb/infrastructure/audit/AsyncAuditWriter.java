@@ -0,0 +1,469 @@
+package com.goldmansachs.txb.infrastructure.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind pipeline that takes audit persistence off the scoring request path.
+ * 
+ * Request threads enqueue {@link AuditRecord}s into a bounded queue. A single background
+ * flusher drains the queue and group-commits up to {@code batch-size} rows per JDBC batch
+ * and transaction, so commit latency is amortised across many decisions and never shows
+ * up in scoring latency.
+ * 
+ * Audit is a regulatory record, so no row is ever dropped:
+ * - Backpressure: when the queue is full the caller waits up to {@code offer-timeout}
+ *   for space, then writes the record to the local spill file itself (fsync'd)
+ * - Failed flushes (database slow or down) are written to the spill file as well. A batch
+ *   that fails for another reason is retried row by row, so one bad row does not hold
+ *   back the rest; only the rows that fail again are spilled
+ * - Spilled records are replayed into the database by the flusher once writes succeed again,
+ *   also falling back to row by row. A row that fails {@value #MAX_REPLAY_ATTEMPTS} replays
+ *   for a reason other than the database being unavailable is quarantined in a
+ *   {@code .failed} file, and its spill file is rewritten without it; rename a
+ *   {@code .failed} file to {@code .replay} to retry its rows. A spill file that cannot be
+ *   read at all is quarantined whole after as many attempts
+ * - On shutdown the queue is drained; anything that cannot be persisted is spilled
+ * 
+ * The table is partitioned by {@code created_at} (see {@link AuditPartitionManager}) and has
+ * no global unique index on transaction ID, so inserts are made idempotent here instead: a
+ * row is skipped if the same transaction ID already has a row within {@code dedupe-window}
+ * of its timestamp. That check probes the transaction ID index of only the few partitions
+ * in the window, so its cost does not grow with the table. Each batch first takes
+ * transaction-scoped advisory locks on its transaction IDs, in a fixed order, so two
+ * instances writing the same ID cannot both pass the check.
+ */
+@Component
+@DependsOn("auditPartitionManager")
+public class AsyncAuditWriter {
+    
+    private static final Logger log = LoggerFactory.getLogger(AsyncAuditWriter.class);
+    
+    /** Failed replays of one row (or unreadable spill file), with the database available, before it is quarantined. */
+    static final int MAX_REPLAY_ATTEMPTS = 5;
+    
+    /** Locks taken in hash order, so concurrent batches cannot deadlock on each other. */
+    static final String LOCK_SQL =
+        "SELECT count(pg_advisory_xact_lock(lock_key)) FROM (SELECT DISTINCT hashtextextended(transaction_id, 0) AS lock_key "
+            + "FROM unnest(?::text[]) AS transaction_id ORDER BY lock_key) AS lock_keys";
+    
+    static final String INSERT_SQL =
+        "INSERT INTO transaction_risk_scores (transaction_id, risk_score, risk_level, reason_codes, created_at, config_version) "
+            + "SELECT ?, ?, ?, ?::text[], ?::timestamptz, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM transaction_risk_scores "
+            + "WHERE transaction_id = ? AND created_at >= ?::timestamptz AND created_at < ?::timestamptz)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditSpillFile spillFile;
+    private final BlockingQueue<AuditRecord> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+    private final Duration replayInterval;
+    private final Duration dedupeWindow;
+    
+    private final Counter writtenCounter;
+    private final Counter spilledCounter;
+    private final Counter replayedCounter;
+    private final Counter flushFailureCounter;
+    private final Counter quarantinedCounter;
+    private final Counter quarantinedRecordsCounter;
+    private final Timer flushTimer;
+    
+    /** Failed replay attempts per unreadable spill file; only touched by the flusher thread. */
+    private final Map<Path, Integer> replayFailures = new HashMap<>();
+    /** Failed replay attempts per row; only touched by the flusher thread. */
+    private final Map<AuditRecord, Integer> recordReplayFailures = new HashMap<>();
+    
+    private final Thread flusher;
+    private volatile boolean running = true;
+    private volatile long lastReplayAttempt;
+    
+    public AsyncAuditWriter(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.audit.queue-capacity:100000}") int queueCapacity,
+            @Value("${txb.risk.audit.batch-size:500}") int batchSize,
+            @Value("${txb.risk.audit.flush-interval:50ms}") Duration flushInterval,
+            @Value("${txb.risk.audit.offer-timeout:5ms}") Duration offerTimeout,
+            @Value("${txb.risk.audit.replay-interval:30s}") Duration replayInterval,
+            @Value("${txb.risk.audit.spill-directory:audit-spill}") Path spillDirectory,
+            @Value("${txb.risk.audit.dedupe-window:1d}") Duration dedupeWindow) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.spillFile = new AuditSpillFile(spillDirectory, objectMapper);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+        this.replayInterval = replayInterval;
+        this.dedupeWindow = dedupeWindow;
+        
+        Gauge.builder("risk.audit.queue.size", queue, BlockingQueue::size)
+            .description("Audit records waiting to be flushed")
+            .register(meterRegistry);
+        this.writtenCounter = Counter.builder("risk.audit.records.written")
+            .description("Audit records persisted to the database")
+            .register(meterRegistry);
+        this.spilledCounter = Counter.builder("risk.audit.records.spilled")
+            .description("Audit records written to the local spill file")
+            .register(meterRegistry);
+        this.replayedCounter = Counter.builder("risk.audit.records.replayed")
+            .description("Spilled audit records replayed into the database")
+            .register(meterRegistry);
+        this.flushFailureCounter = Counter.builder("risk.audit.flush.failures")
+            .description("Audit batch flushes that failed and were spilled")
+            .register(meterRegistry);
+        this.quarantinedCounter = Counter.builder("risk.audit.spill.quarantined")
+            .description("Unreadable spill files set aside as .failed after repeated replay failures")
+            .register(meterRegistry);
+        this.quarantinedRecordsCounter = Counter.builder("risk.audit.records.quarantined")
+            .description("Spilled audit records set aside in a .failed file after repeated replay failures")
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder("risk.audit.flush.time")
+            .description("Time taken to group-commit one audit batch")
+            .register(meterRegistry);
+        
+        this.flusher = new Thread(this::runFlusher, "audit-flusher");
+        this.flusher.setDaemon(true);
+        log.info("Initialized AsyncAuditWriter (queueCapacity={}, batchSize={}, flushInterval={}, spillDirectory={})",
+                 queueCapacity, batchSize, flushInterval, spillDirectory.toAbsolutePath());
+    }
+    
+    @PostConstruct
+    void start() {
+        flusher.start();
+    }
+    
+    /**
+     * Hands a record to the pipeline. Returns as soon as the record is queued or,
+     * if the queue stays full for {@code offer-timeout}, durably spilled to disk.
+     */
+    public void submit(AuditRecord record) {
+        try {
+            if (queue.offer(record, offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        spill(List.of(record), "queue full");
+    }
+    
+    /**
+     * Hands a batch of records to the pipeline, spilling whatever does not fit.
+     */
+    public void submitAll(List<AuditRecord> records) {
+        for (AuditRecord record : records) {
+            submit(record);
+        }
+    }
+    
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        
+        // Anything the flusher did not get to is persisted or spilled on the way out
+        List<AuditRecord> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+        log.info("AsyncAuditWriter stopped");
+    }
+    
+    private void runFlusher() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                AuditRecord first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    boolean written = flush(batch);
+                    batch.clear();
+                    if (written) {
+                        maybeReplay();
+                    }
+                } else {
+                    maybeReplay();
+                }
+            } catch (InterruptedException ex) {
+                // Shutdown requested; remaining records are drained by shutdown()
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException ex) {
+                log.error("Unexpected error in audit flusher: {}", ex.getMessage(), ex);
+            }
+        }
+    }
+    
+    /**
+     * Persists a batch, spilling it if the database write fails. A batch that fails while
+     * the database is available is retried row by row, and only the failing rows are spilled.
+     * 
+     * @return true if the database could be written
+     */
+    private boolean flush(List<AuditRecord> batch) {
+        try {
+            flushTimer.record(() -> insert(batch));
+            writtenCounter.increment(batch.size());
+            log.debug("Flushed {} audit records", batch.size());
+            return true;
+        } catch (RuntimeException ex) {
+            flushFailureCounter.increment();
+            if (isDatabaseUnavailable(ex) || batch.size() == 1) {
+                spill(batch, ex.getMessage());
+                return !isDatabaseUnavailable(ex);
+            }
+            log.warn("Audit batch of {} records failed, retrying row by row: {}", batch.size(), ex.getMessage());
+            List<AuditRecord> failed = new ArrayList<>();
+            boolean available = insertEach(batch, failed);
+            writtenCounter.increment(batch.size() - failed.size());
+            if (!failed.isEmpty()) {
+                spill(failed, "rows failed individually");
+            }
+            return available;
+        }
+    }
+    
+    /**
+     * Inserts records one per transaction, collecting the ones that fail. Stops at the
+     * first failure that means the database is unavailable, counting it and every record
+     * after it as failed.
+     * 
+     * @return false if the database became unavailable
+     */
+    private boolean insertEach(List<AuditRecord> records, List<AuditRecord> failed) {
+        for (int i = 0; i < records.size(); i++) {
+            AuditRecord record = records.get(i);
+            try {
+                insert(List.of(record));
+            } catch (RuntimeException ex) {
+                if (isDatabaseUnavailable(ex)) {
+                    failed.addAll(records.subList(i, records.size()));
+                    return false;
+                }
+                log.warn("Audit record for transaction {} failed: {}", record.transactionId(), ex.getMessage());
+                failed.add(record);
+            }
+        }
+        return true;
+    }
+    
+    private void maybeReplay() {
+        long now = System.currentTimeMillis();
+        if (now - lastReplayAttempt < replayInterval.toMillis()) {
+            return;
+        }
+        lastReplayAttempt = now;
+        
+        List<Path> replayFiles;
+        try {
+            if (!spillFile.hasPending()) {
+                return;
+            }
+            replayFiles = spillFile.rotateForReplay();
+        } catch (IOException ex) {
+            log.warn("Audit spill replay failed, will retry: {}", ex.getMessage());
+            return;
+        }
+        for (Path replayFile : replayFiles) {
+            List<AuditRecord> records;
+            try {
+                records = spillFile.read(replayFile);
+            } catch (IOException ex) {
+                recordReplayFailure(replayFile, ex);
+                continue;
+            }
+            replayFailures.remove(replayFile);
+            List<AuditRecord> failed = new ArrayList<>();
+            for (int from = 0; from < records.size(); from += batchSize) {
+                List<AuditRecord> chunk = records.subList(from, Math.min(from + batchSize, records.size()));
+                try {
+                    insert(chunk);
+                } catch (RuntimeException ex) {
+                    if (isDatabaseUnavailable(ex)) {
+                        // Every file would fail the same way; all stay on disk and are retried on the next interval
+                        log.warn("Audit spill replay failed, will retry: {}", ex.getMessage());
+                        return;
+                    }
+                    // Retry row by row so one bad row does not hold back the others
+                    if (chunk.size() == 1) {
+                        failed.add(chunk.get(0));
+                    } else if (!insertEach(chunk, failed)) {
+                        log.warn("Audit spill replay failed, will retry: database became unavailable");
+                        return;
+                    }
+                }
+            }
+            try {
+                settleReplay(replayFile, records, failed);
+            } catch (IOException ex) {
+                // The file is replayed again; rows already written are skipped as duplicates
+                log.error("Failed to update audit spill file {} after replay: {}", replayFile, ex.getMessage(), ex);
+            }
+        }
+    }
+    
+    /**
+     * Finishes a replayed file: rows that failed are kept in it for the next replay, or
+     * quarantined once they have failed {@value #MAX_REPLAY_ATTEMPTS} times, and the file is
+     * deleted once no row is left.
+     */
+    private void settleReplay(Path replayFile, List<AuditRecord> records, List<AuditRecord> failed) throws IOException {
+        if (!recordReplayFailures.isEmpty()) {
+            // Rows that failed before and went in this time
+            Set<AuditRecord> stillFailing = new HashSet<>(failed);
+            for (AuditRecord record : records) {
+                if (!stillFailing.contains(record)) {
+                    recordReplayFailures.remove(record);
+                }
+            }
+        }
+        List<AuditRecord> retry = new ArrayList<>(failed.size());
+        List<AuditRecord> quarantine = new ArrayList<>();
+        for (AuditRecord record : failed) {
+            int failures = recordReplayFailures.merge(record, 1, Integer::sum);
+            (failures < MAX_REPLAY_ATTEMPTS ? retry : quarantine).add(record);
+        }
+        if (!quarantine.isEmpty()) {
+            Path failedFile = spillFile.quarantine(quarantine);
+            quarantine.forEach(recordReplayFailures::remove);
+            quarantinedRecordsCounter.increment(quarantine.size());
+            log.error("Quarantined {} audit records in {} after {} failed replays; they are not in the database",
+                      quarantine.size(), failedFile, MAX_REPLAY_ATTEMPTS);
+        }
+        if (retry.isEmpty()) {
+            spillFile.delete(replayFile);
+        } else {
+            spillFile.rewrite(replayFile, retry);
+            log.warn("{} records of audit spill file {} failed to replay, will retry", retry.size(), replayFile.getFileName());
+        }
+        replayedCounter.increment(records.size() - failed.size());
+        log.info("Replayed {} spilled audit records from {}", records.size() - failed.size(), replayFile.getFileName());
+    }
+    
+    /**
+     * Counts a failure to read one spill file and quarantines the file once it has failed
+     * {@value #MAX_REPLAY_ATTEMPTS} times, so replay moves on to the next file.
+     */
+    private void recordReplayFailure(Path replayFile, Exception cause) {
+        int failures = replayFailures.merge(replayFile, 1, Integer::sum);
+        if (failures < MAX_REPLAY_ATTEMPTS) {
+            log.warn("Replay of audit spill file {} failed ({} of {} attempts), will retry: {}",
+                     replayFile.getFileName(), failures, MAX_REPLAY_ATTEMPTS, cause.getMessage());
+            return;
+        }
+        try {
+            Path failedFile = spillFile.quarantine(replayFile);
+            replayFailures.remove(replayFile);
+            quarantinedCounter.increment();
+            log.error("Quarantined audit spill file {} after {} failed replays; its records are not in the database: {}",
+                      failedFile, failures, cause.getMessage());
+        } catch (IOException ex) {
+            log.error("Failed to quarantine audit spill file {}: {}", replayFile, ex.getMessage(), ex);
+        }
+    }
+    
+    /**
+     * @return true if a write failure means the database cannot be written at all, rather
+     *         than that the records written cannot be inserted
+     */
+    private static boolean isDatabaseUnavailable(RuntimeException ex) {
+        return ex instanceof TransientDataAccessException
+            || ex instanceof RecoverableDataAccessException
+            || ex instanceof DataAccessResourceFailureException
+            || ex instanceof TransactionException;
+    }
+    
+    private void spill(List<AuditRecord> records, String reason) {
+        try {
+            spillFile.append(records);
+            spilledCounter.increment(records.size());
+            log.warn("Spilled {} audit records to local file ({})", records.size(), reason);
+        } catch (IOException ex) {
+            // Last line of defence: make the lost decisions recoverable from the logs
+            for (AuditRecord record : records) {
+                log.error("AUDIT RECORD LOST transactionId={} score={} level={} reasons={} createdAt={} configVersion={}",
+                          record.transactionId(), record.riskScore(), record.riskLevel(),
+                          record.reasonCodes(), record.createdAt(), record.configVersion());
+            }
+            log.error("Failed to spill {} audit records: {}", records.size(), ex.getMessage(), ex);
+        }
+    }
+    
+    private void insert(List<AuditRecord> records) {
+        String[] transactionIds = new String[records.size()];
+        for (int i = 0; i < transactionIds.length; i++) {
+            transactionIds[i] = records.get(i).transactionId();
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // A separate statement, so the inserts' duplicate checks see rows committed while waiting for the locks
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(LOCK_SQL);
+                ps.setArray(1, connection.createArrayOf("text", transactionIds));
+                return ps;
+            }, rs -> {});
+            jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    AuditRecord record = records.get(i);
+                    ps.setString(1, record.transactionId());
+                    ps.setInt(2, record.riskScore());
+                    ps.setString(3, record.riskLevel());
+                    ps.setArray(4, ps.getConnection().createArrayOf("text", record.reasonCodes().toArray()));
+                    ps.setTimestamp(5, Timestamp.from(record.createdAt()));
+                    ps.setString(6, record.configVersion());
+                    ps.setString(7, record.transactionId());
+                    ps.setTimestamp(8, Timestamp.from(record.createdAt().minus(dedupeWindow)));
+                    ps.setTimestamp(9, Timestamp.from(record.createdAt().plus(dedupeWindow)));
+                }
+                
+                @Override
+                public int getBatchSize() {
+                    return records.size();
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,225 @@
+package com.goldmansachs.txb.infrastructure.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maintains the daily partitions of {@code transaction_risk_scores}.
+ *
+ * At startup and every {@code maintenance-interval}:
+ * - Partitions are created for today and the next {@code premake-days} UTC days, so
+ *   inserts always have a partition to land in and never touch the default partition
+ * - If {@code retention} is set, whole days older than it are dropped with DROP TABLE,
+ *   which frees their storage at once instead of deleting rows one by one; rows of
+ *   those days that landed in the default partition are deleted
+ *
+ * A partition is created detached, filled with any rows for its day that the default
+ * partition caught, then attached in the same transaction; PostgreSQL refuses to create
+ * a partition over rows already in the default one. Failures are logged and retried on
+ * the next run, which also covers two instances racing to create the same day.
+ */
+@Component
+public class AuditPartitionManager {
+    
+    private static final Logger log = LoggerFactory.getLogger(AuditPartitionManager.class);
+    
+    static final String TABLE = "transaction_risk_scores";
+    static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final Pattern DAILY_PARTITION = Pattern.compile(TABLE + "_p(\\d{8})");
+    private static final DateTimeFormatter PARTITION_DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    
+    static final String LIST_SQL =
+        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+            + "WHERE i.inhparent = '" + TABLE + "'::regclass";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int premakeDays;
+    private final Duration retention;
+    private final Duration maintenanceInterval;
+    private final ScheduledExecutorService maintainer;
+    
+    private final AtomicInteger partitionCount = new AtomicInteger();
+    private final Counter createdCounter;
+    private final Counter droppedCounter;
+    private final Counter failureCounter;
+    
+    public AuditPartitionManager(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.audit.partitions.enabled:true}") boolean enabled,
+            @Value("${txb.risk.audit.partitions.premake-days:7}") int premakeDays,
+            @Value("${txb.risk.audit.partitions.retention:0d}") Duration retention,
+            @Value("${txb.risk.audit.partitions.maintenance-interval:1h}") Duration maintenanceInterval) {
+        if (premakeDays < 1) {
+            throw new IllegalArgumentException("txb.risk.audit.partitions.premake-days must be at least 1, was " + premakeDays);
+        }
+        if (retention.isNegative()) {
+            throw new IllegalArgumentException("txb.risk.audit.partitions.retention must not be negative, was " + retention);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.premakeDays = premakeDays;
+        this.retention = retention;
+        this.maintenanceInterval = maintenanceInterval;
+        this.maintainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-partition-maintainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        Gauge.builder("risk.audit.partitions", partitionCount, AtomicInteger::get)
+            .description("Daily audit partitions present at the last maintenance run")
+            .register(meterRegistry);
+        this.createdCounter = Counter.builder("risk.audit.partitions.created")
+            .description("Daily audit partitions created ahead of time")
+            .register(meterRegistry);
+        this.droppedCounter = Counter.builder("risk.audit.partitions.dropped")
+            .description("Daily audit partitions dropped past their retention")
+            .register(meterRegistry);
+        this.failureCounter = Counter.builder("risk.audit.partitions.maintenance.failures")
+            .description("Audit partition creations or drops that failed and will be retried")
+            .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        // Runs before the audit writer starts (it depends on this bean), so today's partition exists
+        maintainSafely();
+        long intervalNanos = maintenanceInterval.toNanos();
+        maintainer.scheduleWithFixedDelay(this::maintainSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        maintainer.shutdownNow();
+    }
+    
+    private void maintainSafely() {
+        try {
+            maintain(LocalDate.now(ZoneOffset.UTC));
+        } catch (RuntimeException ex) {
+            failureCounter.increment();
+            log.warn("Audit partition maintenance failed, will retry: {}", ex.getMessage());
+        }
+    }
+    
+    private void maintain(LocalDate today) {
+        Set<LocalDate> existing = listDailyPartitions();
+        
+        for (LocalDate day = today; !day.isAfter(today.plusDays(premakeDays)); day = day.plusDays(1)) {
+            if (!existing.contains(day) && createSafely(day)) {
+                existing.add(day);
+            }
+        }
+        
+        if (!retention.isZero()) {
+            // A day is dropped only once all of it is older than the retention period
+            LocalDate cutoff = today.minusDays(retention.toDays());
+            for (LocalDate day : List.copyOf(existing)) {
+                if (day.isBefore(cutoff) && dropSafely(day)) {
+                    existing.remove(day);
+                }
+            }
+            int deleted = jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE created_at < ?",
+                                              Timestamp.from(cutoff.atStartOfDay(ZoneOffset.UTC).toInstant()));
+            if (deleted > 0) {
+                log.info("Deleted {} audit rows older than {} from the default partition", deleted, cutoff);
+            }
+        }
+        partitionCount.set(existing.size());
+    }
+    
+    private Set<LocalDate> listDailyPartitions() {
+        Set<LocalDate> days = new TreeSet<>();
+        for (String name : jdbcTemplate.queryForList(LIST_SQL, String.class)) {
+            Matcher matcher = DAILY_PARTITION.matcher(name);
+            if (matcher.matches()) {
+                days.add(LocalDate.parse(matcher.group(1), PARTITION_DAY));
+            }
+        }
+        return days;
+    }
+    
+    /**
+     * @return true if the partition was created
+     */
+    private boolean createSafely(LocalDate day) {
+        String partition = partitionName(day);
+        String from = day + " 00:00:00+00";
+        String to = day.plusDays(1) + " 00:00:00+00";
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("CREATE TABLE " + partition
+                    + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                    + " WHERE created_at >= ?::timestamptz AND created_at < ?::timestamptz RETURNING *) "
+                    + "INSERT INTO " + partition + " SELECT * FROM moved", from, to);
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + partition
+                    + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+                if (moved > 0) {
+                    log.info("Moved {} audit rows from the default partition into {}", moved, partition);
+                }
+            });
+            createdCounter.increment();
+            log.info("Created audit partition {}", partition);
+            return true;
+        } catch (RuntimeException ex) {
+            failureCounter.increment();
+            log.warn("Could not create audit partition {}, will retry: {}", partition, ex.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * @return true if the partition was dropped
+     */
+    private boolean dropSafely(LocalDate day) {
+        String partition = partitionName(day);
+        try {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+            droppedCounter.increment();
+            log.info("Dropped audit partition {} (retention {} days)", partition, retention.toDays());
+            return true;
+        } catch (RuntimeException ex) {
+            failureCounter.increment();
+            log.warn("Could not drop audit partition {}, will retry: {}", partition, ex.getMessage());
+            return false;
+        }
+    }
+    
+    static String partitionName(LocalDate day) {
+        return TABLE + "_p" + PARTITION_DAY.format(day);
+    }
+}
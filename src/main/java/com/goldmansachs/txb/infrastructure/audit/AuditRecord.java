@@ -0,0 +1,31 @@
+package com.goldmansachs.txb.infrastructure.audit;
+
+import com.goldmansachs.txb.domain.model.RiskScore;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A single audit trail row as queued by the write-behind pipeline and persisted to the
+ * spill file. The timestamp is captured when the decision is made, not when it is flushed.
+ * {@code configVersion} is the rule configuration version the decision was scored with.
+ */
+public record AuditRecord(
+    String transactionId,
+    int riskScore,
+    String riskLevel,
+    List<String> reasonCodes,
+    Instant createdAt,
+    String configVersion
+) {
+    public static AuditRecord of(RiskScore riskScore) {
+        return new AuditRecord(
+            riskScore.transactionId(),
+            riskScore.score(),
+            riskScore.level().name(),
+            riskScore.reasonCodes(),
+            Instant.now(),
+            riskScore.configVersion()
+        );
+    }
+}
@@ -1,13 +1,13 @@
 package com.goldmansachs.txb.infrastructure.audit;
 
 import com.goldmansachs.txb.domain.model.RiskScore;
-import com.goldmansachs.txb.infrastructure.repository.TransactionRiskScoreEntity;
-import com.goldmansachs.txb.infrastructure.repository.TransactionRiskScoreRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Service responsible for maintaining an immutable audit trail of all risk scoring decisions.
@@ -18,54 +18,61 @@ import org.springframework.transaction.annotation.Transactional;
  * - Forensic analysis (investigating fraud patterns)
  * - System monitoring (tracking false positives/negatives)
  * - Dispute resolution (providing evidence for transaction decisions)
+ * 
+ * Persistence is write-behind via {@link AsyncAuditWriter}: this service only captures
+ * the decision and hands it off, so database commit latency is not on the request path.
  */
 @Service
 public class AuditService {
     
     private static final Logger log = LoggerFactory.getLogger(AuditService.class);
     
-    private final TransactionRiskScoreRepository repository;
+    private final AsyncAuditWriter auditWriter;
     
     @Value("${txb.risk.audit-enabled:true}")
     private boolean auditEnabled;
     
-    public AuditService(TransactionRiskScoreRepository repository) {
-        this.repository = repository;
+    public AuditService(AsyncAuditWriter auditWriter) {
+        this.auditWriter = auditWriter;
     }
     
     /**
-     * Persists a risk score to the audit trail.
-     * This operation is transactional to ensure data integrity.
+     * Records a risk score in the audit trail.
      * 
-     * Note: Audit failures are logged but do not block the transaction.
-     * In a production system, you might want to use async processing or a message queue
-     * to ensure audit records are eventually persisted.
+     * The record is queued for group commit by the background flusher. If the queue is
+     * full or the database is unavailable, it is spilled to a local durable file and
+     * replayed later, so audit failures neither block the transaction nor lose the record.
      * 
      * @param riskScore The risk score to audit
      */
-    @Transactional
     public void auditRiskScore(RiskScore riskScore) {
         if (!auditEnabled) {
             log.debug("Audit is disabled, skipping audit for transaction {}", riskScore.transactionId());
             return;
         }
         
-        try {
-            TransactionRiskScoreEntity entity = TransactionRiskScoreEntity.builder()
-                .transactionId(riskScore.transactionId())
-                .riskScore(riskScore.score())
-                .riskLevel(riskScore.level().name())
-                .reasonCodes(riskScore.reasonCodes().toArray(new String[0]))
-                .build();
-            
-            repository.save(entity);
-            log.info("Audited risk score for transaction {} (score={}, level={})", 
-                     riskScore.transactionId(), riskScore.score(), riskScore.level());
-        } catch (Exception ex) {
-            // Log but don't fail the request - audit failures should not block transactions
-            // In production, consider sending to a dead letter queue for retry
-            log.error("Failed to audit risk score for transaction {}: {}", 
-                     riskScore.transactionId(), ex.getMessage(), ex);
+        auditWriter.submit(AuditRecord.of(riskScore));
+        log.debug("Queued audit record for transaction {} (score={}, level={})", 
+                  riskScore.transactionId(), riskScore.score(), riskScore.level());
+    }
+    
+    /**
+     * Records a batch of risk scores in the audit trail.
+     * The background flusher group-commits them in JDBC batches.
+     * 
+     * @param riskScores The risk scores to audit
+     */
+    public void auditRiskScores(List<RiskScore> riskScores) {
+        if (!auditEnabled) {
+            log.debug("Audit is disabled, skipping audit for batch of {} transactions", riskScores.size());
+            return;
+        }
+        
+        List<AuditRecord> records = new ArrayList<>(riskScores.size());
+        for (RiskScore riskScore : riskScores) {
+            records.add(AuditRecord.of(riskScore));
         }
+        auditWriter.submitAll(records);
+        log.debug("Queued {} audit records", records.size());
     }
 }
@@ -0,0 +1,170 @@
+package com.goldmansachs.txb.infrastructure.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Local durable overflow for audit records that could not be written to the database,
+ * either because the queue was full or because a flush failed.
+ * 
+ * Records are appended as JSON lines to an active file and fsync'd before the append
+ * returns, so a spilled record survives a process crash. For replay, the active file is
+ * atomically renamed to a {@code .replay} file; new spills go to a fresh active file while
+ * the renamed one is read back, and it is deleted only after its records are persisted.
+ * Any {@code .replay} files left behind by a crash are picked up on the next replay.
+ * Rows that keep failing to replay are moved to a {@code .failed} file, and a replay file
+ * that cannot be read is renamed to one; {@code .failed} files are no longer replayed.
+ * 
+ * Replay relies on the audit insert being idempotent on transaction ID, since a crash
+ * between persisting and deleting a replay file re-delivers its records. A re-delivered
+ * record keeps its original timestamp, so it always falls inside the writer's dedupe window.
+ */
+class AuditSpillFile {
+    
+    private static final Logger log = LoggerFactory.getLogger(AuditSpillFile.class);
+    private static final String ACTIVE_FILE_NAME = "audit-spill.jsonl";
+    private static final String REPLAY_SUFFIX = ".replay";
+    private static final String FAILED_SUFFIX = ".failed";
+    private static final String TEMP_SUFFIX = ".tmp";
+    
+    private final Path directory;
+    private final Path activeFile;
+    private final ObjectMapper objectMapper;
+    
+    AuditSpillFile(Path directory, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.activeFile = directory.resolve(ACTIVE_FILE_NAME);
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create audit spill directory " + directory, ex);
+        }
+    }
+    
+    /**
+     * Appends records and forces them to disk.
+     */
+    synchronized void append(List<AuditRecord> records) throws IOException {
+        write(activeFile, records, StandardOpenOption.APPEND);
+    }
+    
+    /**
+     * @return true if there are spilled records waiting to be replayed
+     */
+    synchronized boolean hasPending() throws IOException {
+        if (Files.exists(activeFile) && Files.size(activeFile) > 0) {
+            return true;
+        }
+        return !listReplayFiles().isEmpty();
+    }
+    
+    /**
+     * Moves the active file aside and returns every file awaiting replay, oldest first.
+     */
+    synchronized List<Path> rotateForReplay() throws IOException {
+        if (Files.exists(activeFile) && Files.size(activeFile) > 0) {
+            Path replayFile = directory.resolve("audit-spill-" + System.currentTimeMillis() + ".jsonl" + REPLAY_SUFFIX);
+            Files.move(activeFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return listReplayFiles();
+    }
+    
+    /**
+     * Reads the records of a replay file. Lines that cannot be parsed (e.g. a torn
+     * final write from a crash mid-append) are logged and skipped.
+     */
+    List<AuditRecord> read(Path replayFile) throws IOException {
+        List<AuditRecord> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    records.add(objectMapper.readValue(line, AuditRecord.class));
+                } catch (JsonProcessingException ex) {
+                    log.error("Skipping unreadable audit spill line in {}: {}", replayFile, ex.getOriginalMessage());
+                }
+            }
+        }
+        return records;
+    }
+    
+    void delete(Path replayFile) throws IOException {
+        Files.deleteIfExists(replayFile);
+    }
+    
+    /**
+     * Replaces a replay file's contents with the given records, atomically, so a crash
+     * leaves either the old or the new contents.
+     */
+    void rewrite(Path replayFile, List<AuditRecord> records) throws IOException {
+        Path tempFile = replayFile.resolveSibling(replayFile.getFileName() + TEMP_SUFFIX);
+        write(tempFile, records, StandardOpenOption.TRUNCATE_EXISTING);
+        Files.move(tempFile, replayFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * Writes records to a new {@code .failed} file so they are no longer replayed.
+     * 
+     * @return The new file's path
+     */
+    Path quarantine(List<AuditRecord> records) throws IOException {
+        Path failedFile = directory.resolve("audit-spill-" + System.currentTimeMillis() + ".jsonl" + FAILED_SUFFIX);
+        write(failedFile, records, StandardOpenOption.APPEND);
+        return failedFile;
+    }
+    
+    /**
+     * Sets a replay file aside so it is no longer replayed.
+     * 
+     * @return The file's new path
+     */
+    Path quarantine(Path replayFile) throws IOException {
+        String name = replayFile.getFileName().toString();
+        Path failedFile = replayFile.resolveSibling(name.substring(0, name.length() - REPLAY_SUFFIX.length()) + FAILED_SUFFIX);
+        return Files.move(replayFile, failedFile, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private void write(Path file, List<AuditRecord> records, StandardOpenOption mode) throws IOException {
+        StringBuilder lines = new StringBuilder(records.size() * 128);
+        for (AuditRecord record : records) {
+            lines.append(objectMapper.writeValueAsString(record)).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+    
+    private List<Path> listReplayFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> file.getFileName().toString().endsWith(REPLAY_SUFFIX))
+                .sorted()
+                .toList();
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.goldmansachs.txb.infrastructure.cache;
+
+import com.goldmansachs.txb.infrastructure.repository.HistoryKey;
+import com.goldmansachs.txb.infrastructure.repository.KnownPairFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of every client/beneficiary pair in transaction_history, giving
+ * NEW_BENEFICIARY an answer without I/O for pairs that were not in the table as of the
+ * filter's last sync with it.
+ *
+ * The filter is:
+ * - Built from transaction_history at startup, sized for {@code false-positive-rate}
+ *   at the current pair count plus growth headroom
+ * - Updated in place as pairs are first paid through this service
+ * - Synced every {@code sync-interval} with the rows created since the previous sync
+ *   (by {@code created_at}), which picks up pairs written by other instances
+ * - Rebuilt every {@code rebuild-interval}, which resets the false-positive rate as the
+ *   pair count grows
+ *
+ * A miss only means "new as of the last sync", so it is trusted for at most the history
+ * cache's {@code negative-ttl}, the staleness a cached "no history" answer already has.
+ * If no sync has succeeded for longer than that (e.g. the database is unavailable), every
+ * pair is reported as possibly known and the rule takes its normal lookup path, which is
+ * also the case until the first build completes.
+ *
+ * Bits are set with CAS on an {@link AtomicLongArray}, so adds and lookups never lock.
+ */
+@Component
+public class KnownPairBloomFilter implements KnownPairFilter {
+    
+    private static final Logger log = LoggerFactory.getLogger(KnownPairBloomFilter.class);
+    
+    static final String COUNT_SQL = "SELECT count(*) FROM transaction_history";
+    static final String SELECT_SQL = "SELECT client_id, beneficiary_id FROM transaction_history";
+    static final String SELECT_CREATED_SQL = "SELECT client_id, beneficiary_id FROM transaction_history WHERE created_at >= ?";
+    static final String NOW_SQL = "SELECT clock_timestamp()";
+    
+    /** Expected pair count is this multiple of the current count, so pairs added between rebuilds do not degrade the rate. */
+    private static final double GROWTH_HEADROOM = 1.5;
+    private static final long MIN_EXPECTED_PAIRS = 1024;
+    /**
+     * How far each sync reaches back before the previous one started: created_at is the
+     * inserting transaction's start time, so a row can become visible after a later sync began.
+     */
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final double falsePositiveRate;
+    private final Duration rebuildInterval;
+    private final Duration syncInterval;
+    private final long maxStalenessNanos;
+    private final ScheduledExecutorService builder;
+    
+    private final Counter notKnownCounter;
+    private final Counter maybeKnownCounter;
+    private final Counter staleCounter;
+    private final Counter falsePositiveCounter;
+    private final Counter rebuildFailureCounter;
+    private final Timer rebuildTimer;
+    
+    private volatile Bits bits;
+    /** The filter under construction, if a rebuild is running; adds are applied to it as well. */
+    private volatile Bits building;
+    /** System.nanoTime() when the last successful build or sync began; misses are trusted for max-staleness after it. */
+    private volatile long syncedAtNanos;
+    /** Database time the last successful build or sync began; only touched by the builder thread. */
+    private Timestamp syncedAt;
+    
+    public KnownPairBloomFilter(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.known-pairs.enabled:true}") boolean enabled,
+            @Value("${txb.risk.known-pairs.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${txb.risk.known-pairs.rebuild-interval:1h}") Duration rebuildInterval,
+            @Value("${txb.risk.known-pairs.sync-interval:20s}") Duration syncInterval,
+            @Value("${txb.risk.history-cache.negative-ttl:1m}") Duration maxStaleness,
+            @Value("${txb.risk.known-pairs.fetch-size:10000}") int fetchSize) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("txb.risk.known-pairs.false-positive-rate must be in (0, 1), was "
+                + falsePositiveRate);
+        }
+        if (syncInterval.compareTo(maxStaleness) >= 0) {
+            throw new IllegalArgumentException("txb.risk.known-pairs.sync-interval must be shorter than "
+                + "txb.risk.history-cache.negative-ttl (" + maxStaleness + "), was " + syncInterval);
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        // PostgreSQL only streams a result set with a fetch size inside a transaction
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildInterval = rebuildInterval;
+        this.syncInterval = syncInterval;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.builder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "known-pairs-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        this.notKnownCounter = Counter.builder("risk.known_pairs.lookups")
+            .tag("result", "not_known")
+            .description("Known-pair filter lookups answered without I/O")
+            .register(meterRegistry);
+        this.maybeKnownCounter = Counter.builder("risk.known_pairs.lookups")
+            .tag("result", "maybe_known")
+            .description("Known-pair filter lookups that fell through to the history lookup")
+            .register(meterRegistry);
+        this.staleCounter = Counter.builder("risk.known_pairs.lookups")
+            .tag("result", "stale")
+            .description("Known-pair filter lookups that fell through because the filter had not synced within max-staleness")
+            .register(meterRegistry);
+        this.falsePositiveCounter = Counter.builder("risk.known_pairs.false_positives")
+            .description("Pairs reported as maybe known that had no history")
+            .register(meterRegistry);
+        Gauge.builder("risk.known_pairs.expected_fpp", this, filter -> filter.bits != null ? filter.bits.expectedFalsePositiveRate() : Double.NaN)
+            .description("False-positive probability of the known-pair filter estimated from its fill")
+            .register(meterRegistry);
+        Gauge.builder("risk.known_pairs.pairs", this, filter -> filter.bits != null ? filter.bits.insertions.get() : 0)
+            .description("Pairs added to the known-pair filter")
+            .register(meterRegistry);
+        Gauge.builder("risk.known_pairs.bytes", this, filter -> filter.bits != null ? filter.bits.sizeInBytes() : 0)
+            .description("Memory held by the known-pair filter's bit array")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        this.rebuildFailureCounter = Counter.builder("risk.known_pairs.rebuild.failures")
+            .description("Known-pair filter rebuilds that failed; the previous filter stays in use")
+            .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("risk.known_pairs.rebuild.time")
+            .description("Time taken to build the known-pair filter from transaction_history")
+            .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        rebuildSafely();
+        long intervalNanos = rebuildInterval.toNanos();
+        builder.scheduleWithFixedDelay(this::rebuildSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        long syncNanos = syncInterval.toNanos();
+        builder.scheduleWithFixedDelay(this::syncSafely, syncNanos, syncNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        builder.shutdownNow();
+    }
+    
+    @Override
+    public boolean mightContain(String clientId, String beneficiaryId) {
+        Bits current = bits;
+        if (current == null || current.mightContain(HistoryKey.hash64(clientId, beneficiaryId))) {
+            maybeKnownCounter.increment();
+            return true;
+        }
+        if (!fresh()) {
+            // Another instance may have written the pair since the last sync
+            staleCounter.increment();
+            return true;
+        }
+        notKnownCounter.increment();
+        return false;
+    }
+    
+    @Override
+    public void recordFalsePositive() {
+        // Before the first build, or while stale, every lookup is "maybe known", which says nothing about the filter
+        if (bits != null && fresh()) {
+            falsePositiveCounter.increment();
+        }
+    }
+    
+    /**
+     * Records that a client has now paid a beneficiary.
+     */
+    public void add(String clientId, String beneficiaryId) {
+        long hash = HistoryKey.hash64(clientId, beneficiaryId);
+        // Read in the reverse of the order rebuild() publishes them: if building has already
+        // been cleared, bits is the rebuilt filter, so the add cannot miss both
+        Bits next = building;
+        Bits current = bits;
+        if (current != null) {
+            current.add(hash);
+        }
+        if (next != null && next != current) {
+            next.add(hash);
+        }
+    }
+    
+    private void rebuildSafely() {
+        try {
+            rebuildTimer.record(this::rebuild);
+        } catch (RuntimeException ex) {
+            building = null;
+            rebuildFailureCounter.increment();
+            log.warn("Known-pair filter rebuild failed, keeping the previous filter: {}", ex.getMessage());
+        }
+    }
+    
+    private boolean fresh() {
+        return System.nanoTime() - syncedAtNanos <= maxStalenessNanos;
+    }
+    
+    private void syncSafely() {
+        if (bits == null) {
+            // Nothing to sync into; the next rebuild loads everything
+            return;
+        }
+        try {
+            sync();
+        } catch (RuntimeException ex) {
+            rebuildFailureCounter.increment();
+            log.warn("Known-pair filter sync failed, misses are not trusted once it is stale: {}", ex.getMessage());
+        }
+    }
+    
+    /**
+     * Adds the pairs created since shortly before the previous build or sync began.
+     * Runs on the builder thread, so never concurrently with a rebuild.
+     */
+    private void sync() {
+        Bits current = bits;
+        long startNanos = System.nanoTime();
+        Timestamp since = Timestamp.from(syncedAt.toInstant().minus(SYNC_OVERLAP));
+        Timestamp started = readOnlyTransaction.execute(status -> {
+            Timestamp now = jdbcTemplate.queryForObject(NOW_SQL, Timestamp.class);
+            jdbcTemplate.query(SELECT_CREATED_SQL, rs -> {
+                current.add(HistoryKey.hash64(rs.getString(1), rs.getString(2)));
+            }, since);
+            return now;
+        });
+        syncedAt = started;
+        syncedAtNanos = startNanos;
+    }
+    
+    private void rebuild() {
+        long startNanos = System.nanoTime();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            Timestamp started = jdbcTemplate.queryForObject(NOW_SQL, Timestamp.class);
+            Long count = jdbcTemplate.queryForObject(COUNT_SQL, Long.class);
+            long expectedPairs = Math.max(MIN_EXPECTED_PAIRS, (long) ((count != null ? count : 0) * GROWTH_HEADROOM));
+            Bits next = new Bits(expectedPairs, falsePositiveRate);
+            building = next;
+            jdbcTemplate.query(SELECT_SQL, rs -> {
+                next.add(HistoryKey.hash64(rs.getString(1), rs.getString(2)));
+            });
+            bits = next;
+            building = null;
+            syncedAt = started;
+            syncedAtNanos = startNanos;
+        });
+        Bits current = bits;
+        log.info("Built known-pair filter: {} pairs, {} KB, {} hash functions, expected false-positive rate {}",
+                 current.insertions.get(), current.sizeInBytes() >> 10, current.hashFunctions,
+                 String.format("%.4f", current.expectedFalsePositiveRate()));
+    }
+    
+    /**
+     * Bit array and hash parameters of one filter generation. Indexes are derived from the
+     * 64-bit pair hash by double hashing (Kirsch-Mitzenmacher), so each lookup hashes the IDs once.
+     */
+    static final class Bits {
+        
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashFunctions;
+        private final AtomicLong insertions = new AtomicLong();
+        
+        Bits(long expectedPairs, double falsePositiveRate) {
+            double ln2 = Math.log(2);
+            long optimalBits = (long) Math.ceil(-expectedPairs * Math.log(falsePositiveRate) / (ln2 * ln2));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) >>> 6);
+            this.words = new AtomicLongArray(wordCount);
+            this.bitCount = (long) wordCount << 6;
+            this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedPairs * ln2));
+        }
+        
+        void add(long hash) {
+            long h1 = hash;
+            long h2 = secondHash(hash);
+            boolean changed = false;
+            for (int i = 0; i < hashFunctions; i++) {
+                changed |= setBit(Long.remainderUnsigned(h1 + i * h2, bitCount));
+            }
+            if (changed) {
+                insertions.incrementAndGet();
+            }
+        }
+        
+        boolean mightContain(long hash) {
+            long h1 = hash;
+            long h2 = secondHash(hash);
+            for (int i = 0; i < hashFunctions; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        double expectedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-(double) hashFunctions * insertions.get() / bitCount), hashFunctions);
+        }
+        
+        long sizeInBytes() {
+            return bitCount >>> 3;
+        }
+        
+        private boolean setBit(long bit) {
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = words.get(index);
+                if ((word & mask) != 0) {
+                    return false;
+                }
+            } while (!words.compareAndSet(index, word, word | mask));
+            return true;
+        }
+        
+        private static long secondHash(long hash) {
+            // Forced non-zero so the k indexes of a pair never collapse onto one bit
+            return (Long.rotateLeft(hash, 32) * 0x9E3779B97F4A7C15L) | 1;
+        }
+    }
+}
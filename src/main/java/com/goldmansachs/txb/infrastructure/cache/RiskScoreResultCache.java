@@ -0,0 +1,348 @@
+package com.goldmansachs.txb.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.goldmansachs.txb.domain.model.RiskScore;
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.infrastructure.repository.TransactionRiskScoreEntity;
+import com.goldmansachs.txb.infrastructure.repository.TransactionRiskScoreRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Makes scoring idempotent per transaction ID, so upstream retries get the original
+ * result instead of a second scoring pass (and a second set of audit, profile and
+ * velocity updates).
+ *
+ * A transaction ID is resolved from, in order:
+ * - A bounded in-memory cache of recent results
+ * - The audit trail ({@code transaction_risk_scores}), for results computed before a
+ *   restart or by another instance and already flushed, looking back as far as the
+ *   audit writer's {@code dedupe-window}. This costs one indexed query per new
+ *   transaction ID on the request thread; it is skipped in degraded mode and can be
+ *   turned off with {@code repository-fallback} where only in-process retries matter
+ * - A new scoring pass
+ *
+ * Concurrent requests for the same ID are collapsed: the cache holds one future per ID,
+ * the first caller computes it and the others wait for its result. A future still being
+ * computed has no weight and no expiry, so neither the size bound nor the TTL can evict
+ * it and let a concurrent duplicate be scored twice; both apply from completion. A failed
+ * computation is not cached, and the next request for the ID tries again. A repeated ID is answered
+ * with the original result whatever the rest of the repeated request contains.
+ *
+ * If the audit trail cannot be read, the transaction is scored as new; the audit insert
+ * ignores the duplicate. Degraded scores skip the audit trail lookup and resolve from
+ * memory only, for the same reason.
+ */
+@Component
+public class RiskScoreResultCache {
+    
+    private static final Logger log = LoggerFactory.getLogger(RiskScoreResultCache.class);
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+    
+    private final TransactionRiskScoreRepository repository;
+    private final ConcurrentMap<String, CompletableFuture<RiskScore>> results;
+    private final boolean enabled;
+    private final boolean repositoryFallback;
+    private final Duration lookbackWindow;
+    
+    private final Counter computedCounter;
+    private final Counter cachedCounter;
+    private final Counter collapsedCounter;
+    private final Counter persistedCounter;
+    private final Counter lookupFailureCounter;
+    
+    public RiskScoreResultCache(
+            TransactionRiskScoreRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.idempotency.enabled:true}") boolean enabled,
+            @Value("${txb.risk.idempotency.maximum-size:200000}") long maximumSize,
+            @Value("${txb.risk.idempotency.ttl:1h}") Duration ttl,
+            @Value("${txb.risk.idempotency.repository-fallback:true}") boolean repositoryFallback,
+            @Value("${txb.risk.audit.dedupe-window:1d}") Duration lookbackWindow) {
+        this.repository = repository;
+        Cache<String, CompletableFuture<RiskScore>> cache = Caffeine.newBuilder()
+            .maximumWeight(maximumSize)
+            .weigher((String transactionId, CompletableFuture<RiskScore> result) -> result.isDone() ? 1 : 0)
+            .expireAfter(new ResultExpiry(ttl))
+            .build();
+        this.results = cache.asMap();
+        this.enabled = enabled;
+        this.repositoryFallback = repositoryFallback;
+        this.lookbackWindow = lookbackWindow;
+        this.computedCounter = requests(meterRegistry, "computed", "Transactions scored for the first time");
+        this.cachedCounter = requests(meterRegistry, "cached", "Repeated transaction IDs answered from memory");
+        this.collapsedCounter = requests(meterRegistry, "collapsed", "Repeated transaction IDs that waited for an in-flight score");
+        this.persistedCounter = requests(meterRegistry, "persisted", "Repeated transaction IDs answered from the audit trail");
+        this.lookupFailureCounter = Counter.builder("risk.idempotency.lookup.failures")
+            .description("Audit trail lookups that failed; the transaction was scored as new")
+            .register(meterRegistry);
+    }
+    
+    private static Counter requests(MeterRegistry meterRegistry, String result, String description) {
+        return Counter.builder("risk.idempotency.requests")
+            .tag("result", result)
+            .description(description)
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Returns the result for the transaction's ID, running {@code scorer} only if no
+     * result exists and no other caller is computing one.
+     */
+    public RiskScore getOrCompute(Transaction transaction, Supplier<RiskScore> scorer) {
+        return getOrCompute(transaction, false, scorer);
+    }
+    
+    /**
+     * Like {@link #getOrCompute(Transaction, Supplier)}, optionally in degraded mode, which
+     * leaves out the audit trail lookup so an overloaded database is not queried.
+     */
+    public RiskScore getOrCompute(Transaction transaction, boolean degraded, Supplier<RiskScore> scorer) {
+        if (!enabled) {
+            return scorer.get();
+        }
+        String transactionId = transaction.transactionId();
+        CompletableFuture<RiskScore> existing = results.get(transactionId);
+        if (existing != null) {
+            return awaitExisting(existing);
+        }
+        CompletableFuture<RiskScore> claim = new CompletableFuture<>();
+        existing = results.putIfAbsent(transactionId, claim);
+        if (existing != null) {
+            return awaitExisting(existing);
+        }
+        
+        try {
+            Optional<RiskScore> persisted = repositoryFallback && !degraded ? findPersisted(transactionId) : Optional.empty();
+            RiskScore riskScore;
+            if (persisted.isPresent()) {
+                persistedCounter.increment();
+                riskScore = persisted.get();
+            } else {
+                computedCounter.increment();
+                riskScore = scorer.get();
+            }
+            complete(transactionId, claim, riskScore);
+            return riskScore;
+        } catch (RuntimeException ex) {
+            results.remove(transactionId, claim);
+            claim.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+    
+    /**
+     * Batch form of {@link #getOrCompute}: {@code scorer} is called once with only the
+     * transactions that need scoring, including the first of any IDs repeated within the
+     * batch. Results are returned in input order.
+     */
+    public List<RiskScore> getOrComputeAll(List<Transaction> transactions,
+                                           Function<List<Transaction>, List<RiskScore>> scorer) {
+        return getOrComputeAll(transactions, false, scorer);
+    }
+    
+    /**
+     * Like {@link #getOrComputeAll(List, Function)}, optionally in degraded mode, which
+     * leaves out the audit trail lookup.
+     */
+    public List<RiskScore> getOrComputeAll(List<Transaction> transactions, boolean degraded,
+                                           Function<List<Transaction>, List<RiskScore>> scorer) {
+        if (!enabled) {
+            return scorer.apply(transactions);
+        }
+        List<CompletableFuture<RiskScore>> futures = new ArrayList<>(transactions.size());
+        Map<String, CompletableFuture<RiskScore>> claims = new HashMap<>();
+        List<Transaction> claimed = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            CompletableFuture<RiskScore> claim = new CompletableFuture<>();
+            CompletableFuture<RiskScore> existing = results.putIfAbsent(transaction.transactionId(), claim);
+            if (existing != null) {
+                // Waited on only after this batch's own claims are complete, so two batches never wait on each other
+                futures.add(existing);
+                (existing.isDone() ? cachedCounter : collapsedCounter).increment();
+            } else {
+                futures.add(claim);
+                claims.put(transaction.transactionId(), claim);
+                claimed.add(transaction);
+            }
+        }
+        
+        if (!claimed.isEmpty()) {
+            try {
+                computeClaimed(claimed, claims, degraded, scorer);
+            } catch (RuntimeException ex) {
+                for (Map.Entry<String, CompletableFuture<RiskScore>> claim : claims.entrySet()) {
+                    results.remove(claim.getKey(), claim.getValue());
+                    claim.getValue().completeExceptionally(ex);
+                }
+                throw ex;
+            }
+        }
+        
+        List<RiskScore> riskScores = new ArrayList<>(futures.size());
+        for (CompletableFuture<RiskScore> future : futures) {
+            riskScores.add(join(future));
+        }
+        return riskScores;
+    }
+    
+    private void computeClaimed(List<Transaction> claimed, Map<String, CompletableFuture<RiskScore>> claims,
+                                boolean degraded, Function<List<Transaction>, List<RiskScore>> scorer) {
+        List<Transaction> toScore = claimed;
+        if (repositoryFallback && !degraded) {
+            Map<String, RiskScore> persisted = findPersisted(claims.keySet());
+            if (!persisted.isEmpty()) {
+                persistedCounter.increment(persisted.size());
+                persisted.forEach((transactionId, riskScore) -> complete(transactionId, claims.get(transactionId), riskScore));
+                toScore = new ArrayList<>(claimed.size() - persisted.size());
+                for (Transaction transaction : claimed) {
+                    if (!persisted.containsKey(transaction.transactionId())) {
+                        toScore.add(transaction);
+                    }
+                }
+            }
+        }
+        if (toScore.isEmpty()) {
+            return;
+        }
+        computedCounter.increment(toScore.size());
+        List<RiskScore> riskScores = scorer.apply(toScore);
+        if (riskScores.size() != toScore.size()) {
+            throw new IllegalStateException("Scored " + riskScores.size() + " of " + toScore.size() + " transactions");
+        }
+        for (int i = 0; i < riskScores.size(); i++) {
+            String transactionId = toScore.get(i).transactionId();
+            complete(transactionId, claims.get(transactionId), riskScores.get(i));
+        }
+    }
+    
+    /**
+     * Completes a claim and writes it back to the cache, which re-weighs it and starts
+     * its TTL now that it can be evicted.
+     */
+    private void complete(String transactionId, CompletableFuture<RiskScore> claim, RiskScore riskScore) {
+        claim.complete(riskScore);
+        results.replace(transactionId, claim, claim);
+    }
+    
+    private RiskScore awaitExisting(CompletableFuture<RiskScore> existing) {
+        (existing.isDone() ? cachedCounter : collapsedCounter).increment();
+        return join(existing);
+    }
+    
+    private static RiskScore join(CompletableFuture<RiskScore> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            // The computing caller's own exception, rethrown as is to every waiter
+            throw ex.getCause() instanceof RuntimeException runtime ? runtime : ex;
+        }
+    }
+    
+    /**
+     * @return The result already in the audit trail, if any; empty if the lookup fails
+     */
+    private Optional<RiskScore> findPersisted(String transactionId) {
+        try {
+            return repository.findFirstByTransactionIdAndCreatedAtGreaterThanEqualOrderByCreatedAtAsc(
+                transactionId, Instant.now().minus(lookbackWindow)).map(RiskScoreResultCache::toRiskScore);
+        } catch (RuntimeException ex) {
+            lookupFailureCounter.increment();
+            log.warn("Audit trail lookup for transaction {} failed, scoring it as new: {}", transactionId, ex.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * @return Results already in the audit trail, by transaction ID; empty if the lookup fails
+     */
+    private Map<String, RiskScore> findPersisted(Iterable<String> transactionIds) {
+        Map<String, RiskScore> persisted = new HashMap<>();
+        List<String> chunk = new ArrayList<>();
+        Instant createdAfter = Instant.now().minus(lookbackWindow);
+        try {
+            for (String transactionId : transactionIds) {
+                chunk.add(transactionId);
+                if (chunk.size() == LOOKUP_CHUNK_SIZE) {
+                    loadChunk(chunk, createdAfter, persisted);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                loadChunk(chunk, createdAfter, persisted);
+            }
+        } catch (RuntimeException ex) {
+            lookupFailureCounter.increment();
+            log.warn("Audit trail lookup for repeated transactions failed, scoring them as new: {}", ex.getMessage());
+        }
+        return persisted;
+    }
+    
+    private void loadChunk(List<String> transactionIds, Instant createdAfter, Map<String, RiskScore> persisted) {
+        List<TransactionRiskScoreEntity> entities =
+            repository.findByTransactionIdInAndCreatedAtGreaterThanEqualOrderByCreatedAtAsc(transactionIds, createdAfter);
+        for (TransactionRiskScoreEntity entity : entities) {
+            // Rows come oldest first, and the earliest is the original decision
+            persisted.merge(entity.getTransactionId(), toRiskScore(entity), (first, second) -> first);
+        }
+    }
+    
+    /**
+     * Keeps futures that are still being computed until they complete; completed results
+     * expire {@code ttl} after completion.
+     */
+    private static final class ResultExpiry implements Expiry<String, CompletableFuture<RiskScore>> {
+        
+        private final long ttlNanos;
+        
+        ResultExpiry(Duration ttl) {
+            this.ttlNanos = ttl.toNanos();
+        }
+        
+        @Override
+        public long expireAfterCreate(String transactionId, CompletableFuture<RiskScore> result, long currentTime) {
+            return result.isDone() ? ttlNanos : Long.MAX_VALUE;
+        }
+        
+        @Override
+        public long expireAfterUpdate(String transactionId, CompletableFuture<RiskScore> result,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(transactionId, result, currentTime);
+        }
+        
+        @Override
+        public long expireAfterRead(String transactionId, CompletableFuture<RiskScore> result,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+    
+    private static RiskScore toRiskScore(TransactionRiskScoreEntity entity) {
+        return new RiskScore(
+            entity.getTransactionId(),
+            entity.getRiskScore(),
+            RiskScore.RiskLevel.valueOf(entity.getRiskLevel()),
+            entity.getReasonCodes() == null ? List.of() : List.of(entity.getReasonCodes()),
+            entity.getConfigVersion()
+        );
+    }
+}
@@ -0,0 +1,199 @@
+package com.goldmansachs.txb.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.goldmansachs.txb.infrastructure.repository.HistoryKey;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryEntity;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryLookup;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Bounded in-process cache in front of {@link TransactionHistoryRepository}.
+ * 
+ * Corporate payment traffic is dominated by a few thousand recurring client/beneficiary
+ * pairs, so most history reads can be served from memory. The cache is:
+ * - Size-bounded (W-TinyLFU eviction) so memory stays predictable
+ * - TTL-bounded so writes made outside this service (e.g. batch loads) are picked up
+ * - Negatively cached: unknown pairs are stored as empty results with a shorter TTL,
+ *   which keeps NEW_BENEFICIARY checks off the database
+ * - Kept current on write: the profile updater, the only writer in this service, refreshes
+ *   entries as it updates them and reloads them from the rows it writes back
+ * 
+ * Cached entities are shared across threads and must be treated as read-only.
+ * Repository exceptions are not cached and propagate to the caller so the rule-level
+ * circuit breaker still sees them.
+ */
+@Component
+public class TransactionHistoryCache implements TransactionHistoryLookup {
+    
+    private static final Logger log = LoggerFactory.getLogger(TransactionHistoryCache.class);
+    private static final String CACHE_NAME = "transactionHistory";
+    
+    /**
+     * Upper bound on pairs resolved per bulk query, which keeps each query's arrays and
+     * result set modest.
+     */
+    private static final int BULK_LOAD_CHUNK_SIZE = 1000;
+    
+    private final TransactionHistoryRepository repository;
+    private final Cache<HistoryKey, Optional<TransactionHistoryEntity>> cache;
+    
+    public TransactionHistoryCache(
+            TransactionHistoryRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.history-cache.maximum-size:100000}") long maximumSize,
+            @Value("${txb.risk.history-cache.ttl:10m}") Duration ttl,
+            @Value("${txb.risk.history-cache.negative-ttl:1m}") Duration negativeTtl) {
+        this.repository = repository;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(new HistoryExpiry(ttl, negativeTtl))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        log.info("Initialized TransactionHistoryCache (maximumSize={}, ttl={}, negativeTtl={})",
+                 maximumSize, ttl, negativeTtl);
+    }
+    
+    @Override
+    public Optional<TransactionHistoryEntity> findHistory(String clientId, String beneficiaryId) {
+        return cache.get(new HistoryKey(clientId, beneficiaryId),
+            key -> repository.findByClientIdAndBeneficiaryId(key.clientId(), key.beneficiaryId()));
+    }
+    
+    /**
+     * Resolves many pairs at once. Cached pairs are served from memory; the remaining
+     * pairs are loaded in bulk queries of up to {@value #BULK_LOAD_CHUNK_SIZE} pairs
+     * and cached, including negative entries for pairs with no history.
+     */
+    @Override
+    public Map<HistoryKey, Optional<TransactionHistoryEntity>> findAllHistory(Collection<HistoryKey> keys) {
+        return cache.getAll(keys, this::loadAll);
+    }
+    
+    private Map<HistoryKey, Optional<TransactionHistoryEntity>> loadAll(Set<? extends HistoryKey> keys) {
+        Map<HistoryKey, Optional<TransactionHistoryEntity>> result = new HashMap<>(keys.size() * 2);
+        List<HistoryKey> chunk = new ArrayList<>(Math.min(keys.size(), BULK_LOAD_CHUNK_SIZE));
+        for (HistoryKey key : keys) {
+            result.put(key, Optional.empty());
+            chunk.add(key);
+            if (chunk.size() == BULK_LOAD_CHUNK_SIZE) {
+                loadChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            loadChunk(chunk, result);
+        }
+        return result;
+    }
+    
+    private void loadChunk(List<HistoryKey> chunk, Map<HistoryKey, Optional<TransactionHistoryEntity>> result) {
+        String[] clientIds = new String[chunk.size()];
+        String[] beneficiaryIds = new String[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            clientIds[i] = chunk.get(i).clientId();
+            beneficiaryIds[i] = chunk.get(i).beneficiaryId();
+        }
+        for (TransactionHistoryEntity entity : repository.findByPairs(clientIds, beneficiaryIds)) {
+            result.put(new HistoryKey(entity.getClientId(), entity.getBeneficiaryId()), Optional.of(entity));
+        }
+    }
+    
+    /**
+     * Returns the cached history for a pair without ever loading it.
+     * 
+     * @return The cached record, or empty if the pair is not cached or cached as unknown
+     */
+    public Optional<TransactionHistoryEntity> findInMemory(String clientId, String beneficiaryId) {
+        Optional<TransactionHistoryEntity> cached = cache.getIfPresent(new HistoryKey(clientId, beneficiaryId));
+        return cached != null ? cached : Optional.empty();
+    }
+    
+    /**
+     * Returns the cache entry for a pair without ever loading it, telling a pair cached
+     * as unknown apart from one that is not cached.
+     * 
+     * @return The cached entry, empty for a pair cached as unknown, or null if the pair is not cached
+     */
+    public Optional<TransactionHistoryEntity> getIfPresent(String clientId, String beneficiaryId) {
+        return cache.getIfPresent(new HistoryKey(clientId, beneficiaryId));
+    }
+    
+    @Override
+    public String sourceOf(String clientId, String beneficiaryId) {
+        return cache.getIfPresent(new HistoryKey(clientId, beneficiaryId)) != null ? "cache" : "database";
+    }
+    
+    /**
+     * Replaces the cached entry for a pair with a newer state that has not necessarily
+     * reached the database yet, so rules see profile updates immediately.
+     * 
+     * @param entity The new history state; must not be mutated after this call
+     */
+    public void refresh(TransactionHistoryEntity entity) {
+        cache.put(new HistoryKey(entity.getClientId(), entity.getBeneficiaryId()), Optional.of(entity));
+    }
+    
+    /**
+     * Drops the cached entry for a pair so the next read goes to the database.
+     */
+    public void invalidate(String clientId, String beneficiaryId) {
+        cache.invalidate(new HistoryKey(clientId, beneficiaryId));
+    }
+    
+    /**
+     * Drops every cached entry, e.g. after a bulk reload of transaction_history.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    /**
+     * Applies a shorter TTL to negative entries: a pair that is unknown now becomes known
+     * as soon as the client pays the beneficiary, while a known pair's average drifts slowly.
+     */
+    private static final class HistoryExpiry implements Expiry<HistoryKey, Optional<TransactionHistoryEntity>> {
+        
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+        
+        HistoryExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+        
+        @Override
+        public long expireAfterCreate(HistoryKey key, Optional<TransactionHistoryEntity> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+        
+        @Override
+        public long expireAfterUpdate(HistoryKey key, Optional<TransactionHistoryEntity> value,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+        
+        @Override
+        public long expireAfterRead(HistoryKey key, Optional<TransactionHistoryEntity> value,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.goldmansachs.txb.infrastructure.fx;
+
+import com.goldmansachs.txb.domain.model.CurrencyCode;
+import com.goldmansachs.txb.domain.model.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the current {@link FxRateTable} and converts transaction amounts into the base
+ * currency ({@code txb.risk.fx.base-currency}), so amount-based rules, velocity sums and
+ * profiles compare like with like whatever currency a payment is made in.
+ *
+ * Rates are units of the base currency per unit of each currency, loaded from:
+ * - {@code txb.risk.fx.rates-file}, a properties file of {@code EUR=1.0845} lines, if set
+ * - Otherwise the {@code fx_rates} table
+ *
+ * and reloaded every {@code txb.risk.fx.refresh-interval}. A reload builds a new table and
+ * swaps it in with a single volatile write, so readers never lock or see a half-built
+ * table; a reload with unchanged rates keeps the current table. A failed reload keeps the
+ * current table as well. Until the first load succeeds only the base currency has a rate.
+ *
+ * Amounts in a currency without a rate convert to {@link FxRateTable#NO_RATE}; callers
+ * leave them out rather than compare them unconverted. Such conversions are counted.
+ */
+@Component
+public class FxRateStore {
+    
+    private static final Logger log = LoggerFactory.getLogger(FxRateStore.class);
+    
+    static final String SELECT_SQL = "SELECT currency, rate_to_base FROM fx_rates";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final short baseCurrency;
+    private final Path ratesFile;
+    private final Duration refreshInterval;
+    private final ScheduledExecutorService refresher;
+    private final Counter missingRateCounter;
+    private final Counter refreshFailureCounter;
+    
+    private volatile FxRateTable current;
+    
+    @Autowired
+    public FxRateStore(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.fx.enabled:true}") boolean enabled,
+            @Value("${txb.risk.fx.base-currency:USD}") String baseCurrency,
+            @Value("${txb.risk.fx.rates-file:}") String ratesFile,
+            @Value("${txb.risk.fx.refresh-interval:5m}") Duration refreshInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.baseCurrency = CurrencyCode.parse(baseCurrency);
+        this.ratesFile = ratesFile.isBlank() ? null : Path.of(ratesFile);
+        this.refreshInterval = refreshInterval;
+        this.refresher = !enabled ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fx-rate-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.current = enabled
+            ? FxRateTable.of("base-only", this.baseCurrency, Map.of())
+            : FxRateTable.unconverted(this.baseCurrency);
+        
+        Gauge.builder("risk.fx.rates", this, store -> store.current.size())
+            .description("Currencies with an FX rate into the base currency")
+            .register(meterRegistry);
+        this.missingRateCounter = Counter.builder("risk.fx.missing_rate")
+            .description("Amount conversions for a currency without an FX rate; the amount was left out")
+            .register(meterRegistry);
+        this.refreshFailureCounter = Counter.builder("risk.fx.refresh.failures")
+            .description("FX rate reloads that failed; the previous rates stay in use")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Creates a store fixed to one table, for standalone engines (backtests, benchmarks).
+     */
+    public FxRateStore(FxRateTable table) {
+        this.jdbcTemplate = null;
+        this.baseCurrency = table.baseCurrency();
+        this.ratesFile = null;
+        this.refreshInterval = null;
+        this.refresher = null;
+        this.missingRateCounter = null;
+        this.refreshFailureCounter = null;
+        this.current = table;
+    }
+    
+    @PostConstruct
+    void start() {
+        if (refresher == null) {
+            log.info("FX conversion disabled; amounts are compared in their own currency");
+            return;
+        }
+        refreshSafely();
+        long intervalNanos = refreshInterval.toNanos();
+        refresher.scheduleWithFixedDelay(this::refreshSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+    
+    /**
+     * @return The active rates. Callers converting several amounts together should read it once.
+     */
+    public FxRateTable current() {
+        return current;
+    }
+    
+    /**
+     * @return The transaction's amount in minor units of the base currency, or
+     *         {@link FxRateTable#NO_RATE} if its currency has no rate
+     */
+    public long toBaseMinorUnits(Transaction transaction) {
+        long converted = current.toBaseMinorUnits(FxRateTable.toMinorUnits(transaction.amount()), transaction.currency());
+        if (converted == FxRateTable.NO_RATE && missingRateCounter != null) {
+            missingRateCounter.increment();
+        }
+        return converted;
+    }
+    
+    /**
+     * Reads a rates file: one {@code CURRENCY=rate} line per currency.
+     *
+     * @throws IllegalArgumentException if a currency code or rate is malformed
+     */
+    public static FxRateTable loadFile(Path file, short baseCurrency) {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read FX rates file " + file, ex);
+        }
+        Map<String, String> rates = new TreeMap<>();
+        for (String currency : properties.stringPropertyNames()) {
+            rates.put(currency.trim(), properties.getProperty(currency).trim());
+        }
+        return toTable(rates, baseCurrency);
+    }
+    
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            refreshFailureCounter.increment();
+            log.warn("FX rate reload failed, keeping rates {}: {}", current.version(), ex.getMessage());
+        }
+    }
+    
+    private void refresh() {
+        FxRateTable next;
+        if (ratesFile != null) {
+            next = loadFile(ratesFile, baseCurrency);
+        } else {
+            Map<String, String> rates = new TreeMap<>();
+            jdbcTemplate.query(SELECT_SQL, rs -> {
+                rates.put(rs.getString(1).trim(), rs.getBigDecimal(2).toPlainString());
+            });
+            next = toTable(rates, baseCurrency);
+        }
+        FxRateTable active = current;
+        if (next.version().equals(active.version())) {
+            return;
+        }
+        current = next;
+        log.info("Activated FX rates {} ({} currencies into {}, previous {}) from {}",
+                 next.version(), next.size(), CurrencyCode.toAlpha3(baseCurrency), active.version(),
+                 ratesFile != null ? ratesFile : "fx_rates");
+    }
+    
+    /**
+     * Builds a table versioned by a hash of its rates, so identical rates always carry the same version.
+     */
+    private static FxRateTable toTable(Map<String, String> sortedRates, short baseCurrency) {
+        Map<Short, BigDecimal> rates = new TreeMap<>();
+        for (Map.Entry<String, String> rate : sortedRates.entrySet()) {
+            try {
+                rates.put(CurrencyCode.parse(rate.getKey()), new BigDecimal(rate.getValue()));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid FX rate for " + rate.getKey() + ": '" + rate.getValue() + "'");
+            }
+        }
+        String canonical = CurrencyCode.toAlpha3(baseCurrency) + "|" + sortedRates;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return FxRateTable.of("sha256:" + HexFormat.of().formatHex(digest, 0, 6), baseCurrency, rates);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.goldmansachs.txb.infrastructure.fx;
+
+import com.goldmansachs.txb.domain.model.CurrencyCode;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * One immutable set of FX rates into a base currency, indexed by dense currency code
+ * ({@link CurrencyCode}), so a lookup is one array read.
+ *
+ * Amounts are converted in minor units ({@value #AMOUNT_SCALE} decimal places, whatever
+ * the currency) and rates are held as longs scaled by {@value #RATE_SCALE} decimal places.
+ * A conversion is a few long multiplications and no allocation; the amount is split so no
+ * intermediate product overflows, and the result is rounded half up. A result beyond the
+ * long range saturates.
+ *
+ * A currency without a rate converts to {@link #NO_RATE}. The base currency always has
+ * rate 1.
+ */
+public final class FxRateTable {
+    
+    /** Decimal places of the minor units amounts are converted in. */
+    public static final int AMOUNT_SCALE = 2;
+    /** Decimal places rates are held to. */
+    public static final int RATE_SCALE = 9;
+    /** Returned by the conversions for a currency without a rate. */
+    public static final long NO_RATE = Long.MIN_VALUE;
+    
+    private static final long RATE_UNIT = 1_000_000_000L;
+    private static final long[] AMOUNT_MULTIPLIERS = {100, 10, 1};
+    private static final BigDecimal MIN_LONG = BigDecimal.valueOf(Long.MIN_VALUE + 1);
+    private static final BigDecimal MAX_LONG = BigDecimal.valueOf(Long.MAX_VALUE);
+    
+    private final String version;
+    private final short baseCurrency;
+    /** Scaled rate per dense currency code; 0 where there is no rate. */
+    private final long[] rates;
+    private final int size;
+    
+    private FxRateTable(String version, short baseCurrency, long[] rates, int size) {
+        this.version = version;
+        this.baseCurrency = baseCurrency;
+        this.rates = rates;
+        this.size = size;
+    }
+    
+    /**
+     * @param rates Units of the base currency per unit of each currency
+     * @throws IllegalArgumentException if a rate is not positive, or rounds to zero at {@value #RATE_SCALE} places
+     */
+    public static FxRateTable of(String version, short baseCurrency, Map<Short, BigDecimal> rates) {
+        long[] scaled = new long[CurrencyCode.COUNT];
+        for (Map.Entry<Short, BigDecimal> rate : rates.entrySet()) {
+            scaled[rate.getKey()] = scale(CurrencyCode.toAlpha3(rate.getKey()), rate.getValue());
+        }
+        scaled[baseCurrency] = RATE_UNIT;
+        int size = 0;
+        for (long rate : scaled) {
+            if (rate != 0) {
+                size++;
+            }
+        }
+        return new FxRateTable(version, baseCurrency, scaled, size);
+    }
+    
+    /**
+     * A table that treats every currency as the base currency, i.e. converts nothing.
+     * For standalone engines run without rates (backtests, benchmarks).
+     */
+    public static FxRateTable unconverted(short baseCurrency) {
+        long[] scaled = new long[CurrencyCode.COUNT];
+        Arrays.fill(scaled, RATE_UNIT);
+        return new FxRateTable("unconverted", baseCurrency, scaled, CurrencyCode.COUNT);
+    }
+    
+    private static long scale(String currency, BigDecimal rate) {
+        if (rate.signum() <= 0) {
+            throw new IllegalArgumentException("FX rate for " + currency + " must be positive, was " + rate);
+        }
+        BigDecimal scaled = rate.setScale(RATE_SCALE, RoundingMode.HALF_UP).movePointRight(RATE_SCALE);
+        if (scaled.signum() == 0 || scaled.compareTo(MAX_LONG) > 0) {
+            throw new IllegalArgumentException("FX rate for " + currency + " is out of range: " + rate);
+        }
+        return scaled.longValue();
+    }
+    
+    public String version() {
+        return version;
+    }
+    
+    public short baseCurrency() {
+        return baseCurrency;
+    }
+    
+    /**
+     * @return Number of currencies with a rate, including the base currency
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @return The rate into the base currency, or null if there is none
+     */
+    public BigDecimal rate(short currency) {
+        long rate = rates[currency];
+        return rate == 0 ? null : BigDecimal.valueOf(rate, RATE_SCALE).stripTrailingZeros();
+    }
+    
+    /**
+     * Converts an amount in minor units of {@code currency} to minor units of the base currency.
+     *
+     * @return The converted amount, or {@link #NO_RATE} if the currency has no rate
+     */
+    public long toBaseMinorUnits(long minorUnits, short currency) {
+        long rate = rates[currency];
+        if (rate == 0) {
+            return NO_RATE;
+        }
+        if (rate == RATE_UNIT) {
+            return minorUnits;
+        }
+        // minorUnits * rate / RATE_UNIT with rate = whole * RATE_UNIT + fraction and
+        // minorUnits = high * RATE_UNIT + low, so that low * fraction < RATE_UNIT^2 fits in a long
+        long whole = rate / RATE_UNIT;
+        long fraction = rate % RATE_UNIT;
+        long high = Math.floorDiv(minorUnits, RATE_UNIT);
+        long low = Math.floorMod(minorUnits, RATE_UNIT);
+        try {
+            long converted = Math.multiplyExact(minorUnits, whole);
+            converted = Math.addExact(converted, Math.multiplyExact(high, fraction));
+            return Math.addExact(converted, (low * fraction + RATE_UNIT / 2) / RATE_UNIT);
+        } catch (ArithmeticException ex) {
+            return minorUnits < 0 ? Long.MIN_VALUE + 1 : Long.MAX_VALUE;
+        }
+    }
+    
+    /**
+     * Converts an amount to minor units, rounding half up beyond {@value #AMOUNT_SCALE}
+     * decimal places and saturating at the long range. Amounts with at most
+     * {@value #AMOUNT_SCALE} decimal places, the usual case, take a path without rescaling.
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        int scale = amount.scale();
+        if (scale >= 0 && scale <= AMOUNT_SCALE && amount.precision() <= 16) {
+            return amount.unscaledValue().longValue() * AMOUNT_MULTIPLIERS[scale];
+        }
+        BigDecimal minorUnits = amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).movePointRight(AMOUNT_SCALE);
+        return minorUnits.max(MIN_LONG).min(MAX_LONG).longValue();
+    }
+}
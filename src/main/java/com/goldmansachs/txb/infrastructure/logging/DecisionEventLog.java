@@ -0,0 +1,154 @@
+package com.goldmansachs.txb.infrastructure.logging;
+
+import com.goldmansachs.txb.domain.model.RiskScore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sampled, asynchronous operational log of scoring decisions, written to the
+ * {@value #LOGGER_NAME} logger as one structured key=value line per decision.
+ *
+ * Request threads only decide whether a decision is sampled and, if so, put a small
+ * event on a lock-free {@link EventRing}; a single background thread formats and writes
+ * the lines every {@code drain-interval}. Request threads therefore never format
+ * messages or contend on an appender. When the ring is full, events are dropped and
+ * counted rather than slowing scoring down.
+ *
+ * Sampling is by transaction ID, so a given transaction is logged (or not) consistently
+ * across retries and instances. This log is for operations and troubleshooting; the
+ * record of every decision is the audit trail, and nothing here replaces it.
+ */
+@Component
+public class DecisionEventLog {
+    
+    static final String LOGGER_NAME = "txb.decisions";
+    
+    private static final Logger log = LoggerFactory.getLogger(DecisionEventLog.class);
+    private static final Logger decisions = LoggerFactory.getLogger(LOGGER_NAME);
+    
+    private final boolean enabled;
+    /** Sampling threshold on 53 bits of the mixed transaction-ID hash. */
+    private final long sampleThreshold;
+    private final Duration drainInterval;
+    private final EventRing<DecisionEvent> ring;
+    private final ScheduledExecutorService drainer;
+    private final StringBuilder line = new StringBuilder(256);
+    
+    private final Counter loggedCounter;
+    private final Counter droppedCounter;
+    
+    public DecisionEventLog(
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.decision-log.enabled:true}") boolean enabled,
+            @Value("${txb.risk.decision-log.sample-rate:0.01}") double sampleRate,
+            @Value("${txb.risk.decision-log.buffer-size:65536}") int bufferSize,
+            @Value("${txb.risk.decision-log.drain-interval:200ms}") Duration drainInterval) {
+        if (!(sampleRate >= 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("txb.risk.decision-log.sample-rate must be in [0, 1], was " + sampleRate);
+        }
+        this.enabled = enabled && sampleRate > 0;
+        this.sampleThreshold = (long) Math.ceil(sampleRate * (1L << 53));
+        this.drainInterval = drainInterval;
+        this.ring = new EventRing<>(bufferSize);
+        this.drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "decision-log-drainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.loggedCounter = Counter.builder("risk.decision_log.events")
+            .tag("result", "logged")
+            .description("Sampled scoring decisions written to the decision log")
+            .register(meterRegistry);
+        this.droppedCounter = Counter.builder("risk.decision_log.events")
+            .tag("result", "dropped")
+            .description("Sampled scoring decisions dropped because the decision log buffer was full")
+            .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        long intervalNanos = drainInterval.toNanos();
+        drainer.scheduleWithFixedDelay(this::drainSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        drainer.shutdownNow();
+        if (enabled) {
+            drainSafely();
+        }
+    }
+    
+    /**
+     * Logs a decision if its transaction is sampled. Never blocks.
+     *
+     * @param riskScore The decision
+     * @param elapsedNanos Time taken to reach it
+     */
+    public void record(RiskScore riskScore, long elapsedNanos) {
+        if (!enabled || !sampled(riskScore.transactionId())) {
+            return;
+        }
+        if (!ring.offer(new DecisionEvent(riskScore, elapsedNanos, System.currentTimeMillis()))) {
+            droppedCounter.increment();
+        }
+    }
+    
+    private boolean sampled(String transactionId) {
+        long hash = transactionId.hashCode() * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 29;
+        return (hash >>> 11) < sampleThreshold;
+    }
+    
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (RuntimeException ex) {
+            log.warn("Decision log drain failed: {}", ex.getMessage());
+        }
+    }
+    
+    /**
+     * Writes every buffered event. Runs on the drainer thread, or on shutdown after it has stopped.
+     */
+    private synchronized void drain() {
+        long logged = 0;
+        for (DecisionEvent event = ring.poll(); event != null; event = ring.poll()) {
+            if (decisions.isInfoEnabled()) {
+                decisions.info(format(event));
+            }
+            logged++;
+        }
+        loggedCounter.increment(logged);
+    }
+    
+    private String format(DecisionEvent event) {
+        RiskScore riskScore = event.riskScore();
+        line.setLength(0);
+        line.append("decision ts=").append(Instant.ofEpochMilli(event.epochMillis()))
+            .append(" txn=").append(riskScore.transactionId())
+            .append(" score=").append(riskScore.score())
+            .append(" level=").append(riskScore.level())
+            .append(" reasons=").append(String.join(",", riskScore.reasonCodes()))
+            .append(" config=").append(riskScore.configVersion())
+            .append(" micros=").append(TimeUnit.NANOSECONDS.toMicros(event.elapsedNanos()));
+        return line.toString();
+    }
+    
+    private record DecisionEvent(RiskScore riskScore, long elapsedNanos, long epochMillis) {}
+}
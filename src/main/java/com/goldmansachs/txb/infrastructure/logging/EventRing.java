@@ -0,0 +1,84 @@
+package com.goldmansachs.txb.infrastructure.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free multi-producer single-consumer ring buffer.
+ *
+ * Each slot carries a sequence number (Vyukov's bounded queue): a producer claims the
+ * next position with one CAS on the tail, stores its element, and publishes it by
+ * advancing the slot's sequence; the consumer reads a slot once its sequence says it is
+ * published and hands it back by advancing the sequence one lap. Producers never wait:
+ * when the ring is full, {@link #offer} fails and the caller drops the element.
+ *
+ * The element array is accessed with plain reads and writes; the volatile sequence
+ * write after storing and the volatile sequence read before loading order them.
+ */
+final class EventRing<E> {
+    
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    /** Only read and written by the consumer thread. */
+    private long head;
+    
+    EventRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two, was " + capacity);
+        }
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+    
+    /**
+     * @return false if the ring is full
+     */
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long lag = sequences.get(index) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                // The slot still holds an element from the previous lap
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+    
+    /**
+     * Consumer only.
+     *
+     * @return The oldest published element, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = (E) elements[index];
+        elements[index] = null;
+        sequences.set(index, head + elements.length);
+        head++;
+        return element;
+    }
+    
+    int capacity() {
+        return elements.length;
+    }
+}
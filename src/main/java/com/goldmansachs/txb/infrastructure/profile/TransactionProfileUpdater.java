@@ -0,0 +1,446 @@
+package com.goldmansachs.txb.infrastructure.profile;
+
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.infrastructure.cache.KnownPairBloomFilter;
+import com.goldmansachs.txb.infrastructure.cache.TransactionHistoryCache;
+import com.goldmansachs.txb.infrastructure.fx.FxRateStore;
+import com.goldmansachs.txb.infrastructure.fx.FxRateTable;
+import com.goldmansachs.txb.infrastructure.repository.HistoryKey;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryEntity;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps client/beneficiary profiles current by folding every scored transaction into
+ * running statistics for its pair, instead of relying on transaction_history being
+ * recomputed out of band.
+ *
+ * Per pair the updater maintains:
+ * - An exponentially weighted mean and variance of the amount (smoothing factor {@code alpha}),
+ *   in the base currency; amounts in a currency without an FX rate are left out
+ * - The number of transactions seen
+ * - The time of the most recent transaction
+ *
+ * Updates are applied in memory immediately: the new state is written straight into
+ * {@link TransactionHistoryCache}, so the next transaction for the same pair is scored
+ * against it (a first payment to a beneficiary stops being NEW_BENEFICIARY at once, and
+ * the pair is added to {@link KnownPairBloomFilter}).
+ * Pairs touched since the last flush are kept in a dirty map and written back every
+ * {@code flush-interval} as one batched upsert per pair, however many transactions the
+ * pair saw in between.
+ *
+ * The upserts go through JDBC; once a pair is written back and detached, its cache entry
+ * is reloaded from the database in one bulk query per batch. The transaction count is written as a delta and the latest timestamp as a maximum, so
+ * several instances can flush the same pair; the mean and variance are last-writer-wins.
+ * A pair that has only seen amounts without an FX rate has no mean yet, and keeps
+ * avg_amount and amount_variance NULL (or whatever another instance wrote) until it does.
+ * A failed flush keeps the pairs dirty and is retried on the next interval.
+ *
+ * Profiles are never loaded from the engine's lookup, which may be the periodically
+ * refreshed history snapshot: folding a transaction into a stale profile would write the
+ * stale mean back over a newer one. A pair is loaded through the history cache, which holds
+ * either a dirty profile's latest state or the row as last written back, and a profile
+ * detached by a flush while being updated is reloaded straight from its database row.
+ */
+@Component
+public class TransactionProfileUpdater {
+    
+    private static final Logger log = LoggerFactory.getLogger(TransactionProfileUpdater.class);
+    
+    static final String UPSERT_SQL =
+        "INSERT INTO transaction_history (client_id, beneficiary_id, avg_amount, amount_variance, transaction_count, last_seen) "
+            + "VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (client_id, beneficiary_id) DO UPDATE SET "
+            + "avg_amount = COALESCE(EXCLUDED.avg_amount, transaction_history.avg_amount), "
+            + "amount_variance = COALESCE(EXCLUDED.amount_variance, transaction_history.amount_variance), "
+            + "transaction_count = transaction_history.transaction_count + EXCLUDED.transaction_count, "
+            + "last_seen = GREATEST(transaction_history.last_seen, EXCLUDED.last_seen)";
+    
+    private final TransactionHistoryRepository repository;
+    private final TransactionHistoryCache historyCache;
+    private final KnownPairBloomFilter knownPairs;
+    private final FxRateStore fxRates;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final double alpha;
+    private final int batchSize;
+    private final Duration flushInterval;
+    
+    private final Map<HistoryKey, PairProfile> dirty = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    
+    private final Counter updateCounter;
+    private final Counter skippedCounter;
+    private final Counter upsertCounter;
+    private final Counter flushFailureCounter;
+    private final Timer flushTimer;
+    
+    public TransactionProfileUpdater(
+            TransactionHistoryRepository repository,
+            TransactionHistoryCache historyCache,
+            KnownPairBloomFilter knownPairs,
+            FxRateStore fxRates,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.profile.enabled:true}") boolean enabled,
+            @Value("${txb.risk.profile.alpha:0.1}") double alpha,
+            @Value("${txb.risk.profile.batch-size:500}") int batchSize,
+            @Value("${txb.risk.profile.flush-interval:5s}") Duration flushInterval) {
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("txb.risk.profile.alpha must be in (0, 1], was " + alpha);
+        }
+        this.repository = repository;
+        this.historyCache = historyCache;
+        this.knownPairs = knownPairs;
+        this.fxRates = fxRates;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.alpha = alpha;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "profile-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        Gauge.builder("risk.profile.dirty", dirty, Map::size)
+            .description("Client/beneficiary profiles updated in memory and not yet written back")
+            .register(meterRegistry);
+        this.updateCounter = Counter.builder("risk.profile.updates")
+            .description("Scored transactions folded into a client/beneficiary profile")
+            .register(meterRegistry);
+        this.skippedCounter = Counter.builder("risk.profile.updates.skipped")
+            .description("Scored transactions not folded because the profile could not be loaded, or was not in memory in degraded mode")
+            .register(meterRegistry);
+        this.upsertCounter = Counter.builder("risk.profile.upserts")
+            .description("Profile rows written back to transaction_history")
+            .register(meterRegistry);
+        this.flushFailureCounter = Counter.builder("risk.profile.flush.failures")
+            .description("Profile write-backs that failed and will be retried")
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder("risk.profile.flush.time")
+            .description("Time taken to write back one interval of profile updates")
+            .register(meterRegistry);
+        
+        log.info("Initialized TransactionProfileUpdater (enabled={}, alpha={}, flushInterval={}, batchSize={})",
+                 enabled, alpha, flushInterval, batchSize);
+    }
+    
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            long intervalNanos = flushInterval.toNanos();
+            flusher.scheduleWithFixedDelay(this::flushSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    /**
+     * Folds a scored transaction into its pair's profile.
+     * Never throws: a profile that cannot be loaded is skipped, not the scoring request.
+     */
+    public void record(Transaction transaction) {
+        record(transaction, false);
+    }
+    
+    /**
+     * Like {@link #record(Transaction)}, optionally in degraded mode, in which a profile
+     * is only loaded from memory: a pair that is neither dirty nor in the history cache is
+     * skipped rather than looked up in the database.
+     */
+    public void record(Transaction transaction, boolean degraded) {
+        if (!enabled) {
+            return;
+        }
+        HistoryKey key = new HistoryKey(transaction.clientId(), transaction.beneficiaryId());
+        long baseAmount = fxRates.toBaseMinorUnits(transaction);
+        // Profiles hold major units of the base currency
+        double amount = baseAmount == FxRateTable.NO_RATE ? Double.NaN : baseAmount / 100.0;
+        Instant seenAt = transaction.transactionTime().toInstant();
+        try {
+            boolean reload = false;
+            while (true) {
+                PairProfile profile = dirty.get(key);
+                if (profile == null) {
+                    // Loaded outside the map so a history query never holds a map bin lock
+                    PairProfile loaded = degraded ? loadProfileFromMemory(key)
+                        : reload ? loadProfileFromDatabase(key) : loadProfile(key);
+                    if (loaded == null) {
+                        skippedCounter.increment();
+                        return;
+                    }
+                    profile = dirty.putIfAbsent(key, loaded);
+                    if (profile == null) {
+                        profile = loaded;
+                        knownPairs.add(key.clientId(), key.beneficiaryId());
+                    }
+                }
+                synchronized (profile) {
+                    // Detached by a flush that completed in between; reload from the database
+                    if (profile.detached) {
+                        reload = true;
+                        continue;
+                    }
+                    profile.apply(amount, seenAt, alpha);
+                    historyCache.refresh(profile.toEntity(key));
+                }
+                updateCounter.increment();
+                return;
+            }
+        } catch (RuntimeException ex) {
+            skippedCounter.increment();
+            log.debug("Skipped profile update for transaction {}: {}", transaction.transactionId(), ex.getMessage());
+        }
+    }
+    
+    /**
+     * Folds a batch of scored transactions, in order, into their pairs' profiles.
+     */
+    public void recordAll(List<Transaction> transactions) {
+        recordAll(transactions, false);
+    }
+    
+    /**
+     * Like {@link #recordAll(List)}, optionally in degraded mode (see {@link #record(Transaction, boolean)}).
+     */
+    public void recordAll(List<Transaction> transactions, boolean degraded) {
+        for (Transaction transaction : transactions) {
+            record(transaction, degraded);
+        }
+    }
+    
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+        if (enabled) {
+            flushSafely();
+        }
+        log.info("TransactionProfileUpdater stopped");
+    }
+    
+    private PairProfile loadProfile(HistoryKey key) {
+        // Served from memory if the pair was updated here recently, otherwise from the database
+        Optional<TransactionHistoryEntity> history = historyCache.findHistory(key.clientId(), key.beneficiaryId());
+        return history.map(PairProfile::from).orElseGet(PairProfile::new);
+    }
+    
+    /**
+     * Loads the row as written back, bypassing every in-memory copy, and caches it.
+     */
+    private PairProfile loadProfileFromDatabase(HistoryKey key) {
+        Optional<TransactionHistoryEntity> history = repository.findByClientIdAndBeneficiaryId(key.clientId(), key.beneficiaryId());
+        history.ifPresent(historyCache::refresh);
+        return history.map(PairProfile::from).orElseGet(PairProfile::new);
+    }
+    
+    /**
+     * @return The profile as cached, or null if the pair is not in the history cache
+     */
+    private PairProfile loadProfileFromMemory(HistoryKey key) {
+        Optional<TransactionHistoryEntity> cached = historyCache.getIfPresent(key.clientId(), key.beneficiaryId());
+        return cached != null ? cached.map(PairProfile::from).orElseGet(PairProfile::new) : null;
+    }
+    
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            flushFailureCounter.increment();
+            log.warn("Profile write-back failed, will retry: {}", ex.getMessage());
+        }
+    }
+    
+    private void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<HistoryKey, PairProfile>> profiles = new ArrayList<>(dirty.entrySet());
+        for (int from = 0; from < profiles.size(); from += batchSize) {
+            List<Map.Entry<HistoryKey, PairProfile>> chunk = profiles.subList(from, Math.min(from + batchSize, profiles.size()));
+            List<ProfileRow> rows = new ArrayList<>(chunk.size());
+            for (Map.Entry<HistoryKey, PairProfile> entry : chunk) {
+                PairProfile profile = entry.getValue();
+                synchronized (profile) {
+                    rows.add(new ProfileRow(entry.getKey(), profile.seeded, profile.mean, profile.variance,
+                                            profile.pendingCount, profile.lastSeen));
+                }
+            }
+            flushTimer.record(() -> upsert(rows));
+            upsertCounter.increment(rows.size());
+            
+            List<HistoryKey> detached = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                Map.Entry<HistoryKey, PairProfile> entry = chunk.get(i);
+                PairProfile profile = entry.getValue();
+                synchronized (profile) {
+                    profile.pendingCount -= rows.get(i).countDelta();
+                    // Only detach profiles that saw no update while the upsert was in flight
+                    if (profile.pendingCount == 0) {
+                        profile.detached = true;
+                        dirty.remove(entry.getKey(), profile);
+                        detached.add(entry.getKey());
+                    }
+                }
+            }
+            reloadCached(detached);
+        }
+        log.debug("Wrote back {} client/beneficiary profiles", profiles.size());
+    }
+    
+    /**
+     * Replaces the cached state of detached pairs with their rows as written back, so the
+     * next transaction for a pair starts from the database (including other instances'
+     * writes) rather than from this instance's copy.
+     */
+    private void reloadCached(List<HistoryKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        for (HistoryKey key : keys) {
+            historyCache.invalidate(key.clientId(), key.beneficiaryId());
+        }
+        try {
+            historyCache.findAllHistory(keys);
+        } catch (RuntimeException ex) {
+            // The rows are written; the pairs are loaded from the database on next use instead
+            log.debug("Could not reload {} written-back profiles: {}", keys.size(), ex.getMessage());
+        }
+    }
+    
+    private void upsert(List<ProfileRow> rows) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ProfileRow row = rows.get(i);
+                ps.setString(1, row.key().clientId());
+                ps.setString(2, row.key().beneficiaryId());
+                if (row.seeded()) {
+                    ps.setBigDecimal(3, toAmount(row.mean()));
+                    ps.setDouble(4, row.variance());
+                } else {
+                    ps.setNull(3, Types.DECIMAL);
+                    ps.setNull(4, Types.DOUBLE);
+                }
+                ps.setLong(5, row.countDelta());
+                ps.setTimestamp(6, row.lastSeen() != null ? Timestamp.from(row.lastSeen()) : null);
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+    
+    private static BigDecimal toAmount(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_EVEN);
+    }
+    
+    /**
+     * Snapshot of one dirty profile taken for a write-back.
+     */
+    private record ProfileRow(HistoryKey key, boolean seeded, double mean, double variance, long countDelta, Instant lastSeen) {}
+    
+    /**
+     * Mutable running statistics for one pair. Guarded by its own monitor.
+     */
+    private static final class PairProfile {
+        
+        private final UUID id;
+        /** Set once a real amount has seeded the mean; until then mean and variance are meaningless. */
+        private boolean seeded;
+        private double mean;
+        private double variance;
+        private long count;
+        private Instant lastSeen;
+        
+        /** Transactions folded in since the last successful write-back. */
+        private long pendingCount;
+        /** Set once the profile has been written back and removed from the dirty map. */
+        private boolean detached;
+        
+        PairProfile() {
+            this.id = null;
+        }
+        
+        private PairProfile(TransactionHistoryEntity entity) {
+            this.id = entity.getId();
+            this.seeded = entity.getAvgAmount() != null;
+            this.mean = seeded ? entity.getAvgAmount().doubleValue() : 0.0;
+            this.variance = entity.getAmountVariance() != null ? entity.getAmountVariance() : 0.0;
+            this.count = entity.getTransactionCount();
+            this.lastSeen = entity.getLastSeen();
+        }
+        
+        static PairProfile from(TransactionHistoryEntity entity) {
+            return new PairProfile(entity);
+        }
+        
+        /**
+         * Incremental EWMA update of mean and variance (West/Finch form):
+         * the first observation seeds the mean, later ones move it by {@code alpha}.
+         * A NaN amount (no FX rate) updates only the count and last-seen time.
+         */
+        void apply(double amount, Instant seenAt, double alpha) {
+            if (!Double.isNaN(amount)) {
+                if (!seeded) {
+                    seeded = true;
+                    mean = amount;
+                    variance = 0.0;
+                } else {
+                    double diff = amount - mean;
+                    double increment = alpha * diff;
+                    mean += increment;
+                    variance = (1 - alpha) * (variance + diff * increment);
+                }
+            }
+            count++;
+            pendingCount++;
+            if (lastSeen == null || seenAt.isAfter(lastSeen)) {
+                lastSeen = seenAt;
+            }
+        }
+        
+        TransactionHistoryEntity toEntity(HistoryKey key) {
+            return TransactionHistoryEntity.builder()
+                .id(id)
+                .clientId(key.clientId())
+                .beneficiaryId(key.beneficiaryId())
+                .avgAmount(seeded ? toAmount(mean) : null)
+                .amountVariance(seeded ? variance : null)
+                .transactionCount(count)
+                .lastSeen(lastSeen)
+                .build();
+        }
+    }
+}
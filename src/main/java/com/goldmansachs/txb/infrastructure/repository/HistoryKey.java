@@ -0,0 +1,36 @@
+package com.goldmansachs.txb.infrastructure.repository;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Identifies a client/beneficiary pair in transaction_history.
+ */
+public record HistoryKey(String clientId, String beneficiaryId) {
+    
+    /**
+     * Hashes a client/beneficiary pair to a well-mixed, non-zero 64-bit value: FNV-1a over
+     * the UTF-8 bytes of both IDs (with a separator so "AB"+"C" and "A"+"BC" differ),
+     * finished with the MurmurHash3 avalanche step so any subset of bits is usable as an index.
+     */
+    public static long hash64(String clientId, String beneficiaryId) {
+        long h = 0xcbf29ce484222325L;
+        h = fnv(h, clientId);
+        h = (h ^ 0xff) * 0x100000001b3L;
+        h = fnv(h, beneficiaryId);
+        
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h != 0 ? h : 1;
+    }
+    
+    private static long fnv(long h, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return h;
+    }
+}
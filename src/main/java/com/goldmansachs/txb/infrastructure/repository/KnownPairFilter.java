@@ -0,0 +1,27 @@
+package com.goldmansachs.txb.infrastructure.repository;
+
+/**
+ * Probabilistic, I/O-free membership test for client/beneficiary pairs with history.
+ * A negative answer means the pair had no history as of a recent sync, no staler than a
+ * cached "no history" answer; a positive answer must be confirmed against
+ * {@link TransactionHistoryLookup}.
+ */
+public interface KnownPairFilter {
+    
+    /**
+     * Filter that cannot rule anything out, for callers without a filter (e.g. offline backtests).
+     */
+    KnownPairFilter NONE = (clientId, beneficiaryId) -> true;
+    
+    /**
+     * @return false if the client had not paid the beneficiary as of the filter's last sync;
+     *         true if it may have, in which case the history must be checked
+     */
+    boolean mightContain(String clientId, String beneficiaryId);
+    
+    /**
+     * Reports that a pair for which {@link #mightContain} returned true turned out to have no history.
+     */
+    default void recordFalsePositive() {
+    }
+}
@@ -31,6 +31,12 @@ public class TransactionHistoryEntity {
     @Column(name = "avg_amount", precision = 18, scale = 2)
     private BigDecimal avgAmount;
     
+    @Column(name = "amount_variance")
+    private Double amountVariance;
+    
+    @Column(name = "transaction_count", nullable = false)
+    private long transactionCount;
+    
     @Column(name = "last_seen")
     private Instant lastSeen;
 }
@@ -0,0 +1,45 @@
+package com.goldmansachs.txb.infrastructure.repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-side view of client/beneficiary transaction history used by the scoring engine.
+ * Decouples the rules from how history is served (cache, database, snapshot).
+ */
+public interface TransactionHistoryLookup {
+    /**
+     * Finds the history for a client/beneficiary pair.
+     * 
+     * @param clientId The paying client
+     * @param beneficiaryId The beneficiary being paid
+     * @return The history record, or empty if the client has never paid this beneficiary
+     */
+    Optional<TransactionHistoryEntity> findHistory(String clientId, String beneficiaryId);
+    
+    /**
+     * Finds the history for many pairs at once. Implementations backed by a database
+     * should override this to resolve all pairs in as few round-trips as possible.
+     * 
+     * @param keys The distinct client/beneficiary pairs to resolve
+     * @return One entry per requested key; empty for pairs with no history
+     */
+    default Map<HistoryKey, Optional<TransactionHistoryEntity>> findAllHistory(Collection<HistoryKey> keys) {
+        Map<HistoryKey, Optional<TransactionHistoryEntity>> result = new HashMap<>();
+        for (HistoryKey key : keys) {
+            result.put(key, findHistory(key.clientId(), key.beneficiaryId()));
+        }
+        return result;
+    }
+    
+    /**
+     * Describes where {@link #findHistory} would currently serve a pair from (e.g. "cache",
+     * "snapshot", "database"), for decision traces. Must not do I/O; the answer is best-effort
+     * and may be stale by the time the lookup runs.
+     */
+    default String sourceOf(String clientId, String beneficiaryId) {
+        return "lookup";
+    }
+}
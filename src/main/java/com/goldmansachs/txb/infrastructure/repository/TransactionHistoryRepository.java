@@ -1,12 +1,29 @@
 package com.goldmansachs.txb.infrastructure.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface TransactionHistoryRepository extends JpaRepository<TransactionHistoryEntity, UUID> {
     Optional<TransactionHistoryEntity> findByClientIdAndBeneficiaryId(String clientId, String beneficiaryId);
+    
+    /**
+     * Bulk lookup for batch scoring. The arrays are zipped into pairs, and only rows for
+     * exactly those pairs are returned, each found through the client/beneficiary index.
+     * 
+     * @param clientIds The client of each pair
+     * @param beneficiaryIds The beneficiary of each pair, at the same index as its client
+     */
+    @Query(value = "SELECT h.* FROM transaction_history h "
+        + "JOIN unnest(CAST(:clientIds AS text[]), CAST(:beneficiaryIds AS text[])) AS pair(client_id, beneficiary_id) "
+        + "ON h.client_id = pair.client_id AND h.beneficiary_id = pair.beneficiary_id",
+        nativeQuery = true)
+    List<TransactionHistoryEntity> findByPairs(@Param("clientIds") String[] clientIds,
+                                               @Param("beneficiaryIds") String[] beneficiaryIds);
 }
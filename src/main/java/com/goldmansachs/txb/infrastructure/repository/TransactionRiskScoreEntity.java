@@ -5,13 +5,21 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
 
+import java.io.Serializable;
 import java.time.Instant;
-import java.util.List;
 import java.util.UUID;
 
+/**
+ * A row of the audit trail. The table is partitioned by {@code created_at}, which is part
+ * of the primary key, and is written only by the audit pipeline's JDBC batches; this
+ * mapping is read-only.
+ */
 @Entity
+@Immutable
 @Table(name = "transaction_risk_scores")
+@IdClass(TransactionRiskScoreEntity.Key.class)
 @Data
 @Builder
 @NoArgsConstructor
@@ -19,10 +27,13 @@ import java.util.UUID;
 public class TransactionRiskScoreEntity {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
     
-    @Column(name = "transaction_id", nullable = false, unique = true)
+    @Id
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+    
+    @Column(name = "transaction_id", nullable = false)
     private String transactionId;
     
     @Column(name = "risk_score", nullable = false)
@@ -34,19 +45,20 @@ public class TransactionRiskScoreEntity {
     @Column(name = "reason_codes", columnDefinition = "text[]")
     private String[] reasonCodes;
     
-    @Column(name = "created_at", nullable = false)
-    private Instant createdAt;
-    
     @Column(name = "created_by", nullable = false)
     private String createdBy;
     
-    @PrePersist
-    protected void onCreate() {
-        if (createdAt == null) {
-            createdAt = Instant.now();
-        }
-        if (createdBy == null) {
-            createdBy = "SYSTEM";
-        }
+    @Column(name = "config_version", length = 64)
+    private String configVersion;
+    
+    /**
+     * Primary key of a row: its ID together with the partition key.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID id;
+        private Instant createdAt;
     }
 }
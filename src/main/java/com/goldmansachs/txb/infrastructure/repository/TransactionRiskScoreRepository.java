@@ -3,10 +3,20 @@ package com.goldmansachs.txb.infrastructure.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
+/**
+ * Lookups are bounded by {@code created_at} so PostgreSQL prunes them to the partitions in
+ * range instead of probing the transaction ID index of every partition.
+ */
 @Repository
-public interface TransactionRiskScoreRepository extends JpaRepository<TransactionRiskScoreEntity, UUID> {
-    Optional<TransactionRiskScoreEntity> findByTransactionId(String transactionId);
+public interface TransactionRiskScoreRepository extends JpaRepository<TransactionRiskScoreEntity, TransactionRiskScoreEntity.Key> {
+    Optional<TransactionRiskScoreEntity> findFirstByTransactionIdAndCreatedAtGreaterThanEqualOrderByCreatedAtAsc(
+        String transactionId, Instant createdAfter);
+    
+    List<TransactionRiskScoreEntity> findByTransactionIdInAndCreatedAtGreaterThanEqualOrderByCreatedAtAsc(
+        Collection<String> transactionIds, Instant createdAfter);
 }
@@ -0,0 +1,384 @@
+package com.goldmansachs.txb.infrastructure.resultlog;
+
+import com.goldmansachs.txb.domain.model.RiskScore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Local, append-only log of every scoring decision, for downstream consumers (case
+ * management, analytics) that would otherwise poll {@code transaction_risk_scores} and
+ * compete with audit inserts.
+ *
+ * Each decision is appended as a compact binary frame ({@link ResultLogFormat}) and gets
+ * the next offset, starting at 0. The log is a directory of memory-mapped segment files
+ * named by their first offset; when a frame does not fit in the active segment, a new
+ * one is started ({@code segment-size}). Appends are serialised by a lock and copy the
+ * frame into the mapping, with no system call; the background thread forces the active
+ * segment to disk every {@code flush-interval}, so a process crash loses nothing and an
+ * OS crash loses at most that interval. Closed segments whose last record is older than
+ * {@code retention} are deleted.
+ *
+ * Readers ask for records from an offset (the offset after the last one they processed),
+ * and are served straight from the mappings without touching the database. An offset
+ * below the oldest retained record reads from the oldest one. {@link #awaitAppend} lets
+ * a reader wait for records past the end instead of polling. Appends never fail
+ * scoring: a record that cannot be appended is logged and counted.
+ */
+@Component
+public class ResultLog {
+    
+    private static final Logger log = LoggerFactory.getLogger(ResultLog.class);
+    
+    private static final long MIN_SEGMENT_BYTES = DataSize.ofMegabytes(1).toBytes();
+    private static final long MAX_SEGMENT_BYTES = DataSize.ofGigabytes(1).toBytes();
+    
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final Duration retention;
+    private final Duration flushInterval;
+    private final ScheduledExecutorService flusher;
+    private final ConcurrentSkipListMap<Long, ResultLogSegment> segments = new ConcurrentSkipListMap<>();
+    
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition appended = appendLock.newCondition();
+    /** Readers waiting in {@link #awaitAppend}. Guarded by appendLock. */
+    private int waiters;
+    /** Reused encoding buffer. Guarded by appendLock. */
+    private ByteBuffer scratch = ByteBuffer.allocate(512);
+    private volatile ResultLogSegment active;
+    private volatile long nextOffset;
+    
+    private final Counter appendedCounter;
+    private final Counter failureCounter;
+    private final Counter deletedCounter;
+    
+    public ResultLog(
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.result-log.enabled:true}") boolean enabled,
+            @Value("${txb.risk.result-log.directory:result-log}") String directory,
+            @Value("${txb.risk.result-log.segment-size:64MB}") DataSize segmentSize,
+            @Value("${txb.risk.result-log.retention:7d}") Duration retention,
+            @Value("${txb.risk.result-log.flush-interval:1s}") Duration flushInterval) {
+        if (segmentSize.toBytes() < MIN_SEGMENT_BYTES || segmentSize.toBytes() > MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("txb.risk.result-log.segment-size must be between 1MB and 1GB, was " + segmentSize);
+        }
+        if (retention.isNegative() || retention.isZero()) {
+            throw new IllegalArgumentException("txb.risk.result-log.retention must be positive, was " + retention);
+        }
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentBytes = (int) segmentSize.toBytes();
+        this.retention = retention;
+        this.flushInterval = flushInterval;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "result-log-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        Gauge.builder("risk.result_log.segments", segments, Map::size)
+            .description("Segment files in the result log")
+            .register(meterRegistry);
+        this.appendedCounter = Counter.builder("risk.result_log.records")
+            .description("Scoring decisions appended to the result log")
+            .register(meterRegistry);
+        this.failureCounter = Counter.builder("risk.result_log.append.failures")
+            .description("Scoring decisions that could not be appended to the result log")
+            .register(meterRegistry);
+        this.deletedCounter = Counter.builder("risk.result_log.segments.deleted")
+            .description("Result log segments deleted past their retention")
+            .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            open();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open result log in " + directory, ex);
+        }
+        log.info("Result log open in {}: offsets {} to {} in {} segments",
+                 directory, startOffset(), nextOffset, segments.size());
+        long intervalNanos = flushInterval.toNanos();
+        flusher.scheduleWithFixedDelay(this::maintainSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdownNow();
+        if (active != null) {
+            active.force();
+        }
+    }
+    
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            // Names are zero-padded offsets, so name order is offset order
+            files = listing.filter(ResultLogSegment::isSegmentFile).sorted().toList();
+        }
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            boolean last = i == files.size() - 1;
+            int capacity = (int) (last ? Math.max(Files.size(file), segmentBytes) : Files.size(file));
+            ResultLogSegment segment = ResultLogSegment.open(file, capacity, last);
+            segments.put(segment.baseOffset(), segment);
+        }
+        if (segments.isEmpty()) {
+            ResultLogSegment first = ResultLogSegment.create(directory, 0, segmentBytes);
+            segments.put(first.baseOffset(), first);
+        }
+        active = segments.lastEntry().getValue();
+        nextOffset = active.endOffset();
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Appends a decision. Never throws; failures are logged and counted.
+     */
+    public void append(RiskScore riskScore) {
+        appendAll(List.of(riskScore));
+    }
+    
+    /**
+     * Appends decisions in order, taking the append lock once. Never throws.
+     */
+    public void appendAll(List<RiskScore> riskScores) {
+        if (!enabled || riskScores.isEmpty()) {
+            return;
+        }
+        int count = 0;
+        appendLock.lock();
+        try {
+            for (RiskScore riskScore : riskScores) {
+                if (appendLocked(riskScore)) {
+                    count++;
+                }
+            }
+            if (waiters > 0 && count > 0) {
+                appended.signalAll();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        appendedCounter.increment(count);
+    }
+    
+    private boolean appendLocked(RiskScore riskScore) {
+        long offset = nextOffset;
+        long epochMillis = System.currentTimeMillis();
+        try {
+            ByteBuffer frame = ResultLogFormat.encode(scratch, offset, epochMillis, riskScore);
+            scratch = frame;
+            if (!active.append(frame, offset, epochMillis)) {
+                roll(offset);
+                if (!active.append(frame, offset, epochMillis)) {
+                    throw new IllegalArgumentException("Record of " + frame.limit() + " bytes is larger than a segment");
+                }
+            }
+            nextOffset = offset + 1;
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            failureCounter.increment();
+            log.warn("Could not append transaction {} to the result log: {}", riskScore.transactionId(), ex.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Starts a new segment at {@code baseOffset}. The full segment is forced to disk by the
+     * flusher thread, not the appending one.
+     */
+    private void roll(long baseOffset) throws IOException {
+        ResultLogSegment full = active;
+        ResultLogSegment next = ResultLogSegment.create(directory, baseOffset, segmentBytes);
+        segments.put(baseOffset, next);
+        active = next;
+        try {
+            flusher.execute(full::force);
+        } catch (RejectedExecutionException ex) {
+            // Shutting down
+            full.force();
+        }
+        log.info("Rolled result log to segment {}", next.file().getFileName());
+    }
+    
+    /**
+     * @return The offset of the oldest retained record, or {@link #nextOffset} if there is none
+     */
+    public long startOffset() {
+        Map.Entry<Long, ResultLogSegment> first = segments.firstEntry();
+        return first == null ? nextOffset : first.getKey();
+    }
+    
+    /**
+     * @return The offset the next appended record will get
+     */
+    public long nextOffset() {
+        return nextOffset;
+    }
+    
+    /**
+     * Reads up to {@code maxRecords} records from {@code fromOffset}, or from the oldest
+     * retained record if that is later. Returns immediately, possibly with no records.
+     */
+    public Batch read(long fromOffset, int maxRecords) {
+        List<ResultLogEntry> entries = new ArrayList<>(Math.min(maxRecords, 1024));
+        long offset = fromOffset;
+        while (entries.size() < maxRecords) {
+            ResultLogSegment segment = segmentFor(offset);
+            if (segment == null) {
+                break;
+            }
+            offset = Math.max(offset, segment.baseOffset());
+            if (offset >= segment.endOffset()) {
+                Long next = segments.higherKey(segment.baseOffset());
+                if (next == null) {
+                    break;
+                }
+                offset = next;
+                continue;
+            }
+            offset = segment.read(offset, maxRecords - entries.size(), entries);
+        }
+        return new Batch(offset, entries);
+    }
+    
+    /**
+     * Like {@link #read}, but returns the records still encoded, as a read-only view of
+     * the mapped segment without copying. The view holds up to {@code maxRecords}
+     * consecutive frames of one segment; a reader reaching a segment's end gets the next
+     * segment's frames on its next call.
+     */
+    public Frames readFrames(long fromOffset, int maxRecords) {
+        long offset = fromOffset;
+        while (true) {
+            ResultLogSegment segment = segmentFor(offset);
+            if (segment == null) {
+                return new Frames(offset, offset, ByteBuffer.allocate(0));
+            }
+            offset = Math.max(offset, segment.baseOffset());
+            long end = segment.endOffset();
+            if (offset < end) {
+                long to = Math.min(end, offset + maxRecords);
+                return new Frames(offset, to, segment.frames(offset, to));
+            }
+            Long next = segments.higherKey(segment.baseOffset());
+            if (next == null) {
+                return new Frames(offset, offset, ByteBuffer.allocate(0));
+            }
+            offset = next;
+        }
+    }
+    
+    private ResultLogSegment segmentFor(long offset) {
+        Map.Entry<Long, ResultLogSegment> entry = segments.floorEntry(offset);
+        if (entry == null) {
+            entry = segments.firstEntry();
+        }
+        return entry == null ? null : entry.getValue();
+    }
+    
+    /**
+     * Waits until a record at or after {@code offset} has been appended.
+     *
+     * @return true if {@code offset} is now below {@link #nextOffset}, false on timeout
+     */
+    public boolean awaitAppend(long offset, Duration timeout) throws InterruptedException {
+        if (offset < nextOffset) {
+            return true;
+        }
+        long remainingNanos = timeout.toNanos();
+        appendLock.lock();
+        try {
+            waiters++;
+            try {
+                while (offset >= nextOffset) {
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    remainingNanos = appended.awaitNanos(remainingNanos);
+                }
+                return true;
+            } finally {
+                waiters--;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+    
+    private void maintainSafely() {
+        try {
+            active.force();
+            deleteExpiredSegments();
+        } catch (RuntimeException ex) {
+            log.warn("Result log maintenance failed: {}", ex.getMessage());
+        }
+    }
+    
+    private void deleteExpiredSegments() {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        for (ResultLogSegment segment : segments.values()) {
+            // The active segment is never deleted, so the log always has a place to append
+            if (segment == active || segment.lastEpochMillis() >= cutoff) {
+                break;
+            }
+            try {
+                segment.delete();
+                segments.remove(segment.baseOffset());
+                deletedCounter.increment();
+                log.info("Deleted result log segment {} (offsets {} to {})",
+                         segment.file().getFileName(), segment.baseOffset(), segment.endOffset() - 1);
+            } catch (IOException ex) {
+                log.warn("Could not delete result log segment {}, will retry: {}", segment.file(), ex.getMessage());
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Decoded records; {@code nextOffset} is where the reader continues.
+     */
+    public record Batch(long nextOffset, List<ResultLogEntry> entries) {}
+    
+    /**
+     * Encoded records {@code [firstOffset, nextOffset)} in {@link ResultLogFormat}.
+     * {@code nextOffset} is where the reader continues.
+     */
+    public record Frames(long firstOffset, long nextOffset, ByteBuffer bytes) {}
+}
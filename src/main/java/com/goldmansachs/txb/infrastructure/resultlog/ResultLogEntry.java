@@ -0,0 +1,13 @@
+package com.goldmansachs.txb.infrastructure.resultlog;
+
+import com.goldmansachs.txb.domain.model.RiskScore;
+
+/**
+ * One scoring decision read back from the {@link ResultLog}.
+ * {@code offset} is its position in the log; {@code epochMillis} is when it was appended.
+ */
+public record ResultLogEntry(
+    long offset,
+    long epochMillis,
+    RiskScore riskScore
+) {}
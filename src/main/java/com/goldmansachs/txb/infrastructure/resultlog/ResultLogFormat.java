@@ -0,0 +1,151 @@
+package com.goldmansachs.txb.infrastructure.resultlog;
+
+import com.goldmansachs.txb.domain.model.RiskScore;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary encoding of one result log record (a frame). All integers are big-endian.
+ *
+ * <pre>
+ *  0  int    frame length in bytes, header included; written last
+ *  4  int    CRC32C of bytes [8, length)
+ *  8  long   offset
+ * 16  long   append time, epoch milliseconds
+ * 24  int    score
+ * 28  byte   risk level ordinal (LOW, MEDIUM, HIGH, CRITICAL)
+ * 29  byte   reason code count n
+ * 30  string transaction ID
+ *     string config version
+ *     n x string reason code
+ * </pre>
+ * A string is an unsigned short byte count followed by that many UTF-8 bytes. Frames
+ * start at multiples of {@value #ALIGNMENT} bytes, so the length can be published with a
+ * single aligned release store; a length of 0 means no frame has been written there yet.
+ * A reader in another process that mapped the same file must read the length with
+ * acquire semantics and check the CRC.
+ */
+final class ResultLogFormat {
+    
+    static final int ALIGNMENT = 4;
+    static final int HEADER_BYTES = 8;
+    /** Bytes before the strings. */
+    private static final int FIXED_BYTES = 30;
+    static final int MIN_FRAME_BYTES = FIXED_BYTES + 2 * Short.BYTES;
+    
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+    private static final RiskScore.RiskLevel[] LEVELS = RiskScore.RiskLevel.values();
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    
+    private ResultLogFormat() {
+    }
+    
+    /**
+     * Encodes a record with its checksum but without its length, reusing {@code scratch}
+     * (a heap buffer) if it is large enough.
+     *
+     * @return A buffer holding the frame from position 0; its limit is the frame length
+     * @throws IllegalArgumentException if a string is longer than 65535 UTF-8 bytes or
+     *         there are more than 255 reason codes
+     */
+    static ByteBuffer encode(ByteBuffer scratch, long offset, long epochMillis, RiskScore riskScore) {
+        List<String> reasonCodes = riskScore.reasonCodes();
+        if (reasonCodes.size() > 0xFF) {
+            throw new IllegalArgumentException("Too many reason codes: " + reasonCodes.size());
+        }
+        byte[][] strings = new byte[2 + reasonCodes.size()][];
+        strings[0] = utf8(riskScore.transactionId());
+        strings[1] = utf8(riskScore.configVersion());
+        int length = FIXED_BYTES;
+        for (int i = 0; i < reasonCodes.size(); i++) {
+            strings[2 + i] = utf8(reasonCodes.get(i));
+        }
+        for (byte[] string : strings) {
+            length += Short.BYTES + string.length;
+        }
+        
+        ByteBuffer frame = scratch.capacity() >= length ? scratch.clear() : ByteBuffer.allocate(length);
+        frame.position(HEADER_BYTES);
+        frame.putLong(offset);
+        frame.putLong(epochMillis);
+        frame.putInt(riskScore.score());
+        frame.put((byte) riskScore.level().ordinal());
+        frame.put((byte) reasonCodes.size());
+        for (byte[] string : strings) {
+            frame.putShort((short) string.length);
+            frame.put(string);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), HEADER_BYTES, length - HEADER_BYTES);
+        frame.putInt(Integer.BYTES, (int) crc.getValue());
+        return frame.flip();
+    }
+    
+    private static byte[] utf8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes is too long for the result log");
+        }
+        return bytes;
+    }
+    
+    static void publishLength(ByteBuffer segment, int position, int length) {
+        INT.setRelease(segment, position, length);
+    }
+    
+    static int length(ByteBuffer segment, int position) {
+        return (int) INT.getAcquire(segment, position);
+    }
+    
+    static int align(int position) {
+        return (position + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+    
+    static long offset(ByteBuffer segment, int position) {
+        return segment.getLong(position + HEADER_BYTES);
+    }
+    
+    /**
+     * @return true if the frame at {@code position} is complete: its length fits in
+     *         {@code limit} and its checksum matches
+     */
+    static boolean isValid(ByteBuffer segment, int position, int limit) {
+        int length = length(segment, position);
+        if (length < MIN_FRAME_BYTES || length > limit - position) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(segment.slice(position + HEADER_BYTES, length - HEADER_BYTES));
+        return segment.getInt(position + Integer.BYTES) == (int) crc.getValue();
+    }
+    
+    static ResultLogEntry decode(ByteBuffer segment, int position) {
+        ByteBuffer frame = segment.slice(position + HEADER_BYTES, length(segment, position) - HEADER_BYTES);
+        long offset = frame.getLong();
+        long epochMillis = frame.getLong();
+        int score = frame.getInt();
+        RiskScore.RiskLevel level = LEVELS[frame.get()];
+        int reasonCount = frame.get() & 0xFF;
+        String transactionId = getString(frame);
+        String configVersion = getString(frame);
+        List<String> reasonCodes = new ArrayList<>(reasonCount);
+        for (int i = 0; i < reasonCount; i++) {
+            reasonCodes.add(getString(frame));
+        }
+        return new ResultLogEntry(offset, epochMillis,
+            new RiskScore(transactionId, score, level, List.copyOf(reasonCodes), configVersion));
+    }
+    
+    private static String getString(ByteBuffer frame) {
+        byte[] bytes = new byte[frame.getShort() & 0xFFFF];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
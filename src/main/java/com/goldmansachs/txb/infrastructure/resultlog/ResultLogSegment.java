@@ -0,0 +1,224 @@
+package com.goldmansachs.txb.infrastructure.resultlog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * One memory-mapped file of the {@link ResultLog}, holding the records from its base
+ * offset (which names the file) up to the next segment's.
+ *
+ * A segment is mapped once at its full size and written through the mapping by a single
+ * appending thread at a time; the file is created sparse, so unwritten space takes no
+ * disk. Readers on any thread read published records directly from the mapping:
+ * {@link #endOffset} is volatile and written after each record, so every record below
+ * it is complete. A sparse in-memory index of every {@value #INDEX_INTERVAL}th record's
+ * position bounds the scan to find an offset.
+ */
+final class ResultLogSegment {
+    
+    private static final Logger log = LoggerFactory.getLogger(ResultLogSegment.class);
+    
+    static final String SUFFIX = ".log";
+    private static final Pattern FILE_NAME = Pattern.compile("\\d{20}" + Pattern.quote(SUFFIX));
+    private static final int INDEX_INTERVAL = 64;
+    private static final byte[] ZEROS = new byte[4096];
+    
+    private final long baseOffset;
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    
+    /** Write position. Only touched by the appending thread. */
+    private int size;
+    /** Position of record {@code baseOffset + i * INDEX_INTERVAL} at index i. */
+    private volatile int[] index = new int[16];
+    private volatile long lastEpochMillis;
+    private volatile long endOffset;
+    
+    private ResultLogSegment(long baseOffset, Path file, MappedByteBuffer buffer) {
+        this.baseOffset = baseOffset;
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+        this.endOffset = baseOffset;
+    }
+    
+    static ResultLogSegment create(Path directory, long baseOffset, int capacity) throws IOException {
+        Path file = directory.resolve(fileName(baseOffset));
+        ResultLogSegment segment = new ResultLogSegment(baseOffset, file, map(file, capacity, StandardOpenOption.CREATE_NEW));
+        segment.lastEpochMillis = System.currentTimeMillis();
+        return segment;
+    }
+    
+    /**
+     * Maps an existing segment and recovers its records: the scan stops at the first
+     * frame that is missing, fails its checksum or carries the wrong offset.
+     *
+     * @param capacity Size to map; at least the file size
+     * @param active Whether appends continue in this segment. Its tail after the last
+     *        valid record is zeroed, so a record torn by a crash cannot be mistaken for data.
+     */
+    static ResultLogSegment open(Path file, int capacity, boolean active) throws IOException {
+        long baseOffset = Long.parseLong(file.getFileName().toString().substring(0, 20));
+        ResultLogSegment segment = new ResultLogSegment(baseOffset, file, map(file, capacity, StandardOpenOption.CREATE));
+        segment.lastEpochMillis = Files.getLastModifiedTime(file).toMillis();
+        segment.recover(active);
+        return segment;
+    }
+    
+    static boolean isSegmentFile(Path file) {
+        return FILE_NAME.matcher(file.getFileName().toString()).matches();
+    }
+    
+    static String fileName(long baseOffset) {
+        return String.format("%020d", baseOffset) + SUFFIX;
+    }
+    
+    private static MappedByteBuffer map(Path file, int capacity, OpenOption createOption) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, createOption, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+    
+    private void recover(boolean active) {
+        long offset = baseOffset;
+        int position = 0;
+        while (capacity - position >= ResultLogFormat.MIN_FRAME_BYTES
+                && ResultLogFormat.isValid(buffer, position, capacity)
+                && ResultLogFormat.offset(buffer, position) == offset) {
+            indexRecord(offset, position);
+            lastEpochMillis = buffer.getLong(position + ResultLogFormat.HEADER_BYTES + Long.BYTES);
+            position = ResultLogFormat.align(position + ResultLogFormat.length(buffer, position));
+            offset++;
+        }
+        size = position;
+        endOffset = offset;
+        
+        if (capacity - position < Integer.BYTES || ResultLogFormat.length(buffer, position) == 0) {
+            return;
+        }
+        if (active) {
+            log.warn("Result log segment {} ends in a partly written record after offset {}; discarding it",
+                     file.getFileName(), offset - 1);
+            for (int zeroed = position; zeroed < capacity; zeroed += ZEROS.length) {
+                buffer.put(zeroed, ZEROS, 0, Math.min(ZEROS.length, capacity - zeroed));
+            }
+        } else {
+            log.error("Result log segment {} is damaged after offset {}; its later records are lost",
+                      file.getFileName(), offset - 1);
+        }
+    }
+    
+    /**
+     * Appends an encoded frame (see {@link ResultLogFormat#encode}) and publishes it.
+     *
+     * @return false if the frame does not fit in the space left
+     */
+    boolean append(ByteBuffer frame, long offset, long epochMillis) {
+        int length = frame.limit();
+        if (length > capacity - size) {
+            return false;
+        }
+        int position = size;
+        buffer.put(position + Integer.BYTES, frame, Integer.BYTES, length - Integer.BYTES);
+        ResultLogFormat.publishLength(buffer, position, length);
+        indexRecord(offset, position);
+        size = ResultLogFormat.align(position + length);
+        lastEpochMillis = epochMillis;
+        endOffset = offset + 1;
+        return true;
+    }
+    
+    private void indexRecord(long offset, int position) {
+        long relative = offset - baseOffset;
+        if (relative % INDEX_INTERVAL != 0) {
+            return;
+        }
+        int slot = (int) (relative / INDEX_INTERVAL);
+        int[] current = index;
+        if (slot == current.length) {
+            current = Arrays.copyOf(current, slot * 2);
+        }
+        current[slot] = position;
+        index = current;
+    }
+    
+    /**
+     * Decodes records {@code [from, endOffset)}, at most {@code maxRecords} of them.
+     *
+     * @return The offset after the last record read
+     */
+    long read(long from, int maxRecords, List<ResultLogEntry> into) {
+        long end = Math.min(endOffset, from + maxRecords);
+        int position = positionOf(from, end);
+        for (long offset = from; offset < end; offset++) {
+            into.add(ResultLogFormat.decode(buffer, position));
+            position = ResultLogFormat.align(position + ResultLogFormat.length(buffer, position));
+        }
+        return Math.max(from, end);
+    }
+    
+    /**
+     * @return The encoded frames of records {@code [from, to)} as a read-only view of the
+     *         mapping, without copying; {@code to} must not exceed {@link #endOffset}
+     */
+    ByteBuffer frames(long from, long to) {
+        int start = positionOf(from, to);
+        int end = start;
+        for (long offset = from; offset < to; offset++) {
+            end = ResultLogFormat.align(end + ResultLogFormat.length(buffer, end));
+        }
+        return buffer.slice(start, end - start).asReadOnlyBuffer();
+    }
+    
+    /**
+     * @param end A published end offset, read before the index so that its entries are visible
+     */
+    private int positionOf(long offset, long end) {
+        int[] index = this.index;
+        long indexed = Math.max(0, (end - baseOffset - 1) / INDEX_INTERVAL);
+        int slot = (int) Math.min((offset - baseOffset) / INDEX_INTERVAL, indexed);
+        int position = index[slot];
+        for (long current = baseOffset + (long) slot * INDEX_INTERVAL; current < offset; current++) {
+            position = ResultLogFormat.align(position + ResultLogFormat.length(buffer, position));
+        }
+        return position;
+    }
+    
+    void force() {
+        buffer.force();
+    }
+    
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    long baseOffset() {
+        return baseOffset;
+    }
+    
+    long endOffset() {
+        return endOffset;
+    }
+    
+    long lastEpochMillis() {
+        return lastEpochMillis;
+    }
+    
+    Path file() {
+        return file;
+    }
+}
@@ -0,0 +1,210 @@
+package com.goldmansachs.txb.infrastructure.snapshot;
+
+import com.goldmansachs.txb.infrastructure.cache.TransactionHistoryCache;
+import com.goldmansachs.txb.infrastructure.repository.HistoryKey;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryEntity;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryLookup;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History lookup for the hottest tier that serves every read from memory, without the database.
+ *
+ * The whole of transaction_history is bulk-read at startup and again every
+ * {@code refresh-interval} into an {@link OffHeapHistoryTable}. Each refresh builds a new
+ * table on the loader thread and publishes it with a single volatile write, so readers
+ * never block and always see one complete snapshot; a failed refresh keeps serving the
+ * previous one.
+ *
+ * Lookups resolve in this order:
+ * - The history cache, but only for entries already in memory: profile updates from
+ *   scored transactions land there and are newer than the last snapshot
+ * - The snapshot; a pair missing from it has no history
+ * - The regular cache/database path, only until the first snapshot has loaded
+ *
+ * Enabled with {@code txb.risk.history-snapshot.enabled}, in which case it replaces
+ * {@link TransactionHistoryCache} as the engine's lookup. The refresh interval should
+ * be shorter than the history cache TTL so profile updates are in the snapshot before
+ * their cache entries expire.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "txb.risk.history-snapshot.enabled", havingValue = "true")
+public class OffHeapHistorySnapshot implements TransactionHistoryLookup {
+    
+    private static final Logger log = LoggerFactory.getLogger(OffHeapHistorySnapshot.class);
+    
+    static final String COUNT_SQL = "SELECT count(*) FROM transaction_history";
+    static final String SELECT_SQL = "SELECT client_id, beneficiary_id, avg_amount, amount_variance, transaction_count, last_seen FROM transaction_history";
+    
+    private final TransactionHistoryCache historyCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration refreshInterval;
+    private final ScheduledExecutorService loader;
+    
+    private final Counter refreshFailureCounter;
+    private final Timer refreshTimer;
+    
+    private volatile OffHeapHistoryTable table;
+    private volatile Instant loadedAt;
+    
+    public OffHeapHistorySnapshot(
+            TransactionHistoryCache historyCache,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.history-snapshot.refresh-interval:5m}") Duration refreshInterval,
+            @Value("${txb.risk.history-snapshot.fetch-size:10000}") int fetchSize) {
+        this.historyCache = historyCache;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        // PostgreSQL only streams a result set with a fetch size inside a transaction
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.refreshInterval = refreshInterval;
+        this.loader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "history-snapshot-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        Gauge.builder("risk.history.snapshot.pairs", this, snapshot -> snapshot.table != null ? snapshot.table.size() : 0)
+            .description("Client/beneficiary pairs in the off-heap history snapshot")
+            .register(meterRegistry);
+        Gauge.builder("risk.history.snapshot.bytes", this, snapshot -> snapshot.table != null ? snapshot.table.offHeapBytes() : 0)
+            .description("Direct memory held by the off-heap history snapshot")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("risk.history.snapshot.age", this, OffHeapHistorySnapshot::ageSeconds)
+            .description("Seconds since the off-heap history snapshot was loaded")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        this.refreshFailureCounter = Counter.builder("risk.history.snapshot.refresh.failures")
+            .description("Snapshot refreshes that failed; the previous snapshot stays in use")
+            .register(meterRegistry);
+        this.refreshTimer = Timer.builder("risk.history.snapshot.refresh.time")
+            .description("Time taken to load one history snapshot")
+            .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    void start() {
+        // Load synchronously so the service starts with a snapshot when the database is up
+        refreshSafely();
+        long intervalNanos = refreshInterval.toNanos();
+        loader.scheduleWithFixedDelay(this::refreshSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        loader.shutdownNow();
+    }
+    
+    @Override
+    public Optional<TransactionHistoryEntity> findHistory(String clientId, String beneficiaryId) {
+        Optional<TransactionHistoryEntity> recent = historyCache.findInMemory(clientId, beneficiaryId);
+        if (recent.isPresent()) {
+            return recent;
+        }
+        OffHeapHistoryTable current = table;
+        if (current == null) {
+            return historyCache.findHistory(clientId, beneficiaryId);
+        }
+        long slot = current.find(HistoryKey.hash64(clientId, beneficiaryId));
+        if (slot < 0) {
+            return Optional.empty();
+        }
+        long avgAmount = current.avgAmountScaled(slot);
+        double amountVariance = current.amountVariance(slot);
+        long lastSeen = current.lastSeenMicros(slot);
+        return Optional.of(TransactionHistoryEntity.builder()
+            .clientId(clientId)
+            .beneficiaryId(beneficiaryId)
+            .avgAmount(avgAmount != OffHeapHistoryTable.NO_AMOUNT ? BigDecimal.valueOf(avgAmount, OffHeapHistoryTable.AMOUNT_SCALE) : null)
+            .amountVariance(!Double.isNaN(amountVariance) ? amountVariance : null)
+            .transactionCount(current.transactionCount(slot))
+            .lastSeen(lastSeen != OffHeapHistoryTable.NO_TIMESTAMP ? Instant.EPOCH.plus(lastSeen, ChronoUnit.MICROS) : null)
+            .build());
+    }
+    
+    @Override
+    public String sourceOf(String clientId, String beneficiaryId) {
+        if (historyCache.findInMemory(clientId, beneficiaryId).isPresent()) {
+            return "cache";
+        }
+        return table == null ? historyCache.sourceOf(clientId, beneficiaryId) : "snapshot";
+    }
+    
+    private void refreshSafely() {
+        try {
+            refreshTimer.record(this::refresh);
+        } catch (RuntimeException ex) {
+            refreshFailureCounter.increment();
+            log.warn("History snapshot refresh failed, keeping the previous snapshot: {}", ex.getMessage());
+        }
+    }
+    
+    private void refresh() {
+        OffHeapHistoryTable loaded = readOnlyTransaction.execute(status -> {
+            Long expected = jdbcTemplate.queryForObject(COUNT_SQL, Long.class);
+            OffHeapHistoryTable next = OffHeapHistoryTable.withExpectedSize(expected != null ? expected : 0);
+            jdbcTemplate.query(SELECT_SQL, rs -> {
+                BigDecimal avgAmount = rs.getBigDecimal(3);
+                double amountVariance = rs.getDouble(4);
+                boolean noVariance = rs.wasNull();
+                Timestamp lastSeen = rs.getTimestamp(6);
+                next.put(HistoryKey.hash64(rs.getString(1), rs.getString(2)),
+                         avgAmount != null ? toScaled(avgAmount) : OffHeapHistoryTable.NO_AMOUNT,
+                         noVariance ? OffHeapHistoryTable.NO_VARIANCE : amountVariance,
+                         rs.getLong(5),
+                         lastSeen != null ? toEpochMicros(lastSeen.toInstant()) : OffHeapHistoryTable.NO_TIMESTAMP);
+            });
+            return next;
+        });
+        table = loaded;
+        loadedAt = Instant.now();
+        log.info("Loaded history snapshot: {} pairs, {} MB off-heap",
+                 loaded.size(), loaded.offHeapBytes() >> 20);
+    }
+    
+    private static long toScaled(BigDecimal amount) {
+        return amount.setScale(OffHeapHistoryTable.AMOUNT_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+    
+    private static long toEpochMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+    
+    private double ageSeconds() {
+        Instant loaded = loadedAt;
+        return loaded != null ? Duration.between(loaded, Instant.now()).toMillis() / 1000.0 : Double.NaN;
+    }
+}
@@ -0,0 +1,155 @@
+package com.goldmansachs.txb.infrastructure.snapshot;
+
+import com.goldmansachs.txb.infrastructure.repository.HistoryKey;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Open-addressing hash table of client/beneficiary history held in direct (off-heap)
+ * memory, keyed by {@link HistoryKey#hash64} of the pair.
+ *
+ * Each slot is five longs: the pair hash, the average amount as a long scaled by
+ * {@value #AMOUNT_SCALE} decimal places, the raw bits of the amount variance, the
+ * transaction count, and last_seen in epoch microseconds. A slot whose hash is 0 is
+ * empty. The variance and count are carried so that profile updates seeded from the
+ * snapshot continue the stored statistics rather than restarting them. Collisions are resolved by linear probing; the table is
+ * sized for a load factor of at most 0.5 so probe sequences stay short.
+ *
+ * Direct buffers are limited to 2GB each, so slots are spread over fixed-size segments.
+ * The heap holds only the segment array, which keeps tens of millions of pairs out of
+ * GC marking entirely. Memory is released by the buffers' cleaners once a replaced
+ * table becomes unreachable, so -XX:MaxDirectMemorySize must allow two tables during
+ * a refresh.
+ *
+ * Pairs are identified by hash alone: two distinct pairs whose 64-bit hashes collide
+ * would share a slot. At 50 million pairs the probability of any collision is below
+ * one in ten thousand, which is acceptable for a scoring signal.
+ *
+ * A table is filled by one thread and then published; after publication it is read-only
+ * and safe for concurrent readers, since reads use absolute get methods only.
+ */
+final class OffHeapHistoryTable {
+    
+    /** Decimal places kept in the scaled average amount (avg_amount is DECIMAL(18, 2)). */
+    static final int AMOUNT_SCALE = 2;
+    
+    /** Returned by {@link #lastSeenMicros} for a pair whose last_seen is NULL. */
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    
+    /** Returned by {@link #avgAmountScaled} for a pair whose avg_amount is NULL. */
+    static final long NO_AMOUNT = Long.MIN_VALUE;
+    
+    /** Returned by {@link #amountVariance} for a pair whose amount_variance is NULL; a stored variance is never NaN. */
+    static final double NO_VARIANCE = Double.NaN;
+    
+    private static final int SLOT_BYTES = 5 * Long.BYTES;
+    private static final int SEGMENT_SHIFT = 25;
+    private static final long SEGMENT_SLOTS = 1L << SEGMENT_SHIFT;
+    private static final long MAX_CAPACITY = 1L << 31;
+    
+    private final ByteBuffer[] segments;
+    private final long capacity;
+    private final long mask;
+    private long size;
+    
+    private OffHeapHistoryTable(long capacity) {
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        int segmentCount = (int) Math.max(1, capacity >>> SEGMENT_SHIFT);
+        long slotsPerSegment = Math.min(capacity, SEGMENT_SLOTS);
+        this.segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // allocateDirect zero-fills, so every slot starts out empty
+            segments[i] = ByteBuffer.allocateDirect((int) (slotsPerSegment * SLOT_BYTES)).order(ByteOrder.nativeOrder());
+        }
+    }
+    
+    /**
+     * Allocates a table for the expected number of pairs, with headroom for pairs
+     * added between sizing and loading.
+     */
+    static OffHeapHistoryTable withExpectedSize(long expectedPairs) {
+        long capacity = Long.highestOneBit(Math.max(16, expectedPairs * 2 + expectedPairs / 4) - 1) << 1;
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Too many history pairs for an off-heap snapshot: " + expectedPairs);
+        }
+        return new OffHeapHistoryTable(capacity);
+    }
+    
+    /**
+     * Inserts or overwrites a pair. Only called while the table is being loaded.
+     *
+     * @throws IllegalStateException if the table has no room left
+     */
+    void put(long key, long avgAmountScaled, double amountVariance, long transactionCount, long lastSeenMicros) {
+        if (size >= capacity - capacity / 8) {
+            throw new IllegalStateException("Off-heap history table is full (" + size + " of " + capacity + " slots)");
+        }
+        for (long slot = key & mask; ; slot = (slot + 1) & mask) {
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            long existing = segment.getLong(offset);
+            if (existing == 0 || existing == key) {
+                if (existing == 0) {
+                    size++;
+                }
+                segment.putLong(offset, key);
+                segment.putLong(offset + Long.BYTES, avgAmountScaled);
+                segment.putDouble(offset + 2 * Long.BYTES, amountVariance);
+                segment.putLong(offset + 3 * Long.BYTES, transactionCount);
+                segment.putLong(offset + 4 * Long.BYTES, lastSeenMicros);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Finds the slot holding a pair.
+     *
+     * @return The slot index, or -1 if the pair is not in the table
+     */
+    long find(long key) {
+        for (long slot = key & mask; ; slot = (slot + 1) & mask) {
+            long existing = segment(slot).getLong(offset(slot));
+            if (existing == key) {
+                return slot;
+            }
+            if (existing == 0) {
+                return -1;
+            }
+        }
+    }
+    
+    long avgAmountScaled(long slot) {
+        return segment(slot).getLong(offset(slot) + Long.BYTES);
+    }
+    
+    double amountVariance(long slot) {
+        return segment(slot).getDouble(offset(slot) + 2 * Long.BYTES);
+    }
+    
+    long transactionCount(long slot) {
+        return segment(slot).getLong(offset(slot) + 3 * Long.BYTES);
+    }
+    
+    long lastSeenMicros(long slot) {
+        return segment(slot).getLong(offset(slot) + 4 * Long.BYTES);
+    }
+    
+    long size() {
+        return size;
+    }
+    
+    long offHeapBytes() {
+        return capacity * SLOT_BYTES;
+    }
+    
+    private ByteBuffer segment(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)];
+    }
+    
+    private static int offset(long slot) {
+        return (int) (slot & (SEGMENT_SLOTS - 1)) * SLOT_BYTES;
+    }
+}
@@ -0,0 +1,123 @@
+package com.goldmansachs.txb.infrastructure.velocity;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Transaction count and amount sum of one key over every {@link VelocityWindow}, updated
+ * without locks.
+ *
+ * Layout of the backing {@link AtomicLongArray}:
+ * - Word 0: the time of the last update in epoch millis, or {@link #RETIRED}
+ * - Then two words per bucket (count, amount) for each window in turn
+ *
+ * A bucket word packs the bucket's epoch (time / bucket width) in its top
+ * {@value #TAG_BITS} bits and the value in the low {@value #VALUE_BITS}. Rolling a bucket
+ * over to a new epoch and adding to it is then a single CAS, so a reset can never lose a
+ * concurrent increment, and readers ignore buckets whose epoch is outside the window
+ * without anyone having to clear them. The epoch is kept modulo 2^{@value #TAG_BITS};
+ * that would only alias for a bucket left untouched for 2^{@value #TAG_BITS} epochs,
+ * and idle keys are expired long before that.
+ *
+ * Count and amount are separate words, so a reader racing a writer may see one updated
+ * before the other. Values saturate rather than overflow.
+ */
+final class SlidingWindowCounters {
+    
+    /** Marks counters removed by the sweeper; writers must not update them. */
+    static final long RETIRED = Long.MIN_VALUE;
+    
+    static final int COUNT = 0;
+    static final int AMOUNT = 1;
+    
+    static final int VALUE_BITS = 44;
+    static final int TAG_BITS = Long.SIZE - VALUE_BITS;
+    static final long MAX_VALUE = (1L << VALUE_BITS) - 1;
+    private static final long TAG_MASK = (1L << TAG_BITS) - 1;
+    private static final long TAG_HALF_RANGE = 1L << (TAG_BITS - 1);
+    
+    private final AtomicLongArray words = new AtomicLongArray(1 + 2 * VelocityWindow.TOTAL_BUCKETS);
+    
+    SlidingWindowCounters(long nowMillis) {
+        words.set(0, nowMillis);
+    }
+    
+    /**
+     * Claims the counters for an update at {@code nowMillis}.
+     *
+     * @return false if the counters have been retired and must be replaced
+     */
+    boolean touch(long nowMillis) {
+        long lastUpdate;
+        do {
+            lastUpdate = words.get(0);
+            if (lastUpdate == RETIRED) {
+                return false;
+            }
+            if (lastUpdate >= nowMillis) {
+                return true;
+            }
+        } while (!words.compareAndSet(0, lastUpdate, nowMillis));
+        return true;
+    }
+    
+    /**
+     * Retires the counters if they have not been updated since {@code idleBeforeMillis}.
+     * Fails if a writer touches them first, so an update is never applied to retired counters.
+     */
+    boolean retire(long idleBeforeMillis) {
+        long lastUpdate = words.get(0);
+        return lastUpdate != RETIRED && lastUpdate < idleBeforeMillis
+            && words.compareAndSet(0, lastUpdate, RETIRED);
+    }
+    
+    /**
+     * Adds one transaction to the current bucket of every window. Call {@link #touch} first.
+     */
+    void add(long nowMillis, long amount) {
+        for (VelocityWindow window : VelocityWindow.values()) {
+            long epoch = nowMillis / window.bucketMillis;
+            int index = 1 + 2 * (window.firstBucket + (int) (epoch % window.buckets));
+            long tag = epoch & TAG_MASK;
+            addTagged(index + COUNT, tag, 1);
+            addTagged(index + AMOUNT, tag, amount);
+        }
+    }
+    
+    /**
+     * @param component {@link #COUNT} or {@link #AMOUNT}
+     * @return The sum of the component over the window ending at {@code nowMillis}
+     */
+    long sum(VelocityWindow window, long nowMillis, int component) {
+        long tag = (nowMillis / window.bucketMillis) & TAG_MASK;
+        int first = 1 + 2 * window.firstBucket + component;
+        long total = 0;
+        for (int bucket = 0; bucket < window.buckets; bucket++) {
+            long word = words.get(first + 2 * bucket);
+            if (((tag - (word >>> VALUE_BITS)) & TAG_MASK) < window.buckets) {
+                total += word & MAX_VALUE;
+            }
+        }
+        return total;
+    }
+    
+    private void addTagged(int index, long tag, long delta) {
+        while (true) {
+            long word = words.get(index);
+            long wordTag = word >>> VALUE_BITS;
+            long value;
+            if (wordTag == tag) {
+                value = Math.min(MAX_VALUE, (word & MAX_VALUE) + delta);
+            } else if (word == 0 || ((tag - wordTag) & TAG_MASK) < TAG_HALF_RANGE) {
+                // The bucket holds an earlier epoch: start it over
+                value = delta;
+            } else {
+                // A writer with a later clock has already reused the bucket; this update is outside its window
+                return;
+            }
+            long next = (tag << VALUE_BITS) | value;
+            if (next == word || words.compareAndSet(index, word, next)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.goldmansachs.txb.infrastructure.velocity;
+
+import java.time.Duration;
+
+/**
+ * The sliding windows tracked per client and per beneficiary.
+ *
+ * Each window is a ring of fixed-width buckets; a query sums the buckets of the last
+ * {@code length}, including the current, partly elapsed one. Counts are therefore exact
+ * to bucket granularity: a window reports between {@code length - bucket width} and
+ * {@code length} of activity (50-60s for ONE_MINUTE).
+ */
+public enum VelocityWindow {
+    
+    ONE_MINUTE(Duration.ofMinutes(1), 6),
+    ONE_HOUR(Duration.ofHours(1), 12),
+    ONE_DAY(Duration.ofDays(1), 24);
+    
+    /** Longest tracked window: a key idle for this long has nothing left to report. */
+    static final Duration LONGEST = ONE_DAY.length;
+    
+    /** Buckets across all windows, i.e. the size of one key's counters. */
+    static final int TOTAL_BUCKETS;
+    
+    static {
+        int total = 0;
+        for (VelocityWindow window : values()) {
+            window.firstBucket = total;
+            total += window.buckets;
+        }
+        TOTAL_BUCKETS = total;
+    }
+    
+    private final Duration length;
+    final long bucketMillis;
+    final int buckets;
+    /** Index of this window's first bucket within a key's counters. */
+    int firstBucket;
+    
+    VelocityWindow(Duration length, int buckets) {
+        this.length = length;
+        this.bucketMillis = length.toMillis() / buckets;
+        this.buckets = buckets;
+    }
+    
+    public Duration length() {
+        return length;
+    }
+}
@@ -0,0 +1,257 @@
+package com.goldmansachs.txb.infrastructure.velocity;
+
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.infrastructure.fx.FxRateStore;
+import com.goldmansachs.txb.infrastructure.fx.FxRateTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory transaction counts and amount sums per client and per beneficiary over the
+ * {@link VelocityWindow sliding windows}, for the velocity and burst rules.
+ *
+ * Scored transactions are recorded by the scoring service after the score is computed,
+ * as profiles are, so rules only read the store and a transaction is never counted twice
+ * by its own score. Rules add the transaction being scored to what they read. Two payments
+ * scored at the same instant do not see each other; the next one sees both. Batch items
+ * are recorded one at a time as they are scored, so a burst within one batch counts
+ * towards its own later items.
+ *
+ * The store is:
+ * - Striped: keys are spread over {@value #STRIPES} maps per scope, each holding at most
+ *   {@code max-keys / STRIPES} keys, so memory is bounded without a shared size counter
+ * - Lock-free on the hot path: an update is a handful of CASes on the key's
+ *   {@link SlidingWindowCounters}, a query a handful of volatile reads
+ * - Self-expiring: every {@code sweep-interval}, keys idle for longer than the longest
+ *   window (whose counts are all zero) are removed
+ *
+ * A new key arriving at a full stripe is not tracked and reads as zero (fail-open); the
+ * rejection is counted. Windows follow the service clock, not the transaction time, so
+ * back-dated or replayed transactions count as activity now. Amounts are summed in minor
+ * units of the base currency, converted through {@link FxRateStore}; a payment in a
+ * currency without an FX rate is counted with amount zero.
+ */
+@Component
+public class VelocityWindowStore {
+    
+    private static final Logger log = LoggerFactory.getLogger(VelocityWindowStore.class);
+    
+    public enum Scope {
+        CLIENT,
+        BENEFICIARY
+    }
+    
+    static final int STRIPES = 64;
+    private static final int AMOUNT_SCALE = 2;
+    private static final BigDecimal MAX_MINOR_UNITS = BigDecimal.valueOf(SlidingWindowCounters.MAX_VALUE);
+    
+    private final FxRateStore fxRates;
+    private final Map<String, SlidingWindowCounters>[][] stripes;
+    private final long maxKeysPerStripe;
+    private final Duration sweepInterval;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService sweeper;
+    
+    private final Counter rejectedCounter;
+    private final Counter expiredCounter;
+    
+    @Autowired
+    public VelocityWindowStore(
+            FxRateStore fxRates,
+            MeterRegistry meterRegistry,
+            @Value("${txb.risk.velocity.max-keys:1000000}") long maxKeys,
+            @Value("${txb.risk.velocity.sweep-interval:1m}") Duration sweepInterval) {
+        this(fxRates, meterRegistry, maxKeys, sweepInterval, System::currentTimeMillis);
+    }
+    
+    /**
+     * @param maxKeys Keys tracked per scope
+     * @param clock Source of the current time in epoch millis
+     */
+    @SuppressWarnings("unchecked")
+    public VelocityWindowStore(FxRateStore fxRates, MeterRegistry meterRegistry, long maxKeys, Duration sweepInterval,
+                               LongSupplier clock) {
+        if (maxKeys < STRIPES) {
+            throw new IllegalArgumentException("txb.risk.velocity.max-keys must be at least " + STRIPES + ", was " + maxKeys);
+        }
+        this.fxRates = fxRates;
+        this.stripes = new Map[Scope.values().length][STRIPES];
+        for (Map<String, SlidingWindowCounters>[] scopeStripes : stripes) {
+            for (int i = 0; i < STRIPES; i++) {
+                scopeStripes[i] = new ConcurrentHashMap<>();
+            }
+        }
+        this.maxKeysPerStripe = maxKeys / STRIPES;
+        this.sweepInterval = sweepInterval;
+        this.clock = clock;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "velocity-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        for (Scope scope : Scope.values()) {
+            Gauge.builder("risk.velocity.keys", this, store -> store.size(scope))
+                .tag("scope", scope.name().toLowerCase())
+                .description("Keys with sliding-window counters in memory")
+                .register(meterRegistry);
+        }
+        this.rejectedCounter = Counter.builder("risk.velocity.keys.rejected")
+            .description("Transactions not tracked because their key's stripe was full")
+            .register(meterRegistry);
+        this.expiredCounter = Counter.builder("risk.velocity.keys.expired")
+            .description("Idle keys removed from the velocity store")
+            .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    void start() {
+        long intervalNanos = sweepInterval.toNanos();
+        sweeper.scheduleWithFixedDelay(this::sweepSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+    
+    /**
+     * Counts a scored transaction against its client and its beneficiary.
+     */
+    public void record(Transaction transaction) {
+        long now = clock.getAsLong();
+        long amount = amountOf(transaction);
+        add(Scope.CLIENT, transaction.clientId(), now, amount);
+        add(Scope.BENEFICIARY, transaction.beneficiaryId(), now, amount);
+    }
+    
+    /**
+     * @return Transactions recorded for the key within the window
+     */
+    public long count(Scope scope, String key, VelocityWindow window) {
+        SlidingWindowCounters counters = stripe(scope, key).get(key);
+        return counters == null ? 0 : counters.sum(window, clock.getAsLong(), SlidingWindowCounters.COUNT);
+    }
+    
+    /**
+     * @return Sum of the amounts recorded for the key within the window, in minor units
+     */
+    public long amount(Scope scope, String key, VelocityWindow window) {
+        SlidingWindowCounters counters = stripe(scope, key).get(key);
+        return counters == null ? 0 : counters.sum(window, clock.getAsLong(), SlidingWindowCounters.AMOUNT);
+    }
+    
+    /**
+     * @return The amount the store sums for a transaction: minor units of the base
+     *         currency, zero if its currency has no rate, saturating at the largest value
+     *         a bucket can hold
+     */
+    public long amountOf(Transaction transaction) {
+        long amount = fxRates.toBaseMinorUnits(transaction);
+        if (amount == FxRateTable.NO_RATE || amount <= 0) {
+            return 0;
+        }
+        return Math.min(amount, SlidingWindowCounters.MAX_VALUE);
+    }
+    
+    /**
+     * Converts an amount to the minor units the store sums, saturating at the largest
+     * value a bucket can hold. For limits configured in the base currency.
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        BigDecimal minorUnits = amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).movePointRight(AMOUNT_SCALE);
+        if (minorUnits.signum() <= 0) {
+            return 0;
+        }
+        return minorUnits.compareTo(MAX_MINOR_UNITS) >= 0
+            ? SlidingWindowCounters.MAX_VALUE
+            : minorUnits.longValue();
+    }
+    
+    long size(Scope scope) {
+        long size = 0;
+        for (Map<String, SlidingWindowCounters> stripe : stripes[scope.ordinal()]) {
+            size += stripe.size();
+        }
+        return size;
+    }
+    
+    /**
+     * Removes keys idle for at least the longest window. Their counters report zero for
+     * every window, so removal never changes an answer.
+     */
+    void sweep() {
+        long idleBefore = clock.getAsLong() - VelocityWindow.LONGEST.toMillis();
+        long expired = 0;
+        for (Map<String, SlidingWindowCounters>[] scopeStripes : stripes) {
+            for (Map<String, SlidingWindowCounters> stripe : scopeStripes) {
+                for (Map.Entry<String, SlidingWindowCounters> entry : stripe.entrySet()) {
+                    if (entry.getValue().retire(idleBefore)) {
+                        stripe.remove(entry.getKey(), entry.getValue());
+                        expired++;
+                    }
+                }
+            }
+        }
+        expiredCounter.increment(expired);
+        if (expired > 0) {
+            log.debug("Expired {} idle velocity keys", expired);
+        }
+    }
+    
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException ex) {
+            log.warn("Velocity store sweep failed: {}", ex.getMessage());
+        }
+    }
+    
+    private void add(Scope scope, String key, long now, long amount) {
+        Map<String, SlidingWindowCounters> stripe = stripe(scope, key);
+        while (true) {
+            SlidingWindowCounters counters = stripe.get(key);
+            if (counters == null) {
+                if (stripe.size() >= maxKeysPerStripe) {
+                    rejectedCounter.increment();
+                    return;
+                }
+                SlidingWindowCounters created = new SlidingWindowCounters(now);
+                counters = stripe.putIfAbsent(key, created);
+                if (counters == null) {
+                    counters = created;
+                }
+            }
+            if (counters.touch(now)) {
+                counters.add(now, amount);
+                return;
+            }
+            // Retired by the sweeper between the lookup and the touch: replace it
+            stripe.remove(key, counters);
+        }
+    }
+    
+    private Map<String, SlidingWindowCounters> stripe(Scope scope, String key) {
+        // High bits of a multiplicative hash, so the stripe is independent of the map's own bucket index
+        int index = (key.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(STRIPES));
+        return stripes[scope.ordinal()][index];
+    }
+}
@@ -0,0 +1,124 @@
+package com.goldmansachs.txb.infrastructure.profile;
+
+import com.goldmansachs.txb.domain.model.CountryCode;
+import com.goldmansachs.txb.domain.model.CurrencyCode;
+import com.goldmansachs.txb.domain.model.Transaction;
+import com.goldmansachs.txb.infrastructure.cache.KnownPairBloomFilter;
+import com.goldmansachs.txb.infrastructure.cache.TransactionHistoryCache;
+import com.goldmansachs.txb.infrastructure.fx.FxRateStore;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryEntity;
+import com.goldmansachs.txb.infrastructure.repository.TransactionHistoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransactionProfileUpdaterTest {
+    
+    private static final String CLIENT = "CLIENT-001";
+    private static final String BENEFICIARY = "BENEFICIARY-001";
+    
+    private TransactionHistoryRepository repository;
+    private TransactionHistoryCache historyCache;
+    private TransactionProfileUpdater updater;
+    
+    @BeforeEach
+    void setUp() {
+        repository = mock(TransactionHistoryRepository.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        historyCache = new TransactionHistoryCache(repository, meterRegistry, 1000, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        FxRateStore fxRates = mock(FxRateStore.class);
+        when(fxRates.toBaseMinorUnits(any())).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            return transaction.amount().movePointRight(2).longValueExact();
+        });
+        updater = new TransactionProfileUpdater(repository, historyCache, mock(KnownPairBloomFilter.class), fxRates,
+                                                mock(JdbcTemplate.class), meterRegistry, true, 0.5, 500, Duration.ofSeconds(5));
+    }
+    
+    @Test
+    void detachedProfileIsReloadedFromTheWrittenBackRow() {
+        when(repository.findByClientIdAndBeneficiaryId(CLIENT, BENEFICIARY))
+            .thenReturn(Optional.of(history(100, 10)));
+        updater.record(transaction("100.00"));
+        assertThat(cached().getTransactionCount()).isEqualTo(11);
+        
+        // Another instance writes the pair before this instance's flush; the row now differs
+        // from this instance's in-memory copy, which is what a stale snapshot would also serve
+        when(repository.findByPairs(any(), any()))
+            .thenReturn(List.of(history(200, 20)));
+        flush();
+        
+        updater.record(transaction("300.00"));
+        
+        TransactionHistoryEntity updated = cached();
+        assertThat(updated.getTransactionCount()).isEqualTo(21);
+        assertThat(updated.getAvgAmount()).isEqualByComparingTo("250.00");
+    }
+    
+    @Test
+    void profileIsNeverLoadedFromAnOutdatedCopyAfterFlush() {
+        when(repository.findByClientIdAndBeneficiaryId(CLIENT, BENEFICIARY))
+            .thenReturn(Optional.of(history(100, 10)));
+        updater.record(transaction("100.00"));
+        
+        // The reload after the flush fails; the pair must then come from the database, not memory
+        when(repository.findByPairs(any(), any()))
+            .thenThrow(new IllegalStateException("database unavailable"));
+        flush();
+        assertThat(historyCache.getIfPresent(CLIENT, BENEFICIARY)).isNull();
+        
+        when(repository.findByClientIdAndBeneficiaryId(CLIENT, BENEFICIARY))
+            .thenReturn(Optional.of(history(200, 20)));
+        updater.record(transaction("300.00"));
+        
+        assertThat(cached().getTransactionCount()).isEqualTo(21);
+        assertThat(cached().getAvgAmount()).isEqualByComparingTo("250.00");
+    }
+    
+    private void flush() {
+        try {
+            updater.shutdown();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(ex);
+        }
+    }
+    
+    private TransactionHistoryEntity cached() {
+        Optional<TransactionHistoryEntity> cached = historyCache.getIfPresent(CLIENT, BENEFICIARY);
+        assertThat(cached).isNotNull().isPresent();
+        return cached.get();
+    }
+    
+    private static TransactionHistoryEntity history(long avgAmount, long count) {
+        return TransactionHistoryEntity.builder()
+            .id(UUID.randomUUID())
+            .clientId(CLIENT)
+            .beneficiaryId(BENEFICIARY)
+            .avgAmount(BigDecimal.valueOf(avgAmount).setScale(2))
+            .amountVariance(0.0)
+            .transactionCount(count)
+            .lastSeen(Instant.parse("2026-01-01T00:00:00Z"))
+            .build();
+    }
+    
+    private static Transaction transaction(String amount) {
+        return new Transaction(UUID.randomUUID().toString(), CLIENT, BENEFICIARY, new BigDecimal(amount),
+                               CurrencyCode.parse("USD"), OffsetDateTime.now(ZoneOffset.UTC), CountryCode.parse("US"));
+    }
+}